@@ -0,0 +1,54 @@
+package fpt.aptech.eventsphere.configs;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Caffeine caches for read-mostly reference data shown on every form and admin list page.
+ * <p>
+ * Venues, hosts and roles are only written through code that evicts their cache, so their TTL
+ * is just a safety net. Category and department lists are derived from events and user profiles,
+ * which are edited in many places, so they rely on a short TTL instead. Event statistics are
+ * evicted whenever a registration, feedback or certificate of the event changes; their TTL keeps
+ * the time-based figures (last 24 hours) from drifting. Stats are recorded so
+ * Micrometer publishes hit/miss counts (cache.gets) for every cache.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String VENUES = "venues";
+    public static final String HOSTS = "hosts";
+    public static final String ROLES = "roles";
+    public static final String ROLE_NAMES = "roleNames";
+    public static final String EVENT_CATEGORIES = "eventCategories";
+    public static final String DEPARTMENTS = "departments";
+    public static final String EVENT_STATISTICS = "eventStatistics";
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(VENUES, cache(10, Duration.ofHours(1)));
+        cacheManager.registerCustomCache(HOSTS, cache(10, Duration.ofHours(1)));
+        cacheManager.registerCustomCache(ROLES, cache(50, Duration.ofHours(1)));
+        cacheManager.registerCustomCache(ROLE_NAMES, cache(10, Duration.ofHours(1)));
+        cacheManager.registerCustomCache(EVENT_CATEGORIES, cache(10, Duration.ofMinutes(5)));
+        cacheManager.registerCustomCache(DEPARTMENTS, cache(10, Duration.ofMinutes(5)));
+        cacheManager.registerCustomCache(EVENT_STATISTICS, cache(1000, Duration.ofMinutes(5)));
+        return cacheManager;
+    }
+
+    private static Cache<Object, Object> cache(long maximumSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+}
@@ -2,6 +2,7 @@ package fpt.aptech.eventsphere.configs;
 
 import fpt.aptech.eventsphere.models.*;
 import fpt.aptech.eventsphere.repositories.*;
+import fpt.aptech.eventsphere.services.SeatAllocationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -28,6 +29,7 @@ public class DataInitializer implements CommandLineRunner {
     private final PasswordEncoder passwordEncoder;
     private final JdbcTemplate jdbcTemplate;
     private final CertificateRepository certificateRepository;
+    private final SeatAllocationService seatAllocationService;
 
     @Override
     public void run(String... args) throws Exception {
@@ -62,9 +64,186 @@ public class DataInitializer implements CommandLineRunner {
 
         fixSeatsBooked();
 
+        createSearchIndexes();
+
+        createStatisticsRollups();
+
         System.out.println("===== Data Initialization Complete =====\n");
     }
 
+    // Indexes and functions Hibernate can't declare. Each statement runs on its own so one failure
+    // (e.g. no permission for CREATE EXTENSION) doesn't skip the rest.
+    private void createSearchIndexes() {
+        List<String> statements = List.of(
+                // Trigram indexes behind the admin user keyword search and autocomplete
+                "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+                "CREATE INDEX IF NOT EXISTS idx_users_email_trgm " +
+                        "ON users USING gin (lower(email) gin_trgm_ops)",
+                "CREATE INDEX IF NOT EXISTS idx_user_details_full_name_trgm " +
+                        "ON user_details USING gin (lower(full_name) gin_trgm_ops)",
+                "CREATE INDEX IF NOT EXISTS idx_user_details_department_trgm " +
+                        "ON user_details USING gin (lower(department) gin_trgm_ops)",
+                "CREATE INDEX IF NOT EXISTS idx_user_details_enrollment_trgm " +
+                        "ON user_details USING gin (lower(enrollment_no) gin_trgm_ops)",
+                "CREATE INDEX IF NOT EXISTS idx_users_created_at ON users (created_at)",
+                // One certificate per attendee, so batch issuing can ON CONFLICT DO NOTHING.
+                // Not declared on the entity because existing duplicate rows would make it fail.
+                "CREATE UNIQUE INDEX IF NOT EXISTS uk_certificates_event_student ON certificates (event_id, student_id)",
+                // Top downloaded certificates on the admin dashboard; most are never downloaded
+                "CREATE INDEX IF NOT EXISTS idx_certificates_downloads ON certificates (download_count DESC) " +
+                        "WHERE download_count > 0",
+                // Door check-in upserts attendance per attendee (see CheckInService)
+                "CREATE UNIQUE INDEX IF NOT EXISTS uk_attendance_event_student ON attendance (event_id, student_id)",
+                // ddl-auto=update doesn't widen the enum check constraint Hibernate created for
+                // registrations.status, so re-create it once the ATTENDED status is missing from it
+                "DO $$ BEGIN " +
+                        "IF EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'registrations_status_check' " +
+                        "AND pg_get_constraintdef(oid) NOT LIKE '%ATTENDED%') THEN " +
+                        "ALTER TABLE registrations DROP CONSTRAINT registrations_status_check; " +
+                        "ALTER TABLE registrations ADD CONSTRAINT registrations_status_check CHECK " +
+                        "(status IN ('PENDING', 'CONFIRMED', 'CANCELLED', 'WAITLIST', 'ATTENDED')); " +
+                        "END IF; END $$",
+                // Typo-tolerant name match for filters over already-narrowed rows (no index needed);
+                // the caller passes app.admin.autocomplete.threshold, like the autocomplete's <% cut-off
+                "DROP FUNCTION IF EXISTS name_matches(text, text)",
+                "CREATE OR REPLACE FUNCTION name_matches(query text, name text, threshold float8) " +
+                        "RETURNS boolean LANGUAGE sql IMMUTABLE PARALLEL SAFE AS $$ " +
+                        "SELECT word_similarity(query, name) >= threshold $$",
+
+                // Event full-text search (see EventSearchService). The functions are plain SQL so
+                // Postgres inlines them, which lets event_matches(...) use the expression index below.
+                // 'simple' config: event text is mixed English/Vietnamese, so no stemming.
+                "CREATE OR REPLACE FUNCTION event_search_vector(title text, category text, description text) " +
+                        "RETURNS tsvector LANGUAGE sql IMMUTABLE PARALLEL SAFE AS $$ " +
+                        "SELECT setweight(to_tsvector('simple', coalesce(title, '')), 'A') " +
+                        "|| setweight(to_tsvector('simple', coalesce(category, '')), 'B') " +
+                        "|| setweight(to_tsvector('simple', coalesce(description, '')), 'C') $$",
+                "CREATE OR REPLACE FUNCTION event_matches(title text, category text, description text, query text) " +
+                        "RETURNS boolean LANGUAGE sql IMMUTABLE PARALLEL SAFE AS $$ " +
+                        "SELECT event_search_vector(title, category, description) @@ to_tsquery('simple', query) $$",
+                "CREATE OR REPLACE FUNCTION event_search_rank(title text, category text, description text, query text) " +
+                        "RETURNS real LANGUAGE sql IMMUTABLE PARALLEL SAFE AS $$ " +
+                        "SELECT ts_rank_cd(event_search_vector(title, category, description), to_tsquery('simple', query)) $$",
+                "CREATE INDEX IF NOT EXISTS idx_events_search " +
+                        "ON events USING gin (event_search_vector(title, category, description))"
+        );
+        for (String statement : statements) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (Exception e) {
+                System.out.println("Could not run search DDL: " + e.getMessage());
+            }
+        }
+    }
+
+    // Triggers that keep daily_stats (see DailyStat) current on every write. Each fact counts on its
+    // own day under the user's department at write time; DailyStatsService rebuilds the table from
+    // the base tables on startup and nightly, which also fills it the first time.
+    private void createStatisticsRollups() {
+        List<String> statements = List.of(
+                """
+                CREATE OR REPLACE FUNCTION bump_daily_stat(d date, m text, dept text, st text, delta bigint, rating bigint)
+                RETURNS void LANGUAGE sql AS $$
+                    INSERT INTO daily_stats (stat_day, metric, department, status, item_count, rating_sum)
+                    SELECT d, m, coalesce(dept, ''), coalesce(st, ''), delta, rating WHERE d IS NOT NULL
+                    ON CONFLICT (stat_day, metric, department, status) DO UPDATE
+                    SET item_count = daily_stats.item_count + EXCLUDED.item_count,
+                        rating_sum = daily_stats.rating_sum + EXCLUDED.rating_sum
+                $$""",
+                """
+                CREATE OR REPLACE FUNCTION user_department(uid integer)
+                RETURNS text LANGUAGE sql STABLE AS $$
+                    SELECT coalesce((SELECT department FROM user_details WHERE user_id = uid LIMIT 1), '')
+                $$""",
+                """
+                CREATE OR REPLACE FUNCTION daily_stats_users() RETURNS trigger LANGUAGE plpgsql AS $$
+                BEGIN
+                    IF TG_OP <> 'INSERT' THEN
+                        PERFORM bump_daily_stat(OLD.created_at::date, 'USERS_CREATED', user_department(OLD.user_id), '', -1, 0);
+                    END IF;
+                    IF TG_OP <> 'DELETE' THEN
+                        PERFORM bump_daily_stat(NEW.created_at::date, 'USERS_CREATED', user_department(NEW.user_id), '', 1, 0);
+                    END IF;
+                    RETURN NULL;
+                END $$""",
+                // A user is counted without a department until their details row says otherwise
+                """
+                CREATE OR REPLACE FUNCTION daily_stats_user_details() RETURNS trigger LANGUAGE plpgsql AS $$
+                DECLARE
+                    d date;
+                BEGIN
+                    IF TG_OP <> 'INSERT' THEN
+                        SELECT created_at::date INTO d FROM users WHERE user_id = OLD.user_id;
+                        PERFORM bump_daily_stat(d, 'USERS_CREATED', OLD.department, '', -1, 0);
+                        PERFORM bump_daily_stat(d, 'USERS_CREATED', '', '', 1, 0);
+                    END IF;
+                    IF TG_OP <> 'DELETE' THEN
+                        SELECT created_at::date INTO d FROM users WHERE user_id = NEW.user_id;
+                        PERFORM bump_daily_stat(d, 'USERS_CREATED', '', '', -1, 0);
+                        PERFORM bump_daily_stat(d, 'USERS_CREATED', NEW.department, '', 1, 0);
+                    END IF;
+                    RETURN NULL;
+                END $$""",
+                """
+                CREATE OR REPLACE FUNCTION daily_stats_registrations() RETURNS trigger LANGUAGE plpgsql AS $$
+                BEGIN
+                    IF TG_OP <> 'INSERT' THEN
+                        PERFORM bump_daily_stat(OLD.registered_on::date, 'REGISTRATIONS', user_department(OLD.student_id), OLD.status, -1, 0);
+                    END IF;
+                    IF TG_OP <> 'DELETE' THEN
+                        PERFORM bump_daily_stat(NEW.registered_on::date, 'REGISTRATIONS', user_department(NEW.student_id), NEW.status, 1, 0);
+                    END IF;
+                    RETURN NULL;
+                END $$""",
+                """
+                CREATE OR REPLACE FUNCTION daily_stats_certificates() RETURNS trigger LANGUAGE plpgsql AS $$
+                BEGIN
+                    IF TG_OP <> 'INSERT' THEN
+                        PERFORM bump_daily_stat(OLD.issued_on::date, 'CERTIFICATES_ISSUED', user_department(OLD.student_id), '', -1, 0);
+                    END IF;
+                    IF TG_OP <> 'DELETE' THEN
+                        PERFORM bump_daily_stat(NEW.issued_on::date, 'CERTIFICATES_ISSUED', user_department(NEW.student_id), '', 1, 0);
+                    END IF;
+                    RETURN NULL;
+                END $$""",
+                """
+                CREATE OR REPLACE FUNCTION daily_stats_feedback() RETURNS trigger LANGUAGE plpgsql AS $$
+                BEGIN
+                    IF TG_OP <> 'INSERT' THEN
+                        PERFORM bump_daily_stat(OLD.submitted_on::date, 'FEEDBACK', user_department(OLD.student_id),
+                                CASE WHEN OLD.rating > 0 THEN 'RATED' ELSE 'PENDING' END, -1, -OLD.rating);
+                    END IF;
+                    IF TG_OP <> 'DELETE' THEN
+                        PERFORM bump_daily_stat(NEW.submitted_on::date, 'FEEDBACK', user_department(NEW.student_id),
+                                CASE WHEN NEW.rating > 0 THEN 'RATED' ELSE 'PENDING' END, 1, NEW.rating);
+                    END IF;
+                    RETURN NULL;
+                END $$""",
+                "DROP TRIGGER IF EXISTS trg_daily_stats ON users",
+                "CREATE TRIGGER trg_daily_stats AFTER INSERT OR DELETE OR UPDATE OF created_at ON users " +
+                        "FOR EACH ROW EXECUTE FUNCTION daily_stats_users()",
+                "DROP TRIGGER IF EXISTS trg_daily_stats ON user_details",
+                "CREATE TRIGGER trg_daily_stats AFTER INSERT OR DELETE OR UPDATE OF user_id, department ON user_details " +
+                        "FOR EACH ROW EXECUTE FUNCTION daily_stats_user_details()",
+                "DROP TRIGGER IF EXISTS trg_daily_stats ON registrations",
+                "CREATE TRIGGER trg_daily_stats AFTER INSERT OR DELETE OR UPDATE OF registered_on, status, student_id ON registrations " +
+                        "FOR EACH ROW EXECUTE FUNCTION daily_stats_registrations()",
+                "DROP TRIGGER IF EXISTS trg_daily_stats ON certificates",
+                "CREATE TRIGGER trg_daily_stats AFTER INSERT OR DELETE OR UPDATE OF issued_on, student_id ON certificates " +
+                        "FOR EACH ROW EXECUTE FUNCTION daily_stats_certificates()",
+                "DROP TRIGGER IF EXISTS trg_daily_stats ON feedback",
+                "CREATE TRIGGER trg_daily_stats AFTER INSERT OR DELETE OR UPDATE OF submitted_on, rating, student_id ON feedback " +
+                        "FOR EACH ROW EXECUTE FUNCTION daily_stats_feedback()"
+        );
+        for (String statement : statements) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (Exception e) {
+                System.out.println("Could not run statistics DDL: " + e.getMessage());
+            }
+        }
+    }
+
     private void initializeRoles() {
         List<Roles> roles = List.of(
                 new Roles("ADMIN"),
@@ -507,21 +686,9 @@ public class DataInitializer implements CommandLineRunner {
         }
     }
 
-    @Transactional
+    // Every event, not just those at zero: a killed process can leave seats_booked short of the
+    // registrations it committed (see SeatAllocationService)
     public void fixSeatsBooked() {
-        // Query to get event IDs with seats_booked = 0
-        String selectEventsSql = "SELECT event_id FROM event_seating WHERE seats_booked = 0";
-        List<Integer> eventIds = jdbcTemplate.queryForList(selectEventsSql, Integer.class);
-
-        // For each event, count CONFIRMED registrations and update seats_booked
-        String countConfirmedSql = "SELECT COUNT(*) FROM registrations WHERE event_id = ? AND status = 'CONFIRMED'";
-        String updateSeatsSql = "UPDATE event_seating SET seats_booked = ? WHERE event_id = ?";
-
-        for (Integer eventId : eventIds) {
-            // Get count of CONFIRMED registrations
-            Integer confirmedCount = jdbcTemplate.queryForObject(countConfirmedSql, Integer.class, eventId);
-            // Update seats_booked
-            jdbcTemplate.update(updateSeatsSql, confirmedCount, eventId);
-        }
+        seatAllocationService.reconcile();
     }
 }
@@ -72,6 +72,8 @@ public class SpringSecurityConfig {
                                 "/",
                                 "/certificates/**"
                         ).permitAll()
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .formLogin(form -> form
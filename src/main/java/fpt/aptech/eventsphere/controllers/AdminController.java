@@ -67,13 +67,6 @@ public class AdminController {
         try {
             AdminDashboardDTO dashboardData = adminDashboardService.getDashboardData();
 
-            // Debug log để kiểm tra dữ liệu
-            System.out.println("=== DEBUG DASHBOARD DATA ===");
-            System.out.println("Total Users: " + dashboardData.getTotalUsers());
-            System.out.println("Active Users: " + dashboardData.getActiveUsers());
-            System.out.println("Suspended Users: " + dashboardData.getSuspendedUsers());
-            System.out.println("New Users This Month: " + dashboardData.getNewUsersThisMonth());
-
             model.addAttribute("title", "Admin Dashboard");
             model.addAttribute("dashboard", dashboardData);
 
@@ -112,6 +105,7 @@ public class AdminController {
             model.addAttribute("totalRegistrations", dashboardData.getTotalRegistrations());
             model.addAttribute("completedEvents", dashboardData.getCompletedEvents());
             model.addAttribute("certificatesIssued", dashboardData.getCertificatesIssued());
+            model.addAttribute("topDownloadedCertificates", dashboardData.getTopDownloadedCertificates());
 
             // chart data
             model.addAttribute("userRegistrationChart", dashboardData.getUserRegistrationChart());
@@ -119,6 +113,7 @@ public class AdminController {
             model.addAttribute("departmentDistributionChart", dashboardData.getDepartmentDistributionChart());
 
             model.addAttribute("lastUpdated", dashboardData.getLastUpdated());
+            model.addAttribute("dashboardStale", adminDashboardService.isStale());
 
         } catch (Exception e) {
             model.addAttribute("error", "Error loading dashboard: " + e.getMessage());
@@ -202,6 +197,16 @@ public class AdminController {
     }
 
 
+    // Typo-tolerant suggestions for the user/organizer filter inputs (see dist/js/admin-autocomplete.js)
+    @GetMapping("/users/autocomplete")
+    @ResponseBody
+    public List<UserSuggestionDTO> autocompleteUsers(
+            @RequestParam("q") String q,
+            @RequestParam(required = false) String role,
+            @RequestParam(defaultValue = "10") int limit) {
+        return userManagementService.suggestUsers(q, role, limit);
+    }
+
     @PostMapping("/users/{id}/toggle-status")
     @ResponseBody
     public Map<String, Object> toggleUserStatus(@PathVariable int id) {
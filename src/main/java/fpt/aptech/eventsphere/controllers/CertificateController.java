@@ -2,6 +2,7 @@ package fpt.aptech.eventsphere.controllers;
 
 import fpt.aptech.eventsphere.dto.CertificateDTO;
 import fpt.aptech.eventsphere.models.Users;
+import fpt.aptech.eventsphere.services.CertificateDownloadCounter;
 import fpt.aptech.eventsphere.services.CertificateService;
 import fpt.aptech.eventsphere.repositories.UserRepository;
 import org.springframework.core.io.Resource;
@@ -12,6 +13,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import jakarta.servlet.http.HttpServletRequest;
 import java.net.URLEncoder;
 
@@ -25,10 +27,13 @@ public class CertificateController {
 
     private final CertificateService certificateService;
     private final UserRepository userRepository;
+    private final CertificateDownloadCounter downloadCounter;
 
-    public CertificateController(CertificateService certificateService, UserRepository userRepository) {
+    public CertificateController(CertificateService certificateService, UserRepository userRepository,
+                                 CertificateDownloadCounter downloadCounter) {
         this.certificateService = certificateService;
         this.userRepository = userRepository;
+        this.downloadCounter = downloadCounter;
     }
 
     @GetMapping
@@ -67,7 +72,7 @@ public class CertificateController {
     }
 
     @GetMapping("/download/{certificateId}")
-    public ResponseEntity<Resource> downloadCertificate(@PathVariable Integer certificateId) {
+    public ResponseEntity<Resource> downloadCertificate(@PathVariable Integer certificateId, WebRequest request) {
         try {
             System.out.println("Attempting to download certificate ID: " + certificateId);
             if (!certificateService.isCertificateAvailable(certificateId)) {
@@ -75,7 +80,12 @@ public class CertificateController {
                 return ResponseEntity.notFound().build();
             }
             System.out.println("Certificate found, proceeding with download...");
-            return certificateService.downloadCertificate(certificateId);
+            ResponseEntity<Resource> response = certificateService.downloadCertificate(certificateId);
+            if (request.checkNotModified(response.getHeaders().getETag())) {
+                return null; // 304: the client's copy is current, so it isn't counted as a download
+            }
+            downloadCounter.record(certificateId);
+            return response;
         } catch (Exception e) {
             System.out.println("Error downloading certificate " + certificateId + ": " + e.getMessage());
             e.printStackTrace();
@@ -0,0 +1,40 @@
+package fpt.aptech.eventsphere.controllers;
+
+import fpt.aptech.eventsphere.services.CertificateVerificationService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Public check of the certificate ID printed on a certificate. Kept apart from
+ * CertificateController, which is for signed-in users only.
+ */
+@RestController
+public class CertificateVerificationController {
+
+    private final CertificateVerificationService verificationService;
+
+    public CertificateVerificationController(CertificateVerificationService verificationService) {
+        this.verificationService = verificationService;
+    }
+
+    @GetMapping("/certificates/verify/{code}")
+    public ResponseEntity<?> verify(@PathVariable String code) {
+        // A certificate stays valid once issued, so let proxies absorb repeats of positive answers
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic();
+        return verificationService.verify(code)
+                .<ResponseEntity<?>>map(verification -> ResponseEntity.ok()
+                        .cacheControl(cacheControl)
+                        .body(Map.of("valid", true, "certificate", verification)))
+                // Not cached: a certificate issued right after a miss must verify at once
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .cacheControl(CacheControl.noStore())
+                        .body(Map.of("valid", false)));
+    }
+}
@@ -251,7 +251,7 @@ public class FeedbackController {
     private boolean hasUserAttendedEvent(Integer userId, Integer eventId) {
         return eventRepository.findEventRegistrations(eventId).stream()
                 .anyMatch(registration -> registration.getStudent().getUserId() == userId
-                        && registration.getStatus() == Registrations.RegistrationStatus.CONFIRMED);
+                        && registration.getStatus().holdsSeat());
     }
 
 }
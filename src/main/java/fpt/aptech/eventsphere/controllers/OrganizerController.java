@@ -1,12 +1,23 @@
 package fpt.aptech.eventsphere.controllers;
 
+import fpt.aptech.eventsphere.dto.EventStatisticsDTO;
 import fpt.aptech.eventsphere.dto.RegistrationDTO;
 import fpt.aptech.eventsphere.mappers.RegistrationMapper;
 import fpt.aptech.eventsphere.models.*;
+import fpt.aptech.eventsphere.services.CertificateBatchService;
+import fpt.aptech.eventsphere.services.CheckInService;
+import fpt.aptech.eventsphere.services.EventStatisticsService;
 import fpt.aptech.eventsphere.services.OrganizerService;
+import fpt.aptech.eventsphere.services.RegistrationExportService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
@@ -14,8 +25,11 @@ import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -29,12 +43,24 @@ import java.util.UUID;
 public class OrganizerController {
 
     private final OrganizerService organizerService;
+    private final EventStatisticsService eventStatisticsService;
+    private final RegistrationExportService registrationExportService;
+    private final CertificateBatchService certificateBatchService;
+    private final CheckInService checkInService;
     private final RegistrationMapper registrationMapper = new RegistrationMapper();
     private final String UPLOAD_DIR = "src/main/resources/static/images/events";
 
     @Autowired
-    public OrganizerController(OrganizerService organizerService) {
+    public OrganizerController(OrganizerService organizerService,
+                               EventStatisticsService eventStatisticsService,
+                               RegistrationExportService registrationExportService,
+                               CertificateBatchService certificateBatchService,
+                               CheckInService checkInService) {
         this.organizerService = organizerService;
+        this.eventStatisticsService = eventStatisticsService;
+        this.registrationExportService = registrationExportService;
+        this.certificateBatchService = certificateBatchService;
+        this.checkInService = checkInService;
     }
 
     @GetMapping("/index")
@@ -134,6 +160,7 @@ public class OrganizerController {
         model.addAttribute("registration", regDTOList);
         model.addAttribute("statuses", Registrations.RegistrationStatus.values());
         model.addAttribute("availableSeat", seating.getAvailableSeat());
+        model.addAttribute("stats", eventStatisticsService.getStatistics(id));
         model.addAttribute("activeTab", tab);
         if (errorMessage != null && !errorMessage.isEmpty()) {
             model.addAttribute("errorMessage", errorMessage);
@@ -144,6 +171,93 @@ public class OrganizerController {
         return "org/detail";
     }
 
+    @GetMapping("/events/{id}/statistics")
+    @ResponseBody
+    public EventStatisticsDTO eventStatistics(@PathVariable int id) {
+        requireOrganizer(id);
+        return eventStatisticsService.getStatistics(id);
+    }
+
+    // Attendee list as CSV (default) or XLSX, streamed to the client as it is read
+    @GetMapping("/events/{id}/registrations/export")
+    public void exportRegistrations(@PathVariable int id,
+                                    @RequestParam(defaultValue = "csv") String format,
+                                    HttpServletResponse response) throws IOException {
+        requireOrganizer(id);
+
+        boolean xlsx = "xlsx".equalsIgnoreCase(format);
+        response.setContentType(xlsx
+                ? "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"
+                : "text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("registrations-" + id + (xlsx ? ".xlsx" : ".csv"), StandardCharsets.UTF_8)
+                .build().toString());
+        if (xlsx) {
+            registrationExportService.writeXlsx(id, response.getOutputStream());
+        } else {
+            registrationExportService.writeCsv(id, response.getOutputStream());
+        }
+    }
+
+    // Issues certificates to all attendees and renders them in the background
+    @PostMapping("/events/{id}/certificates/batch")
+    public String startCertificateBatch(@PathVariable int id, RedirectAttributes redirectAttributes) {
+        requireOrganizer(id);
+        try {
+            certificateBatchService.start(id);
+            redirectAttributes.addFlashAttribute("successMessage", "Certificate generation started.");
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        }
+        return "redirect:/organizer/detail/" + id;
+    }
+
+    @GetMapping("/events/{id}/certificates/batch")
+    public ResponseEntity<CertificateBatchService.BatchProgress> certificateBatchProgress(@PathVariable int id) {
+        requireOrganizer(id);
+        return ResponseEntity.of(certificateBatchService.getProgress(id));
+    }
+
+    @GetMapping("/events/{id}/certificates/batch/zip")
+    public void downloadCertificateBatch(@PathVariable int id, HttpServletResponse response) throws IOException {
+        requireOrganizer(id);
+        if (certificateBatchService.getProgress(id)
+                .filter(p -> p.status() == CertificateBatchJob.JobStatus.COMPLETED).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Certificates have not been generated yet");
+        }
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("certificates-" + id + ".zip", StandardCharsets.UTF_8)
+                .build().toString());
+        certificateBatchService.writeZip(id, response.getOutputStream());
+    }
+
+    // Scanner page for the door: posts each scanned ticket to checkIn below
+    @GetMapping("/events/{id}/check-in")
+    public String checkInPage(@PathVariable int id, Model model) {
+        model.addAttribute("event", requireOrganizer(id));
+        return "org/check-in";
+    }
+
+    // Door scanners post the scanned ticket text; answered without a database read (see CheckInService)
+    @PostMapping("/events/{id}/check-in")
+    public ResponseEntity<CheckInService.ScanResult> checkIn(@PathVariable int id, @RequestParam String ticket) {
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (!checkInService.isOrganizer(id, email)) {
+            throw new AccessDeniedException("Not the organizer of event " + id);
+        }
+        return ResponseEntity.ok(checkInService.scan(id, ticket));
+    }
+
+    private Events requireOrganizer(int eventId) {
+        Events event = organizerService.findEventById(eventId);
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (event == null || !event.getOrganizer().getEmail().equals(email)) {
+            throw new AccessDeniedException("Not the organizer of event " + eventId);
+        }
+        return event;
+    }
+
     @PostMapping("/registrations/{registrationId}/confirm")
     public String confirmRegistration(@PathVariable int registrationId,
                                     @RequestParam("eventId") int eventId) {
@@ -208,7 +322,11 @@ public class OrganizerController {
         try {
             Registrations reg = organizerService.findRegistrationById(registrationId);
             organizerService.confirmRegistration(registrationId);
-            redirectAttributes.addFlashAttribute("successMessage", "Registration confirmed successfully.");
+            if (organizerService.findRegistrationById(registrationId).getStatus() == Registrations.RegistrationStatus.WAITLIST) {
+                redirectAttributes.addFlashAttribute("successMessage", "Event is full - registration added to the waitlist.");
+            } else {
+                redirectAttributes.addFlashAttribute("successMessage", "Registration confirmed successfully.");
+            }
             redirectAttributes.addFlashAttribute("errorMessage", "");
             return "redirect:/organizer/detail/" + reg.getEvent().getEventId() + "?tab=registration";
         } catch (IllegalStateException e) {
@@ -1,5 +1,6 @@
 package fpt.aptech.eventsphere.controllers;
 
+import fpt.aptech.eventsphere.dto.EventKeysetPage;
 import fpt.aptech.eventsphere.models.Bookmark;
 import fpt.aptech.eventsphere.models.Events;
 import fpt.aptech.eventsphere.models.Registrations;
@@ -7,13 +8,16 @@ import fpt.aptech.eventsphere.models.Users;
 import fpt.aptech.eventsphere.repositories.BookmarkRepository;
 import fpt.aptech.eventsphere.repositories.EventRepository;
 import fpt.aptech.eventsphere.repositories.UserRepository;
+import fpt.aptech.eventsphere.services.EventSearchService;
 import fpt.aptech.eventsphere.services.ParticipantService;
+import fpt.aptech.eventsphere.services.TicketCodes;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.User;
@@ -25,7 +29,6 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Controller
 @RequestMapping("/participant")
@@ -37,15 +40,21 @@ public class ParticipantEventController {
     private final EventRepository eventRepository;
     private final BookmarkRepository bookmarkRepository;
     private final UserRepository userRepository;
+    private final EventSearchService eventSearchService;
+    private final TicketCodes ticketCodes;
 
     public ParticipantEventController(ParticipantService participantService,
                                       EventRepository eventRepository,
                                       BookmarkRepository bookmarkRepository,
-                                      UserRepository userRepository) {
+                                      UserRepository userRepository,
+                                      EventSearchService eventSearchService,
+                                      TicketCodes ticketCodes) {
         this.participantService = participantService;
         this.eventRepository = eventRepository;
         this.bookmarkRepository = bookmarkRepository;
         this.userRepository = userRepository;
+        this.eventSearchService = eventSearchService;
+        this.ticketCodes = ticketCodes;
     }
 
     @GetMapping("/dashboard")
@@ -75,47 +84,36 @@ public class ParticipantEventController {
 
     @GetMapping("/events/list")
     public String listEvents(
-            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "before", required = false) String before,
             @RequestParam(value = "category", required = false) String category,
+            @RequestParam(value = "q", required = false) String q,
+            @RequestParam(value = "page", defaultValue = "0") int page,
             Model model) {
         logger.info("Fetching events with category: {}", category);
         try {
-            List<Events> events;
-            if (category != null && !category.isEmpty()) {
-                // If category is provided, filter by category
-                logger.debug("Fetching events for category: {}", category);
-                events = participantService.getUpcomingEventsByCategory(category);
-                logger.debug("Found {} events for category: {}", events.size(), category);
-            } else {
-                // Otherwise, get all upcoming events
-                logger.debug("Fetching all upcoming events");
-                events = participantService.getAllUpcomingEvents();
-                logger.debug("Found {} upcoming events", events.size());
+            String categoryFilter = category != null && !category.isEmpty() ? category : null;
+            model.addAttribute("category", categoryFilter);
+            model.addAttribute("categories", participantService.getUpcomingEventCategories());
+            model.addAttribute("isPast", false);
+
+            if (EventSearchService.toPrefixQuery(q) != null) {
+                // Ranked search results: offset pages, since relevance order has no stable keyset
+                Page<Events> searchPage = eventSearchService.searchUpcoming(q, categoryFilter, Math.max(page, 0), PAGE_SIZE);
+                List<Integer> ids = searchPage.getContent().stream().map(Events::getEventId).toList();
+                model.addAttribute("events", searchPage.getContent());
+                model.addAttribute("searchPage", searchPage);
+                model.addAttribute("highlights", eventSearchService.highlight(ids, q));
+                model.addAttribute("q", q);
+                return "participant/events/list";
             }
 
-            // Add pagination
-            Pageable pageable = PageRequest.of(page, PAGE_SIZE);
-            int start = (int) pageable.getOffset();
-            int end = Math.min((start + pageable.getPageSize()), events.size());
-            Page<Events> eventPage = new org.springframework.data.domain.PageImpl<>(
-                    events.subList(start, end),
-                    pageable,
-                    events.size()
-            );
-
-            // Get distinct categories for filter
-            List<String> categories = events.stream()
-                    .map(Events::getCategory)
-                    .filter(cat -> cat != null && !cat.isEmpty())
-                    .distinct()
-                    .collect(Collectors.toList());
-
-            model.addAttribute("events", eventPage);
-            model.addAttribute("currentPage", page);
-            model.addAttribute("totalPages", eventPage.getTotalPages());
-            model.addAttribute("category", category);
-            model.addAttribute("categories", categories);
-            model.addAttribute("isPast", false);
+            EventKeysetPage eventPage = participantService.getUpcomingEventsPage(
+                    categoryFilter, blankToNull(after), blankToNull(before), PAGE_SIZE);
+            logger.debug("Loaded {} upcoming events", eventPage.getContent().size());
+
+            model.addAttribute("events", eventPage.getContent());
+            model.addAttribute("eventPage", eventPage);
 
             return "participant/events/list";
 
@@ -194,14 +192,37 @@ public class ParticipantEventController {
     @PostMapping("/events/{eventId}/confirm")
     public String confirmRegistration(@PathVariable("eventId") int eventId, RedirectAttributes redirectAttributes) {
         try {
-            participantService.confirmRegistration(eventId);
-            redirectAttributes.addFlashAttribute("success", "Your registration has been confirmed!");
+            Registrations registration = participantService.confirmRegistration(eventId);
+            if (registration.getStatus() == Registrations.RegistrationStatus.WAITLIST) {
+                redirectAttributes.addFlashAttribute("success", "The event is full - you have been added to the waitlist.");
+            } else {
+                redirectAttributes.addFlashAttribute("success", "Your registration has been confirmed!");
+            }
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
         }
         return "redirect:/participant/events/" + eventId;
     }
 
+    // QR code of the signed door ticket, shown once the registration is confirmed
+    @GetMapping("/events/{eventId}/ticket")
+    public ResponseEntity<byte[]> ticket(@PathVariable("eventId") int eventId) {
+        try {
+            Registrations registration = participantService.getRegistrationForEvent(eventId);
+            if (!registration.getStatus().holdsSeat()) {
+                return ResponseEntity.notFound().build();
+            }
+            byte[] png = ticketCodes.qrPng(ticketCodes.ticketFor(registration.getRegistrationId(), eventId), 250);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.IMAGE_PNG)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(png);
+        } catch (Exception e) {
+            logger.warn("Could not create ticket for event {}: {}", eventId, e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @PostMapping("/events/{eventId}/bookmark")
     @Transactional
     public String toggleBookmark(@PathVariable("eventId") int eventId,
@@ -269,32 +290,16 @@ public class ParticipantEventController {
 
     @GetMapping("/events/past")
     public String pastEvents(
-            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "before", required = false) String before,
             Model model) {
         try {
-            List<Events> pastEvents = participantService.getAllPastEvents();
-
-            // Add pagination
-            Pageable pageable = PageRequest.of(page, PAGE_SIZE);
-            int start = (int) pageable.getOffset();
-            int end = Math.min((start + pageable.getPageSize()), pastEvents.size());
-            Page<Events> eventPage = new org.springframework.data.domain.PageImpl<>(
-                    pastEvents.subList(start, end),
-                    pageable,
-                    pastEvents.size()
-            );
-
-            // Get distinct categories for filter
-            List<String> categories = pastEvents.stream()
-                    .map(Events::getCategory)
-                    .filter(cat -> cat != null && !cat.isEmpty())
-                    .distinct()
-                    .collect(Collectors.toList());
-
-            model.addAttribute("events", eventPage);
-            model.addAttribute("currentPage", page);
-            model.addAttribute("totalPages", eventPage.getTotalPages());
-            model.addAttribute("categories", categories);
+            EventKeysetPage eventPage = participantService.getPastEventsPage(
+                    blankToNull(after), blankToNull(before), PAGE_SIZE);
+
+            model.addAttribute("events", eventPage.getContent());
+            model.addAttribute("eventPage", eventPage);
+            model.addAttribute("categories", participantService.getPastEventCategories());
             model.addAttribute("isPast", true);
 
             return "participant/events/list";
@@ -304,4 +309,8 @@ public class ParticipantEventController {
             return "error/error";
         }
     }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
 }
@@ -0,0 +1,39 @@
+package fpt.aptech.eventsphere.dto;
+
+import jakarta.mail.internet.MimeMessage;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * Outcome of a bulk send: which recipients got the mail, which did not and why,
+ * and which messages failed (keyed by instance, so callers can map them back).
+ */
+@Getter
+public class BulkSendResult {
+    private final List<String> sentRecipients = new ArrayList<>();
+    private final Map<String, String> failedRecipients = new LinkedHashMap<>();
+    private final Map<MimeMessage, Exception> failedMessages = new IdentityHashMap<>();
+
+    public void addSent(String recipient) {
+        sentRecipients.add(recipient);
+    }
+
+    public void addFailed(String recipient, String reason) {
+        failedRecipients.put(recipient, reason);
+    }
+
+    public void addFailedMessage(MimeMessage message, Exception cause) {
+        failedMessages.put(message, cause);
+    }
+
+    public void merge(BulkSendResult other) {
+        sentRecipients.addAll(other.sentRecipients);
+        failedRecipients.putAll(other.failedRecipients);
+        failedMessages.putAll(other.failedMessages);
+    }
+
+    public boolean isAllSent() {
+        return failedMessages.isEmpty();
+    }
+}
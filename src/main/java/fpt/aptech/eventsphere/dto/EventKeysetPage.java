@@ -0,0 +1,83 @@
+package fpt.aptech.eventsphere.dto;
+
+import fpt.aptech.eventsphere.models.Events;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of events from a keyset (seek) query.
+ * Cursors encode the sort key of the first/last event on the page as "date_id"; they are
+ * null when there is no page in that direction.
+ */
+@Getter
+public class EventKeysetPage {
+    private final List<Events> content;
+    private final String previousCursor;
+    private final String nextCursor;
+
+    private EventKeysetPage(List<Events> content, String previousCursor, String nextCursor) {
+        this.content = content;
+        this.previousCursor = previousCursor;
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Builds a page from rows fetched in display order, with one extra row to detect a next page.
+     */
+    public static EventKeysetPage forward(List<Events> rows, int size, boolean hasPrevious,
+                                          Function<Events, LocalDateTime> sortKey) {
+        boolean hasNext = rows.size() > size;
+        List<Events> content = hasNext ? rows.subList(0, size) : rows;
+        if (content.isEmpty()) {
+            return new EventKeysetPage(content, null, null);
+        }
+        return new EventKeysetPage(content,
+                hasPrevious ? Cursor.of(content.get(0), sortKey) : null,
+                hasNext ? Cursor.of(content.get(content.size() - 1), sortKey) : null);
+    }
+
+    /**
+     * Builds a page from rows fetched in reverse display order (seeking backwards from a cursor),
+     * with one extra row to detect a previous page.
+     */
+    public static EventKeysetPage backward(List<Events> rows, int size,
+                                           Function<Events, LocalDateTime> sortKey) {
+        boolean hasPrevious = rows.size() > size;
+        List<Events> content = new ArrayList<>(rows.subList(0, Math.min(size, rows.size())));
+        Collections.reverse(content);
+        if (content.isEmpty()) {
+            return new EventKeysetPage(content, null, null);
+        }
+        return new EventKeysetPage(content,
+                hasPrevious ? Cursor.of(content.get(0), sortKey) : null,
+                Cursor.of(content.get(content.size() - 1), sortKey));
+    }
+
+    public record Cursor(LocalDateTime date, int id) {
+        static String of(Events event, Function<Events, LocalDateTime> sortKey) {
+            return sortKey.apply(event) + "_" + event.getEventId();
+        }
+
+        public static Cursor parse(String value) {
+            int separator = value.lastIndexOf('_');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid page cursor: " + value);
+            }
+            return new Cursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Integer.parseInt(value.substring(separator + 1)));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package fpt.aptech.eventsphere.dto;
+
+import fpt.aptech.eventsphere.models.Registrations;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Registration, seating, feedback and certificate figures for one event, as shown in the
+ * organizer's event header and returned by /organizer/events/{id}/statistics.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventStatisticsDTO {
+    private int eventId;
+    // Every status is present, 0 when the event has none
+    private Map<Registrations.RegistrationStatus, Long> statusCounts = new EnumMap<>(Registrations.RegistrationStatus.class);
+    private long totalRegistrations;
+    private int totalSeats;
+    // Confirmed registrations as a percentage of total seats
+    private double fillRate;
+    private LocalDateTime firstRegistration;
+    private LocalDateTime lastRegistration;
+    private long registrationsLast24Hours;
+    // Average registrations per hour between the first and the last one
+    private double registrationsPerHour;
+    // Average over rated feedback, null when there is none
+    private Double averageRating;
+    private long feedbackCount;
+    private long certificatesIssued;
+    private LocalDateTime computedAt;
+
+    public long getCount(Registrations.RegistrationStatus status) {
+        return statusCounts.getOrDefault(status, 0L);
+    }
+}
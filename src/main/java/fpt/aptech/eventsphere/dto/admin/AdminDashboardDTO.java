@@ -47,6 +47,7 @@ public class AdminDashboardDTO {
     private BigDecimal totalRegistrations;
     private BigDecimal completedEvents;
     private BigDecimal certificatesIssued;
+    private List<CertificateDownloadsDTO> topDownloadedCertificates;
     
     // Charts Data
     private List<ChartDataDTO> userRegistrationChart;
@@ -247,6 +248,14 @@ public class AdminDashboardDTO {
         this.certificatesIssued = certificatesIssued;
     }
 
+    public List<CertificateDownloadsDTO> getTopDownloadedCertificates() {
+        return topDownloadedCertificates;
+    }
+
+    public void setTopDownloadedCertificates(List<CertificateDownloadsDTO> topDownloadedCertificates) {
+        this.topDownloadedCertificates = topDownloadedCertificates;
+    }
+
     public List<ChartDataDTO> getUserRegistrationChart() {
         return userRegistrationChart;
     }
@@ -0,0 +1,14 @@
+package fpt.aptech.eventsphere.dto.admin;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CertificateDownloadsDTO {
+    private int certificateId;
+    private String eventTitle;
+    private String recipient;
+    private long downloads;
+}
@@ -26,6 +26,8 @@ public class EventManagementDTO {
     private String organizerPhone;
     private String organizerDepartment;
     private long confirmedRegistrations;  // Number of confirmed registrations
+    private String highlightedName;  // HTML-escaped title with search matches in <mark>, null outside search
+    private String highlightedDescription;
 
     public String getStatus() {
         return status;
@@ -41,6 +41,38 @@ public class EventModerationDTO {
     private String moderationAction; // approve, reject, request_change
     private String moderationComments;
 
+    // Constructor-expression projection used by AdminEventModelRepository.findModerationPage
+    public EventModerationDTO(Integer eventModelId, Status status, LocalDateTime submitAt, LocalDateTime updatedAt,
+                              String adminComment, String organnizerComment,
+                              Integer eventId, String title, String description, String category,
+                              LocalDateTime startDate, LocalDateTime endDate, String imageUrl,
+                              String venueName, Integer organizerId, String organizerName, String organizerEmail,
+                              Integer totalSeats, Integer seatsBooked, Boolean waitlistEnabled,
+                              String reviewedByName, LocalDateTime moderationCreatedAt) {
+        this.eventModelId = eventModelId;
+        this.status = status;
+        this.submitAt = submitAt;
+        this.updatedAt = updatedAt;
+        this.adminComment = adminComment;
+        this.organnizerComment = organnizerComment;
+        this.eventId = eventId;
+        this.title = title;
+        this.description = description;
+        this.category = category;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.imageUrl = imageUrl;
+        this.venueName = venueName;
+        this.organizerId = organizerId;
+        this.organizerName = organizerName;
+        this.organizerEmail = organizerEmail;
+        this.totalSeats = totalSeats;
+        this.seatsBooked = seatsBooked;
+        this.waitlistEnabled = waitlistEnabled;
+        this.reviewedByName = reviewedByName;
+        this.moderationCreatedAt = moderationCreatedAt;
+    }
+
     public String getStatusDisplay() {
         if (status == null) return "Unknown";
         switch (status) {
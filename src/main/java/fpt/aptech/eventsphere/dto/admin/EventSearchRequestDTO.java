@@ -46,7 +46,16 @@ public class EventSearchRequestDTO {
         return StringUtils.hasText(status) && !"all".equalsIgnoreCase(status);
     }
 
+    // Best full-text match first; only meaningful with a keyword
+    public boolean isRelevanceSort() {
+        return "relevance".equalsIgnoreCase(sortBy) && hasKeyword();
+    }
+
     public Sort getSort() {
+        if (isRelevanceSort()) {
+            return Sort.unsorted();
+        }
+
         // Default sort field is startDate
         String sortField = StringUtils.hasText(sortBy) ? sortBy : DEFAULT_SORT_FIELD;
         
@@ -2,6 +2,8 @@ package fpt.aptech.eventsphere.dto.admin;
 
 import lombok.*;
 
+import java.util.Locale;
+
 @Data
 @Getter
 @Setter
@@ -22,6 +24,11 @@ public class UserSearchRequestDTO {
         return keyword != null && !keyword.trim().isEmpty();
     }
 
+    // Lower-cased LIKE pattern for the keyword, or null when there is none
+    public String keywordPattern() {
+        return hasKeyword() ? "%" + keyword.trim().toLowerCase(Locale.ROOT) + "%" : null;
+    }
+
     public boolean hasDepartment() {
         return department != null && !department.trim().isEmpty() && !"all".equals(department);
     }
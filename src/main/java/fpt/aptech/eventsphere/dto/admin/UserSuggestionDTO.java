@@ -0,0 +1,14 @@
+package fpt.aptech.eventsphere.dto.admin;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSuggestionDTO {
+    private int userId;
+    private String email;
+    private String fullName;
+    private double score;
+}
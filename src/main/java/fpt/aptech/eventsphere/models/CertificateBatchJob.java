@@ -0,0 +1,58 @@
+package fpt.aptech.eventsphere.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * An organizer-started run that issues and renders the certificates of a whole event.
+ * Rendered PDFs are kept on disk, so a job left RUNNING by a stopped app is picked up again on
+ * startup and only renders what is missing.
+ */
+@Entity
+@Table(name = "certificate_batch_jobs",
+       indexes = @Index(name = "idx_certificate_batch_job_event", columnList = "event_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CertificateBatchJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "job_id")
+    private Long id;
+
+    @Column(name = "event_id", nullable = false)
+    private int eventId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private JobStatus status = JobStatus.RUNNING;
+
+    // Certificates of the event after issuing, i.e. PDFs to render
+    @Column(name = "total", nullable = false)
+    private int total;
+
+    @Column(name = "rendered", nullable = false)
+    private int rendered;
+
+    @Column(name = "failed", nullable = false)
+    private int failed;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    public enum JobStatus {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -1,11 +1,14 @@
 package fpt.aptech.eventsphere.models;
 
+import fpt.aptech.eventsphere.services.Admin.DashboardChangeListener;
+import fpt.aptech.eventsphere.services.EventStatisticsListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "certificates")
+@EntityListeners({DashboardChangeListener.class, EventStatisticsListener.class})
+@Table(name = "certificates", indexes = @Index(name = "idx_certificates_event", columnList = "event_id"))
 @Getter
 @Setter
 @AllArgsConstructor
@@ -37,6 +40,8 @@ public class Certificates {
     @Column(name = "fee_amount", nullable = false)
     private Double feeAmount = 0.00;
     
-    @Column(name = "download_count", nullable = false)
+    // Only ever incremented in SQL by CertificateDownloadCounter; never written back from a loaded
+    // entity, which would overwrite the increments flushed since it was read
+    @Column(name = "download_count", nullable = false, updatable = false)
     private Integer downloadCount = 0;
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package fpt.aptech.eventsphere.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * One cell of the daily statistics rollup: how many facts of a metric happened on a day, for a
+ * department ('' when the user has none) and status ('' when the metric has none).
+ * <p>
+ * Rows are maintained by database triggers on users, user_details, registrations, certificates
+ * and feedback (see DataInitializer), and rebuilt nightly from those tables by DailyStatsService.
+ * Facts are attributed to the user's department at the time they were written.
+ */
+@Entity
+@Table(name = "daily_stats",
+       indexes = @Index(name = "idx_daily_stats_metric_day", columnList = "metric, stat_day"))
+@IdClass(DailyStat.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyStat {
+
+    @Id
+    @Column(name = "stat_day")
+    private LocalDate day;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "metric", length = 20)
+    private Metric metric;
+
+    @Id
+    @Column(name = "department", length = 100)
+    private String department;
+
+    // Registration status; RATED or PENDING for feedback
+    @Id
+    @Column(name = "status", length = 20)
+    private String status;
+
+    @Column(name = "item_count", nullable = false)
+    private long count;
+
+    // Sum of feedback ratings, 0 for the other metrics
+    @Column(name = "rating_sum", nullable = false)
+    private long ratingSum;
+
+    public enum Metric {
+        USERS_CREATED,
+        REGISTRATIONS,
+        CERTIFICATES_ISSUED,
+        FEEDBACK
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private Metric metric;
+        private String department;
+        private String status;
+    }
+}
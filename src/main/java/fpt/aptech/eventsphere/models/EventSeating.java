@@ -6,9 +6,12 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 
 @Entity
 @Table(name = "event_seating")
+// seats_booked is maintained by SeatAllocationService, so entity saves must only write changed columns
+@DynamicUpdate
 @Getter
 @Setter
 @AllArgsConstructor
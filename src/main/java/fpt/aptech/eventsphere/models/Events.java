@@ -18,7 +18,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "events")
+@Table(name = "events",
+       indexes = {
+               @Index(name = "idx_events_start_id", columnList = "startDate, event_id"),
+               @Index(name = "idx_events_end_id", columnList = "endDate, event_id")
+       })
 @Getter
 @Setter
 @AllArgsConstructor
@@ -63,6 +67,9 @@ public class Events {
     //to send email before event happen
     @Column(name = "reminder_sent")
     private Boolean reminderSent = false;
+    // Smallest reminder offset (minutes before start) already sent; null if none yet
+    @Column(name = "last_reminder_minutes")
+    private Integer lastReminderMinutes;
     // Many-to-one with Users (organizer)
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "organizer_id", nullable = false)
@@ -1,12 +1,15 @@
 package fpt.aptech.eventsphere.models;
 
+import fpt.aptech.eventsphere.services.Admin.DashboardChangeListener;
+import fpt.aptech.eventsphere.services.EventStatisticsListener;
 import fpt.aptech.eventsphere.validations.NoOffensiveLanguage;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "feedback")
+@EntityListeners({DashboardChangeListener.class, EventStatisticsListener.class})
+@Table(name = "feedback", indexes = @Index(name = "idx_feedback_event", columnList = "event_id"))
 @Getter
 @Setter
 @AllArgsConstructor
@@ -1,12 +1,16 @@
 package fpt.aptech.eventsphere.models;
 
+import fpt.aptech.eventsphere.services.EventStatisticsListener;
+import fpt.aptech.eventsphere.services.RegistrationStatusListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "registrations")
+@EntityListeners({EventStatisticsListener.class, RegistrationStatusListener.class})
+@Table(name = "registrations",
+       indexes = @Index(name = "idx_registrations_event_status", columnList = "event_id, status"))
 @Getter
 @Setter
 @AllArgsConstructor
@@ -39,6 +43,12 @@ public class Registrations {
         PENDING,
         CONFIRMED,
         CANCELLED,
-        WAITLIST
+        WAITLIST,
+        // Checked in at the door (see CheckInService); still holds its seat
+        ATTENDED;
+
+        public boolean holdsSeat() {
+            return this == CONFIRMED || this == ATTENDED;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package fpt.aptech.eventsphere.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * One reminder (event, offset before start) to be sent by exactly one app node.
+ * A node claims due rows with SKIP LOCKED and holds them until lease_expires_at; if it dies
+ * before marking them SENT, another node picks them up once the lease has expired.
+ */
+@Entity
+@Table(name = "reminder_jobs",
+       uniqueConstraints = @UniqueConstraint(name = "uk_reminder_job_event_offset", columnNames = {"event_id", "offset_minutes"}),
+       indexes = @Index(name = "idx_reminder_job_due", columnList = "status, fire_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReminderJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "job_id")
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "event_id", nullable = false, insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Events event;
+
+    @Column(name = "event_id", nullable = false)
+    private int eventId;
+
+    @Column(name = "offset_minutes", nullable = false)
+    private int offsetMinutes;
+
+    @Column(name = "fire_at", nullable = false)
+    private LocalDateTime fireAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private JobStatus status = JobStatus.PENDING;
+
+    @Column(name = "lease_owner", length = 100)
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    // Set after a failed attempt: the job isn't claimed again before then (fire_at keeps the
+    // original time, which ReminderService uses to spot events that moved)
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    public enum JobStatus {
+        PENDING,
+        CLAIMED,
+        SENT,
+        FAILED
+    }
+}
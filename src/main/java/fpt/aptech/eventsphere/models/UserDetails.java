@@ -1,9 +1,11 @@
 package fpt.aptech.eventsphere.models;
+import fpt.aptech.eventsphere.services.Admin.DashboardChangeListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
 
 @Entity
+@EntityListeners(DashboardChangeListener.class)
 @Table(name = "user_details")
 @Getter
 @Setter
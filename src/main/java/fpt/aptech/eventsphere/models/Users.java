@@ -1,5 +1,6 @@
 package fpt.aptech.eventsphere.models;
 
+import fpt.aptech.eventsphere.services.Admin.DashboardChangeListener;
 import jakarta.persistence.*;
 import lombok.*;
 import jakarta.validation.constraints.*;
@@ -8,6 +9,7 @@ import java.time.LocalDateTime;
 import java.util.*;
 
 @Entity
+@EntityListeners(DashboardChangeListener.class)
 @Table(name = "users")
 @Getter
 @Setter
@@ -0,0 +1,44 @@
+package fpt.aptech.eventsphere.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+// FIFO position of a WAITLIST registration; entry_id order is queue order
+@Entity
+@Table(name = "waitlist_entries",
+       indexes = @Index(name = "idx_waitlist_event_entry", columnList = "event_id, entry_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "entry_id")
+    private int entryId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "event_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Events event;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "registration_id", nullable = false, unique = true)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Registrations registration;
+
+    @CreationTimestamp
+    @Column(name = "queued_at", nullable = false, updatable = false)
+    private LocalDateTime queuedAt;
+
+    public WaitlistEntry(Events event, Registrations registration) {
+        this.event = event;
+        this.registration = registration;
+    }
+}
@@ -0,0 +1,23 @@
+package fpt.aptech.eventsphere.repositories;
+
+import fpt.aptech.eventsphere.models.CertificateBatchJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CertificateBatchJobRepository extends JpaRepository<CertificateBatchJob, Long> {
+
+    Optional<CertificateBatchJob> findFirstByEventIdOrderByIdDesc(int eventId);
+
+    List<CertificateBatchJob> findByStatus(CertificateBatchJob.JobStatus status);
+
+    @Modifying
+    @Query("UPDATE CertificateBatchJob j SET j.rendered = :rendered, j.failed = :failed WHERE j.id = :id")
+    int updateProgress(@Param("id") long id, @Param("rendered") int rendered, @Param("failed") int failed);
+}
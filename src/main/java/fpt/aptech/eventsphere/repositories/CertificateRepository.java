@@ -3,11 +3,13 @@ package fpt.aptech.eventsphere.repositories;
 import fpt.aptech.eventsphere.models.Certificates;
 import fpt.aptech.eventsphere.models.Events;
 import fpt.aptech.eventsphere.models.Users;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -93,4 +95,45 @@ public interface CertificateRepository extends JpaRepository<Certificates, Integ
     // Find certificates issued after a specific date
     @Query("SELECT c FROM Certificates c WHERE c.issuedOn >= :startDate")
     List<Certificates> findIssuedAfter(@Param("startDate") LocalDateTime startDate);
+
+    // Issues a certificate to every attendee of the event that doesn't have one yet: those with an
+    // attendance record and those whose registration was marked ATTENDED, the status the
+    // participant's own certificate list goes by. Safe to run again: existing certificates are skipped.
+    @Modifying
+    @Query(value = "INSERT INTO certificates (event_id, student_id, certificate_url, issued_on, is_paid, fee_amount, download_count) " +
+            "SELECT a.event_id, a.student_id, 'generated-on-download', :issuedOn, :paid, 0, 0 " +
+            "FROM (SELECT event_id, student_id FROM attendance WHERE event_id = :eventId AND attended = true " +
+            "UNION SELECT event_id, student_id FROM registrations WHERE event_id = :eventId AND status = 'ATTENDED') a " +
+            "WHERE NOT EXISTS (SELECT 1 FROM certificates c WHERE c.event_id = a.event_id AND c.student_id = a.student_id) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int issueForAttendees(@Param("eventId") int eventId,
+                          @Param("issuedOn") LocalDateTime issuedOn,
+                          @Param("paid") boolean paid);
+
+    @Query("SELECT c.certificateId FROM Certificates c WHERE c.event.eventId = :eventId ORDER BY c.certificateId")
+    List<Integer> findIdsByEventId(@Param("eventId") int eventId);
+
+    // Everything the PDF needs, in one query
+    @Query("SELECT c FROM Certificates c JOIN FETCH c.student JOIN FETCH c.event e " +
+            "LEFT JOIN FETCH e.venue LEFT JOIN FETCH e.organizer " +
+            "WHERE c.certificateId IN :ids")
+    List<Certificates> findForRendering(@Param("ids") List<Integer> ids);
+
+    // Verification index rows: [certificateId, eventId, studentId, email, eventTitle, eventStartDate, issuedOn]
+    @Query("SELECT c.certificateId, e.eventId, s.userId, s.email, e.title, e.startDate, c.issuedOn " +
+            "FROM Certificates c JOIN c.event e JOIN c.student s " +
+            "WHERE c.certificateId > :afterId ORDER BY c.certificateId")
+    List<Object[]> findVerificationRows(@Param("afterId") int afterId);
+
+    // [certificateId, eventTitle, studentEmail, downloadCount], most downloaded first
+    @Query("SELECT c.certificateId, e.title, s.email, c.downloadCount " +
+            "FROM Certificates c JOIN c.event e JOIN c.student s " +
+            "WHERE c.downloadCount > 0 ORDER BY c.downloadCount DESC, c.certificateId")
+    List<Object[]> findTopDownloaded(Pageable pageable);
+
+    // Points the certificate at its stored PDF; a bulk update so the change listeners aren't triggered
+    @Modifying
+    @Transactional
+    @Query("UPDATE Certificates c SET c.certificateUrl = :url WHERE c.certificateId = :certificateId")
+    int updateCertificateUrl(@Param("certificateId") int certificateId, @Param("url") String url);
 }
@@ -0,0 +1,38 @@
+package fpt.aptech.eventsphere.repositories;
+
+import fpt.aptech.eventsphere.models.DailyStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyStatRepository extends JpaRepository<DailyStat, DailyStat.Key> {
+
+    // Projection: [day, count], one row per day that has any
+    @Query("SELECT s.day, SUM(s.count) FROM DailyStat s WHERE s.metric = :metric AND s.day >= :from " +
+            "GROUP BY s.day ORDER BY s.day")
+    List<Object[]> sumPerDay(@Param("metric") DailyStat.Metric metric, @Param("from") LocalDate from);
+
+    @Query("SELECT COALESCE(SUM(s.count), 0) FROM DailyStat s WHERE s.metric = :metric AND s.day >= :from")
+    long sumSince(@Param("metric") DailyStat.Metric metric, @Param("from") LocalDate from);
+
+    @Query("SELECT COALESCE(SUM(s.count), 0) FROM DailyStat s WHERE s.metric = :metric")
+    long sumAll(@Param("metric") DailyStat.Metric metric);
+
+    // Projection: [ratingSum, count] over rated feedback
+    @Query("SELECT COALESCE(SUM(s.ratingSum), 0), COALESCE(SUM(s.count), 0) FROM DailyStat s " +
+            "WHERE s.metric = fpt.aptech.eventsphere.models.DailyStat.Metric.FEEDBACK AND s.status = 'RATED'")
+    List<Object[]> sumRatings();
+
+    // Per-department totals, leaving out users without a department, cancelled registrations and
+    // unrated feedback. Projection: [department, metric, count, ratingSum]
+    @Query("SELECT s.department, s.metric, SUM(s.count), SUM(s.ratingSum) FROM DailyStat s " +
+            "WHERE s.department <> '' AND s.status <> 'CANCELLED' " +
+            "AND (s.metric <> fpt.aptech.eventsphere.models.DailyStat.Metric.FEEDBACK OR s.status = 'RATED') " +
+            "GROUP BY s.department, s.metric")
+    List<Object[]> sumPerDepartment();
+}
@@ -2,21 +2,20 @@ package fpt.aptech.eventsphere.repositories;
 
 import fpt.aptech.eventsphere.models.Events;
 import fpt.aptech.eventsphere.models.Registrations;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface EventRepository extends JpaRepository<Events, Integer> {
-    Logger logger = LoggerFactory.getLogger(EventRepository.class);
 
     @Query("select e from Events e join e.organizer o join o.roles r where o.email = :email and r.roleId = 2")
     Page<Events> findEventsByOrganizer(@Param("email") String email, Pageable pageable);
@@ -27,25 +26,94 @@ public interface EventRepository extends JpaRepository<Events, Integer> {
     @Query("select e from Events e where e.venue.venueId = :id")
     Page<Events> findEventsByVenueId(@Param("id") int id, Pageable pageable);
 
-    @Query("SELECT e FROM Events e WHERE e.startDate >= CURRENT_DATE ORDER BY e.startDate")
-    default List<Events> findAllUpcomingEvents() {
-        List<Events> events = _findAllUpcomingEvents();
-        logger.info("Found {} upcoming events", events.size());
-        return events;
-    }
-
-    @Query("SELECT e FROM Events e WHERE e.startDate >= CURRENT_DATE ORDER BY e.startDate")
-    List<Events> _findAllUpcomingEvents();
-
-    @Query("SELECT e FROM Events e WHERE e.endDate < CURRENT_DATE ORDER BY e.endDate DESC")
-    default List<Events> findAllPastEvents() {
-        List<Events> events = _findAllPastEvents();
-        logger.info("Found {} past events", events.size());
-        return events;
-    }
-
-    @Query("SELECT e FROM Events e WHERE e.endDate < CURRENT_DATE ORDER BY e.endDate DESC")
-    List<Events> _findAllPastEvents();
+    // Keyset pages of upcoming events ordered by (startDate, eventId); pass PageRequest.of(0, size + 1)
+    @Query("SELECT e FROM Events e LEFT JOIN FETCH e.venue LEFT JOIN FETCH e.eventSeating " +
+            "WHERE e.startDate >= :from AND (:category IS NULL OR e.category = :category) " +
+            "ORDER BY e.startDate ASC, e.eventId ASC")
+    List<Events> findUpcomingPage(@Param("from") LocalDateTime from,
+                                  @Param("category") String category,
+                                  Pageable pageable);
+
+    @Query("SELECT e FROM Events e LEFT JOIN FETCH e.venue LEFT JOIN FETCH e.eventSeating " +
+            "WHERE e.startDate >= :from AND (:category IS NULL OR e.category = :category) " +
+            "AND (e.startDate > :afterDate OR (e.startDate = :afterDate AND e.eventId > :afterId)) " +
+            "ORDER BY e.startDate ASC, e.eventId ASC")
+    List<Events> findUpcomingPageAfter(@Param("from") LocalDateTime from,
+                                       @Param("category") String category,
+                                       @Param("afterDate") LocalDateTime afterDate,
+                                       @Param("afterId") int afterId,
+                                       Pageable pageable);
+
+    // Seeks backwards, so rows come back in reverse display order
+    @Query("SELECT e FROM Events e LEFT JOIN FETCH e.venue LEFT JOIN FETCH e.eventSeating " +
+            "WHERE e.startDate >= :from AND (:category IS NULL OR e.category = :category) " +
+            "AND (e.startDate < :beforeDate OR (e.startDate = :beforeDate AND e.eventId < :beforeId)) " +
+            "ORDER BY e.startDate DESC, e.eventId DESC")
+    List<Events> findUpcomingPageBefore(@Param("from") LocalDateTime from,
+                                        @Param("category") String category,
+                                        @Param("beforeDate") LocalDateTime beforeDate,
+                                        @Param("beforeId") int beforeId,
+                                        Pageable pageable);
+
+    @Query("SELECT DISTINCT e.category FROM Events e " +
+            "WHERE e.startDate >= :from AND e.category IS NOT NULL AND e.category <> '' ORDER BY e.category")
+    List<String> findUpcomingCategories(@Param("from") LocalDateTime from);
+
+    // Categories of the events listed by findPastPage
+    @Query("SELECT DISTINCT e.category FROM Events e " +
+            "WHERE e.endDate < :before AND e.category IS NOT NULL AND e.category <> '' ORDER BY e.category")
+    List<String> findPastCategories(@Param("before") LocalDateTime before);
+
+    @Query("SELECT o.email FROM Events e JOIN e.organizer o WHERE e.eventId = :id")
+    String findOrganizerEmail(@Param("id") int eventId);
+
+    // Full-text search over upcoming events, best match first; query is a to_tsquery string from
+    // EventSearchService. event_matches / event_search_rank are SQL functions created by DataInitializer.
+    @Query(value = "SELECT e FROM Events e LEFT JOIN FETCH e.venue LEFT JOIN FETCH e.eventSeating " +
+            "WHERE e.startDate >= :from AND (:category IS NULL OR e.category = :category) " +
+            "AND function('event_matches', e.title, e.category, e.description, :query) = true " +
+            "ORDER BY function('event_search_rank', e.title, e.category, e.description, :query) DESC, " +
+            "e.startDate ASC, e.eventId ASC",
+            countQuery = "SELECT COUNT(e) FROM Events e " +
+                    "WHERE e.startDate >= :from AND (:category IS NULL OR e.category = :category) " +
+                    "AND function('event_matches', e.title, e.category, e.description, :query) = true")
+    Page<Events> searchUpcoming(@Param("from") LocalDateTime from,
+                                @Param("category") String category,
+                                @Param("query") String query,
+                                Pageable pageable);
+
+    // Projection: [eventId, highlighted title, highlighted description fragment]
+    @Query(value = "SELECT e.event_id, " +
+            "ts_headline('simple', e.title, to_tsquery('simple', :query), :titleOptions), " +
+            "ts_headline('simple', COALESCE(e.description, ''), to_tsquery('simple', :query), :snippetOptions) " +
+            "FROM events e WHERE e.event_id IN (:ids)", nativeQuery = true)
+    List<Object[]> findSearchHighlights(@Param("ids") Collection<Integer> ids,
+                                        @Param("query") String query,
+                                        @Param("titleOptions") String titleOptions,
+                                        @Param("snippetOptions") String snippetOptions);
+
+    // Keyset pages of past events ordered by (endDate DESC, eventId DESC)
+    @Query("SELECT e FROM Events e LEFT JOIN FETCH e.venue LEFT JOIN FETCH e.eventSeating " +
+            "WHERE e.endDate < :before ORDER BY e.endDate DESC, e.eventId DESC")
+    List<Events> findPastPage(@Param("before") LocalDateTime before, Pageable pageable);
+
+    @Query("SELECT e FROM Events e LEFT JOIN FETCH e.venue LEFT JOIN FETCH e.eventSeating " +
+            "WHERE e.endDate < :before " +
+            "AND (e.endDate < :afterDate OR (e.endDate = :afterDate AND e.eventId < :afterId)) " +
+            "ORDER BY e.endDate DESC, e.eventId DESC")
+    List<Events> findPastPageAfter(@Param("before") LocalDateTime before,
+                                   @Param("afterDate") LocalDateTime afterDate,
+                                   @Param("afterId") int afterId,
+                                   Pageable pageable);
+
+    @Query("SELECT e FROM Events e LEFT JOIN FETCH e.venue LEFT JOIN FETCH e.eventSeating " +
+            "WHERE e.endDate < :before " +
+            "AND (e.endDate > :beforeDate OR (e.endDate = :beforeDate AND e.eventId > :beforeId)) " +
+            "ORDER BY e.endDate ASC, e.eventId ASC")
+    List<Events> findPastPageBefore(@Param("before") LocalDateTime before,
+                                    @Param("beforeDate") LocalDateTime beforeDate,
+                                    @Param("beforeId") int beforeId,
+                                    Pageable pageable);
 
     @Query("SELECT DISTINCT e FROM Events e " +
             "JOIN Registrations r ON e.eventId = r.event.eventId " +
@@ -57,9 +125,6 @@ public interface EventRepository extends JpaRepository<Events, Integer> {
            "WHERE r.event.eventId = :eventId AND r.student.userId = :userId")
     boolean existsByEventIdAndUserId(@Param("eventId") Integer eventId, @Param("userId") Integer userId);
 
-    @Query("SELECT e FROM Events e WHERE e.startDate >= CURRENT_DATE AND e.category = :category ORDER BY e.startDate")
-    List<Events> findUpcomingEventsByCategory(@Param("category") String category);
-
     @Query("SELECT DISTINCT e FROM Events e " +
             "JOIN FETCH e.organizer o " +
             "LEFT JOIN FETCH e.venue v " +
@@ -115,7 +180,24 @@ public interface EventRepository extends JpaRepository<Events, Integer> {
     @Query("SELECT r FROM Registrations r WHERE r.registrationId = :registrationId")
     Registrations findRegistrationById(@Param("registrationId") int registrationId);
 
-    @Query("SELECT e FROM Events e WHERE e.startDate BETWEEN :now AND :limit AND e.reminderSent = false")
-    List<Events> findEventsStartingSoon(@Param("now") LocalDateTime now,
-                                        @Param("limit") LocalDateTime limit);
+    // Projection: [eventId, startDate, lastReminderMinutes]
+    @Query("SELECT e.eventId, e.startDate, e.lastReminderMinutes FROM Events e " +
+            "WHERE e.startDate > :now AND e.startDate <= :until AND e.reminderSent = false " +
+            "AND e.status <> :excluded")
+    List<Object[]> findReminderCandidates(@Param("now") LocalDateTime now,
+                                          @Param("until") LocalDateTime until,
+                                          @Param("excluded") Events.EventStatus excluded);
+
+    // Projection: [eventId, title, startDate, venueName, lastReminderMinutes]
+    @Query("SELECT e.eventId, e.title, e.startDate, v.name, e.lastReminderMinutes FROM Events e " +
+            "LEFT JOIN e.venue v WHERE e.eventId IN :ids")
+    List<Object[]> findReminderDetails(@Param("ids") Collection<Integer> ids);
+
+    // Records that the reminder at offsetMinutes went out; skips events that already had an equal or later one
+    @Modifying
+    @Query("UPDATE Events e SET e.lastReminderMinutes = :offsetMinutes, e.reminderSent = :finalReminder " +
+            "WHERE e.eventId IN :ids AND (e.lastReminderMinutes IS NULL OR e.lastReminderMinutes > :offsetMinutes)")
+    int markRemindersSent(@Param("ids") Collection<Integer> ids,
+                          @Param("offsetMinutes") int offsetMinutes,
+                          @Param("finalReminder") boolean finalReminder);
 }
@@ -2,6 +2,7 @@ package fpt.aptech.eventsphere.repositories;
 
 import fpt.aptech.eventsphere.models.EventSeating;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -10,4 +11,25 @@ import org.springframework.stereotype.Repository;
 public interface EventSeatingRepository extends JpaRepository<EventSeating, Integer> {
     @Query("select es from EventSeating es where es.event.eventId = :id")
     EventSeating findByEventId(@Param("id") int eventId);
+
+    // Books seats only if capacity allows; returns 0 when the event is full
+    @Modifying
+    @Query("UPDATE EventSeating es SET es.seatsBooked = es.seatsBooked + :seats " +
+            "WHERE es.eventId = :id AND es.seatsBooked + :seats <= es.totalSeats")
+    int incrementSeatsBooked(@Param("id") int eventId, @Param("seats") int seats);
+
+    // Frees seats only if that does not take seats_booked below zero
+    @Modifying
+    @Query("UPDATE EventSeating es SET es.seatsBooked = es.seatsBooked - :seats " +
+            "WHERE es.eventId = :id AND es.seatsBooked - :seats >= 0")
+    int decrementSeatsBooked(@Param("id") int eventId, @Param("seats") int seats);
+
+    // Recomputes seats_booked from the seat-holding registrations of every event; returns the rows corrected
+    @Modifying
+    @Query(value = "UPDATE event_seating es SET seats_booked = c.booked " +
+            "FROM (SELECT s.event_id, (SELECT COUNT(*) FROM registrations r " +
+            "WHERE r.event_id = s.event_id AND r.status IN ('CONFIRMED', 'ATTENDED')) AS booked " +
+            "FROM event_seating s) c " +
+            "WHERE es.event_id = c.event_id AND es.seats_booked <> c.booked", nativeQuery = true)
+    int reconcileSeatsBooked();
 }
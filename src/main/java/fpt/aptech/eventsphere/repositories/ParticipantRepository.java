@@ -17,7 +17,7 @@ public interface ParticipantRepository extends JpaRepository<Users, Integer> {
     
     @Query("SELECT e FROM Events e JOIN Registrations r ON e.eventId = r.event.eventId " +
            "WHERE r.student.userId = :userId AND e.startDate >= CURRENT_DATE " +
-           "AND (r.status = 'CONFIRMED' OR r.status = 'PENDING') " +
+           "AND r.status IN ('CONFIRMED', 'ATTENDED', 'PENDING') " +
            "ORDER BY e.startDate")
     List<Events> findUpcomingRegisteredEvents(@Param("userId") Integer userId);
     
@@ -37,7 +37,7 @@ public interface ParticipantRepository extends JpaRepository<Users, Integer> {
     @Query("SELECT r FROM Registrations r WHERE r.event.eventId = :eventId AND r.student.userId = :userId")
     Optional<Registrations> findRegistration(@Param("eventId") Integer eventId, @Param("userId") Integer userId);
     
-    @Query("SELECT COUNT(r) FROM Registrations r WHERE r.event.eventId = :eventId AND r.status = 'CONFIRMED'")
+    @Query("SELECT COUNT(r) FROM Registrations r WHERE r.event.eventId = :eventId AND r.status IN ('CONFIRMED', 'ATTENDED')")
     int countConfirmedRegistrations(@Param("eventId") Integer eventId);
     
     @Query("SELECT COUNT(r) FROM Registrations r WHERE r.event.eventId = :eventId")
@@ -12,14 +12,14 @@ import org.springframework.stereotype.Repository;
 public interface ProfileRepository extends JpaRepository<Users, Integer> {
     Logger logger = LoggerFactory.getLogger(ProfileRepository.class);
     
-    @Query("SELECT COUNT(r) FROM Registrations r WHERE r.student.userId = :userId AND r.status = 'CONFIRMED'")
+    @Query("SELECT COUNT(r) FROM Registrations r WHERE r.student.userId = :userId AND r.status IN ('CONFIRMED', 'ATTENDED')")
     default long countAttendedEvents(@Param("userId") int userId) {
         long count = _countAttendedEvents(userId);
         logger.info("Found {} attended events for user ID: {}", count, userId);
         return count;
     }
     
-    @Query("SELECT COUNT(r) FROM Registrations r WHERE r.student.userId = :userId AND r.status = 'CONFIRMED'")
+    @Query("SELECT COUNT(r) FROM Registrations r WHERE r.student.userId = :userId AND r.status IN ('CONFIRMED', 'ATTENDED')")
     long _countAttendedEvents(@Param("userId") int userId);
     
     @Query("SELECT COUNT(r) FROM Registrations r WHERE r.student.userId = :userId")
@@ -1,9 +1,73 @@
 package fpt.aptech.eventsphere.repositories;
 
 import fpt.aptech.eventsphere.models.Registrations;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface RegistrationRepository extends JpaRepository<Registrations, Integer> {
+
+    // Moves a registration to a new status only if it is still in the expected one
+    @Modifying
+    @Query("UPDATE Registrations r SET r.status = :newStatus " +
+            "WHERE r.registrationId = :id AND r.status = :expected")
+    int updateStatusIfCurrent(@Param("id") int registrationId,
+                              @Param("expected") Registrations.RegistrationStatus expected,
+                              @Param("newStatus") Registrations.RegistrationStatus newStatus);
+
+    // Registrations of the event already checked in at the door
+    @Query("SELECT r.registrationId FROM Registrations r " +
+            "WHERE r.event.eventId = :eventId AND r.status = 'ATTENDED'")
+    List<Integer> findAttendedIds(@Param("eventId") int eventId);
+
+    // Registrations whose tickets must not get in: cancelled, waitlisted or not yet confirmed
+    @Query("SELECT r.registrationId FROM Registrations r " +
+            "WHERE r.event.eventId = :eventId AND r.status NOT IN ('CONFIRMED', 'ATTENDED')")
+    List<Integer> findIdsWithoutSeat(@Param("eventId") int eventId);
+
+    // Projection: [eventId, email] for every registration in the given status
+    @Query("SELECT r.event.eventId, s.email FROM Registrations r JOIN r.student s " +
+            "WHERE r.event.eventId IN :eventIds AND r.status = :status")
+    List<Object[]> findEmailsByEventIds(@Param("eventIds") Collection<Integer> eventIds,
+                                        @Param("status") Registrations.RegistrationStatus status);
+
+    // One row per registration status of the event (a single row with a null status if it has
+    // none); the seating, feedback and certificate figures repeat on every row.
+    // Projection: [status, count, firstRegisteredOn, lastRegisteredOn, countSince,
+    //              totalSeats, averageRating, feedbackCount, certificateCount]
+    @Query("SELECT r.status, COUNT(r), MIN(r.registeredOn), MAX(r.registeredOn), " +
+            "SUM(CASE WHEN r.registeredOn >= :since THEN 1 ELSE 0 END), " +
+            "(SELECT s.totalSeats FROM EventSeating s WHERE s.eventId = :eventId), " +
+            "(SELECT AVG(f.rating) FROM Feedback f WHERE f.event.eventId = :eventId AND f.rating > 0), " +
+            "(SELECT COUNT(f) FROM Feedback f WHERE f.event.eventId = :eventId), " +
+            "(SELECT COUNT(c) FROM Certificates c WHERE c.event.eventId = :eventId) " +
+            "FROM Events e LEFT JOIN Registrations r ON r.event = e " +
+            "WHERE e.eventId = :eventId " +
+            "GROUP BY r.status")
+    List<Object[]> aggregateEventStatistics(@Param("eventId") int eventId,
+                                            @Param("since") LocalDateTime since);
+
+    // Attendee export rows, read through a server-side cursor so only one fetch batch is in memory.
+    // Must be consumed inside a transaction. Projection: [registrationId, registeredOn, status,
+    //              email, fullName, phone, department, enrollmentNo]
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r.registrationId, r.registeredOn, r.status, s.email, d.fullName, d.phone, d.department, d.enrollmentNo " +
+            "FROM Registrations r JOIN r.student s LEFT JOIN s.userDetails d " +
+            "WHERE r.event.eventId = :eventId " +
+            "ORDER BY r.registrationId")
+    Stream<Object[]> streamExportRows(@Param("eventId") int eventId);
 }
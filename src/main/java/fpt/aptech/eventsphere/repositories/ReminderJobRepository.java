@@ -0,0 +1,49 @@
+package fpt.aptech.eventsphere.repositories;
+
+import fpt.aptech.eventsphere.models.ReminderJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReminderJobRepository extends JpaRepository<ReminderJob, Long> {
+
+    // Creates the job, or moves it to a new fire time if the event's start date changed.
+    // A sent job is re-armed only when its fire time moves, i.e. the event was rescheduled;
+    // ReminderService doesn't ask for offsets the event has already had.
+    @Modifying
+    @Query(value = "INSERT INTO reminder_jobs (event_id, offset_minutes, fire_at, status, attempts) " +
+            "VALUES (:eventId, :offsetMinutes, :fireAt, 'PENDING', 0) " +
+            "ON CONFLICT (event_id, offset_minutes) DO UPDATE " +
+            "SET fire_at = EXCLUDED.fire_at, status = 'PENDING', attempts = 0, " +
+            "lease_owner = NULL, lease_expires_at = NULL, next_attempt_at = NULL, last_error = NULL, sent_at = NULL " +
+            "WHERE reminder_jobs.fire_at <> EXCLUDED.fire_at",
+            nativeQuery = true)
+    int upsert(@Param("eventId") int eventId,
+               @Param("offsetMinutes") int offsetMinutes,
+               @Param("fireAt") LocalDateTime fireAt);
+
+    // Due jobs, including CLAIMED ones whose lease expired (node died mid-send), but not failed
+    // ones still backing off. SKIP LOCKED partitions the work between app nodes without blocking.
+    @Query(value = "SELECT * FROM reminder_jobs " +
+            "WHERE fire_at <= :now AND (next_attempt_at IS NULL OR next_attempt_at <= :now) " +
+            "AND (status = 'PENDING' OR (status = 'CLAIMED' AND lease_expires_at < :now)) " +
+            "ORDER BY fire_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<ReminderJob> lockDueJobs(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Only succeeds for jobs this node still holds the lease on
+    @Modifying
+    @Query("UPDATE ReminderJob j SET j.status = 'SENT', j.sentAt = :sentAt, j.lastError = null " +
+            "WHERE j.id IN :ids AND j.status = 'CLAIMED' AND j.leaseOwner = :owner")
+    int markSent(@Param("ids") Collection<Long> ids,
+                 @Param("owner") String owner,
+                 @Param("sentAt") LocalDateTime sentAt);
+
+    long countByStatus(ReminderJob.JobStatus status);
+}
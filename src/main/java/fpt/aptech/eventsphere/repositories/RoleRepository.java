@@ -1,6 +1,10 @@
 package fpt.aptech.eventsphere.repositories;
 
+import fpt.aptech.eventsphere.configs.CacheConfig;
 import fpt.aptech.eventsphere.models.Roles;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -10,8 +14,33 @@ import java.util.List;
 @Repository
 public interface RoleRepository extends JpaRepository<Roles, Integer> {
 
+    // Misses aren't cached, so a role created right after a failed lookup is found at once
+    @Cacheable(cacheNames = CacheConfig.ROLES, unless = "#result == null")
     Optional<Roles> findByRoleName(String roleName);
 
+    // Role writes go through save, saveAll or delete, which evict the role caches;
+    // the other JpaRepository write methods are not used for roles
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.ROLES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.ROLE_NAMES, allEntries = true)
+    })
+    <S extends Roles> S save(S role);
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.ROLES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.ROLE_NAMES, allEntries = true)
+    })
+    <S extends Roles> List<S> saveAll(Iterable<S> roles);
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.ROLES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.ROLE_NAMES, allEntries = true)
+    })
+    void delete(Roles role);
+
     boolean existsByRoleName(String roleName);
 
     List<Roles> findByRoleNameIn(List<String> roleNames);
@@ -0,0 +1,28 @@
+package fpt.aptech.eventsphere.repositories;
+
+import fpt.aptech.eventsphere.models.WaitlistEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Integer> {
+
+    // entryId, registrationId, student email - in queue order
+    @Query("SELECT w.entryId, r.registrationId, s.email FROM WaitlistEntry w " +
+            "JOIN w.registration r JOIN r.student s " +
+            "WHERE w.event.eventId = :eventId ORDER BY w.entryId")
+    List<Object[]> findQueueByEventId(@Param("eventId") int eventId);
+
+    @Modifying
+    @Query("DELETE FROM WaitlistEntry w WHERE w.entryId = :entryId")
+    int deleteByEntryId(@Param("entryId") int entryId);
+
+    @Modifying
+    @Query("DELETE FROM WaitlistEntry w WHERE w.registration.registrationId = :registrationId")
+    int deleteByRegistrationId(@Param("registrationId") int registrationId);
+}
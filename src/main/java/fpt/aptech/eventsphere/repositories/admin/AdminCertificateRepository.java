@@ -6,7 +6,6 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Repository
@@ -14,9 +13,6 @@ public interface AdminCertificateRepository extends JpaRepository<Certificates,
     //
     long count();
 
-    @Query("SELECT COUNT(c) FROM Certificates c WHERE DATE(c.issuedOn) = :today")
-    long countByIssuedToday(@Param("today") LocalDate today);
-
     @Query("SELECT COUNT(c) FROM Certificates c WHERE c.issuedOn >= :startOfMonth")
     long countByIssuedAfter(@Param("startOfMonth") LocalDateTime startDate);
 }
@@ -1,8 +1,11 @@
 package fpt.aptech.eventsphere.repositories.admin;
 
+import fpt.aptech.eventsphere.dto.admin.EventModerationDTO;
 import fpt.aptech.eventsphere.models.admin.EventsModel;
 import fpt.aptech.eventsphere.models.admin.EventsModel.Status;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -23,51 +26,51 @@ public interface AdminEventModelRepository extends JpaRepository<EventsModel, In
 
     long countByStatus(Status status);
 
-    @Query("SELECT em.eventModelId, em.status, em.submitAt, em.updatedAt, em.adminComment, em.organnizerComment, " +
+    // Shared by the page and count queries so the total always matches the page.
+    // :keyword is a to_tsquery string from EventSearchService.toPrefixQuery (full-text, GIN-indexed);
+    // :threshold is the word similarity an organizer name needs to match (app.admin.autocomplete.threshold)
+    String MODERATION_FROM = "FROM EventsModel em " +
+            "JOIN em.event e " +
+            "LEFT JOIN e.organizer o " +
+            "LEFT JOIN o.userDetails od ";
+
+    String MODERATION_FILTER = "WHERE (:status IS NULL OR em.status = :status) " +
+            "AND (:keyword IS NULL OR " +
+            "    function('event_matches', e.title, e.category, e.description, :keyword) = true) " +
+            "AND (:category IS NULL OR :category = '' OR e.category = :category) " +
+            "AND (:organizerName IS NULL OR :organizerName = '' OR " +
+            "    LOWER(COALESCE(od.fullName, o.email)) LIKE LOWER(CONCAT('%', :organizerName, '%')) OR " +
+            "    function('name_matches', LOWER(:organizerName), LOWER(COALESCE(od.fullName, o.email)), :threshold) = true)";
+
+    // Sorted and paged by the caller's Pageable; sort keys are whitelisted in EventModerationService
+    @Query(value = "SELECT new fpt.aptech.eventsphere.dto.admin.EventModerationDTO(" +
+            "em.eventModelId, em.status, em.submitAt, em.updatedAt, em.adminComment, em.organnizerComment, " +
             "e.eventId, e.title, e.description, e.category, e.startDate, e.endDate, e.imageUrl, " +
             "v.name, o.userId, COALESCE(od.fullName, o.email), o.email, " +
             "es.totalSeats, es.seatsBooked, es.waitlistEnabled, " +
-            "COALESCE(rb.email, ''), em.createdAt " +
-            "FROM EventsModel em " +
-            "JOIN em.event e " +
+            "rb.email, em.createdAt) " +
+            MODERATION_FROM +
             "LEFT JOIN e.venue v " +
-            "LEFT JOIN e.organizer o " +
-            "LEFT JOIN o.userDetails od " +
             "LEFT JOIN e.eventSeating es " +
             "LEFT JOIN em.reviewBy rb " +
-            "WHERE (:status IS NULL OR em.status = :status) " +
-            "AND (:keyword IS NULL OR :keyword = '' OR " +
-            "    LOWER(e.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "    LOWER(e.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "    LOWER(e.category) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
-            "AND (:category IS NULL OR :category = '' OR e.category = :category) " +
-            "AND (:organizerName IS NULL OR :organizerName = '' OR " +
-            "    LOWER(COALESCE(od.fullName, o.email)) LIKE LOWER(CONCAT('%', :organizerName, '%')))")
-    List<Object[]> searchEventsModel(
+            MODERATION_FILTER,
+            countQuery = "SELECT COUNT(em) " + MODERATION_FROM + MODERATION_FILTER)
+    Page<EventModerationDTO> findModerationPage(
             @Param("status") Status status,
             @Param("keyword") String keyword,
             @Param("category") String category,
-            @Param("organizerName") String organizerName
+            @Param("organizerName") String organizerName,
+            @Param("threshold") double threshold,
+            Pageable pageable
     );
 
-    @Query("SELECT COUNT(em) FROM EventsModel em " +
-            "JOIN em.event e " +
-            "LEFT JOIN e.organizer o " +
-            "LEFT JOIN o.userDetails od " +
-            "WHERE (:status IS NULL OR em.status = :status) " +
-            "AND (:keyword IS NULL OR :keyword = '' OR " +
-            "    LOWER(e.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "    LOWER(e.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "    LOWER(e.category) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
-            "AND (:category IS NULL OR :category = '' OR e.category = :category) " +
-            "AND (:organizerName IS NULL OR :organizerName = '' OR " +
-            "    LOWER(COALESCE(od.fullName, o.email)) LIKE LOWER(CONCAT('%', :organizerName, '%')))")
-
+    @Query("SELECT COUNT(em) " + MODERATION_FROM + MODERATION_FILTER)
     long countEventsModel(
             @Param("status") Status status,
             @Param("keyword") String keyword,
             @Param("category") String category,
-            @Param("organizerName") String organizerName
+            @Param("organizerName") String organizerName,
+            @Param("threshold") double threshold
     );
 
     //active
@@ -21,36 +21,62 @@ public interface AdminEventRepository extends JpaRepository<Events, Integer> {
 
     Logger logger = LoggerFactory.getLogger(AdminEventRepository.class);
 
-    @Query("""
+    // :query is a to_tsquery string from EventSearchService (null for no keyword);
+    // event_matches / event_search_rank are SQL functions created by DataInitializer
+    String EVENT_SEARCH_SELECT = """
                 SELECT NEW fpt.aptech.eventsphere.dto.admin.EventWithCountDTO(
                     e,
-                    (SELECT COUNT(r) FROM Registrations r WHERE r.event = e AND r.status = 'CONFIRMED')
+                    (SELECT COUNT(r) FROM Registrations r WHERE r.event = e AND r.status IN ('CONFIRMED', 'ATTENDED'))
                 )
                 FROM Events e 
                 LEFT JOIN e.organizer o
                 LEFT JOIN e.venue v
-                WHERE ((:keyword IS NULL OR :keyword = '') OR (LOWER(e.title) LIKE %:keyword% OR LOWER(e.description) LIKE %:keyword%))
+                WHERE (:query IS NULL OR function('event_matches', e.title, e.category, e.description, :query) = true)
                 AND ((:category IS NULL OR :category = 'all' OR :category = '') OR e.category = :category)
                 AND ((:organizerName IS NULL OR :organizerName = '') OR (o.email IS NOT NULL AND LOWER(o.email) LIKE %:organizerName%))
                 AND (:status IS NULL OR e.status = :status)
                 GROUP BY e
-            """)
+            """;
+
+    @Query(EVENT_SEARCH_SELECT)
     Page<EventWithCountDTO> searchEvents(
-            @Param("keyword") String keyword,
+            @Param("query") String query,
+            @Param("category") String category,
+            @Param("organizerName") String organizerName,
+            @Param("status") Events.EventStatus status,
+            Pageable pageable
+    );
+
+    // Same filter as searchEvents, best full-text match first; pass an unsorted Pageable
+    @Query(value = EVENT_SEARCH_SELECT + """
+                ORDER BY function('event_search_rank', e.title, e.category, e.description, :query) DESC, e.startDate ASC
+            """,
+            countQuery = """
+                SELECT COUNT(e) FROM Events e
+                LEFT JOIN e.organizer o
+                WHERE function('event_matches', e.title, e.category, e.description, :query) = true
+                AND ((:category IS NULL OR :category = 'all' OR :category = '') OR e.category = :category)
+                AND ((:organizerName IS NULL OR :organizerName = '') OR (o.email IS NOT NULL AND LOWER(o.email) LIKE %:organizerName%))
+                AND (:status IS NULL OR e.status = :status)
+            """)
+    Page<EventWithCountDTO> searchEventsByRelevance(
+            @Param("query") String query,
             @Param("category") String category,
             @Param("organizerName") String organizerName,
             @Param("status") Events.EventStatus status,
             Pageable pageable
     );
 
-    default Page<EventWithCountDTO> searchEventsWithLogging(String keyword, String category, String organizerName, Events.EventStatus status, Pageable pageable) {
+    default Page<EventWithCountDTO> searchEventsWithLogging(String query, String category, String organizerName, Events.EventStatus status, Pageable pageable) {
         try {
-            logger.debug("Executing searchEvents with params - keyword: '{}', category: '{}', organizerName: '{}', status: '{}', page: {}, size: {}, sort: {}",
-                    keyword, category, organizerName, status,
+            logger.debug("Executing searchEvents with params - query: '{}', category: '{}', organizerName: '{}', status: '{}', page: {}, size: {}, sort: {}",
+                    query, category, organizerName, status,
                     pageable.getPageNumber(), pageable.getPageSize(),
                     pageable.getSort());
 
-            Page<EventWithCountDTO> result = searchEvents(keyword, category, organizerName, status, pageable);
+            Page<EventWithCountDTO> result = query != null && pageable.getSort().isUnsorted()
+                    ? searchEventsByRelevance(query, category, organizerName, status, pageable)
+                    : searchEvents(query, category, organizerName, status, pageable);
             
             // Log the results
             logger.debug("Found {} events ({} total)", result.getNumberOfElements(), result.getTotalElements());
@@ -79,7 +105,7 @@ public interface AdminEventRepository extends JpaRepository<Events, Integer> {
     @Query("""
             SELECT NEW fpt.aptech.eventsphere.dto.admin.EventWithCountDTO(
                 e,
-                (SELECT COUNT(r) FROM Registrations r WHERE r.event = e AND r.status = 'CONFIRMED')
+                (SELECT COUNT(r) FROM Registrations r WHERE r.event = e AND r.status IN ('CONFIRMED', 'ATTENDED'))
             )
             FROM Events e 
             LEFT JOIN e.organizer o 
@@ -7,13 +7,12 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface AdminUserRepository extends JpaRepository<Users, Integer> {
+public interface AdminUserRepository extends JpaRepository<Users, Integer>, AdminUserRepositoryCustom {
 
     Optional<Users> findByEmail(String email);
 
@@ -32,7 +31,7 @@ public interface AdminUserRepository extends JpaRepository<Users, Integer> {
     List<Users> findByIsActiveFalse();
     List<Users> findByIsDeletedFalse();
     
-    // Admin Dashboard Queries
+    // Admin Dashboard Queries (per-day and per-department figures come from DailyStatRepository)
     @Query("SELECT COUNT(u) FROM Users u WHERE u.isActive = true AND u.isDeleted = false")
     long countByIsActiveTrueAndIsDeletedFalse();
     long countByIsDeletedTrue();
@@ -43,72 +42,52 @@ public interface AdminUserRepository extends JpaRepository<Users, Integer> {
     @Query("SELECT COUNT(u) FROM Users u WHERE u.createdAt >= :startDate AND u.createdAt < :endDate")
     long countByCreatedAtBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
 
-    @Query("SELECT COUNT(u) FROM Users u WHERE DATE(u.createdAt) = :today")
-    long countByCreatedAtToday(@Param("today") LocalDate today);
-
-    @Query("SELECT ud.department, COUNT(u) FROM Users u JOIN u.userDetails ud WHERE ud.department IS NOT NULL GROUP BY ud.department")
-    List<Object[]> countUsersByDepartment();
-    
-    @Query("SELECT DATE(u.createdAt) as date, COUNT(u) as count FROM Users u WHERE u.createdAt >= :startDate GROUP BY DATE(u.createdAt) ORDER BY DATE(u.createdAt)")
-    List<Object[]> getUserRegistrationStats(@Param("startDate") LocalDateTime startDate);
-
     @Query("SELECT r.roleName, COUNT(u) FROM Users u JOIN u.roles r GROUP BY r.roleName")
     List<Object[]> countUsersByRole();
 
-    //admin search sort....
-    @Query("SELECT u.userId, u.email, " +
-            "COALESCE(ud.fullName, ''), COALESCE(ud.phone, ''), " +
-            "COALESCE(ud.department, ''), COALESCE(ud.enrollmentNo, ''), " +
-            "u.isActive, u.isDeleted, COALESCE(u.googleId, ''), u.createdAt, " +
-            "COALESCE(ud.avatar, ''), COALESCE(ud.address, '') " +
-            "FROM Users u " +
-            "LEFT JOIN u.userDetails ud " +
-            "WHERE u.isDeleted = false " +
-            "AND NOT EXISTS (SELECT r FROM u.roles r WHERE r.roleName = 'ADMIN') " +
-            "AND (:keyword IS NULL OR :keyword = '' OR " +
-            "    LOWER(u.email) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "    LOWER(COALESCE(ud.fullName, '')) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "    LOWER(COALESCE(ud.department, '')) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "    LOWER(COALESCE(ud.enrollmentNo, '')) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
-            "AND (:department IS NULL OR :department = '' OR ud.department = :department) " +
-            "AND (:isActive IS NULL OR u.isActive = :isActive) " +
-            "AND (:role IS NULL OR :role = '' OR EXISTS " +
-            "    (SELECT r FROM u.roles r WHERE r.roleName = :role))")
-    List<Object[]> searchUsersForManagement(
-            @Param("keyword") String keyword,
-            @Param("department") String department,
-            @Param("role") String role,
-            @Param("isActive") Boolean isActive
-    );
-
+    //admin search sort.... (the page itself comes from AdminUserRepositoryCustom.searchUsersPage)
     @Query("SELECT DISTINCT ud.department FROM UserDetails ud WHERE ud.department IS NOT NULL ORDER BY ud.department")
     List<String> findAllDepartments();
 
     @Query("SELECT DISTINCT r.roleName FROM Roles r WHERE r.roleName != 'ADMIN' ORDER BY r.roleName")
     List<String> findAllRoles();
 
-    @Query("SELECT COUNT(u) FROM Users u " +
-            "LEFT JOIN u.userDetails ud " +
-            "WHERE u.isDeleted = false " +
-            "AND NOT EXISTS (SELECT r FROM u.roles r WHERE r.roleName = 'ADMIN') " +
-            "AND (:keyword IS NULL OR :keyword = '' OR " +
-            "    LOWER(u.email) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "    LOWER(COALESCE(ud.fullName, '')) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "    LOWER(COALESCE(ud.department, '')) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "    LOWER(COALESCE(ud.enrollmentNo, '')) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
-            "AND (:department IS NULL OR :department = '' OR ud.department = :department) " +
-            "AND (:isActive IS NULL OR u.isActive = :isActive) " +
-            "AND (:role IS NULL OR :role = '' OR EXISTS " +
-            "    (SELECT r FROM u.roles r WHERE r.roleName = :role))")
+    @Query("SELECT COUNT(u) " + USER_SEARCH_FILTER)
     long countSearchUsersForManagement(
-            @Param("keyword") String keyword,
+            @Param("keyword") String keywordPattern,
             @Param("department") String department,
             @Param("role") String role,
             @Param("isActive") Boolean isActive
     );
 
-    @Query("SELECT r.roleName FROM Users u JOIN u.roles r WHERE u.userId = :userId")
-    List<String> findRolesByUserId(@Param("userId") int userId);
+    // Sets the cut-off used by the <% operator for the rest of the current transaction
+    @Query(value = "SELECT set_config('pg_trgm.word_similarity_threshold', :threshold, true)", nativeQuery = true)
+    String setWordSimilarityThreshold(@Param("threshold") String threshold);
+
+    // Typo-tolerant name/email lookup for the admin autocomplete. Each branch of the UNION uses its
+    // pg_trgm GIN index through the <% (word similarity) operator; :query must be lower-cased.
+    // Projection: [userId, email, fullName, score]
+    @Query(value = "SELECT u.user_id, u.email, ud.full_name, MAX(c.score) AS score " +
+            "FROM (" +
+            "    SELECT ud.user_id, word_similarity(:query, lower(ud.full_name)) AS score " +
+            "    FROM user_details ud WHERE :query <% lower(ud.full_name) " +
+            "    UNION ALL " +
+            "    SELECT u.user_id, word_similarity(:query, lower(u.email)) AS score " +
+            "    FROM users u WHERE :query <% lower(u.email)" +
+            ") c " +
+            "JOIN users u ON u.user_id = c.user_id " +
+            "LEFT JOIN user_details ud ON ud.user_id = u.user_id " +
+            "WHERE u.is_deleted = false " +
+            "AND NOT EXISTS (SELECT 1 FROM users_roles ur JOIN roles r ON r.role_id = ur.role_id " +
+            "    WHERE ur.user_id = u.user_id AND r.role_name = 'ADMIN') " +
+            "AND (:role = '' OR EXISTS (SELECT 1 FROM users_roles ur JOIN roles r ON r.role_id = ur.role_id " +
+            "    WHERE ur.user_id = u.user_id AND r.role_name = :role)) " +
+            "GROUP BY u.user_id, u.email, ud.full_name " +
+            "ORDER BY score DESC, u.email " +
+            "LIMIT :limit", nativeQuery = true)
+    List<Object[]> suggestUsers(@Param("query") String query,
+                                @Param("role") String role,
+                                @Param("limit") int limit);
 
     @Query("SELECT COUNT(u) FROM Users u WHERE u.isDeleted = false AND NOT EXISTS (SELECT r FROM u.roles r WHERE r.roleName = 'ADMIN')")
     long countByIsDeletedFalseAndNotAdmin();
@@ -0,0 +1,33 @@
+package fpt.aptech.eventsphere.repositories.admin;
+
+import fpt.aptech.eventsphere.dto.admin.UserSearchRequestDTO;
+
+import java.util.List;
+
+public interface AdminUserRepositoryCustom {
+
+    // Shared by the page query and countSearchUsersForManagement so both see the same rows.
+    // Keyword matches go through IN-subqueries (one per table) so each can use its trigram index;
+    // :keyword is an already lower-cased LIKE pattern.
+    String USER_SEARCH_FILTER =
+            "FROM Users u " +
+            "LEFT JOIN u.userDetails ud " +
+            "WHERE u.isDeleted = false " +
+            "AND NOT EXISTS (SELECT r FROM u.roles r WHERE r.roleName = 'ADMIN') " +
+            "AND (:keyword IS NULL " +
+            "    OR u.userId IN (SELECT k.userId FROM Users k WHERE LOWER(k.email) LIKE :keyword) " +
+            "    OR u.userId IN (SELECT kd.user.userId FROM UserDetails kd " +
+            "        WHERE LOWER(kd.fullName) LIKE :keyword " +
+            "           OR LOWER(kd.department) LIKE :keyword " +
+            "           OR LOWER(kd.enrollmentNo) LIKE :keyword)) " +
+            "AND (:department IS NULL OR ud.department = :department) " +
+            "AND (:isActive IS NULL OR u.isActive = :isActive) " +
+            "AND (:role IS NULL OR EXISTS (SELECT r FROM u.roles r WHERE r.roleName = :role)) ";
+
+    /**
+     * One page of the admin user search, sorted in the database.
+     * Projection: [userId, email, fullName, phone, department, enrollmentNo, isActive, isDeleted,
+     * googleId, createdAt, avatar, address, roles] where roles is a comma separated, sorted list.
+     */
+    List<Object[]> searchUsersPage(UserSearchRequestDTO searchRequest);
+}
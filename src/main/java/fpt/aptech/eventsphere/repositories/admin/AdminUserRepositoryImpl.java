@@ -0,0 +1,58 @@
+package fpt.aptech.eventsphere.repositories.admin;
+
+import fpt.aptech.eventsphere.dto.admin.UserSearchRequestDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class AdminUserRepositoryImpl implements AdminUserRepositoryCustom {
+
+    // Sort keys accepted from the request, mapped to JPQL expressions; anything else sorts by userId
+    private static final Map<String, String> SORT_EXPRESSIONS = Map.of(
+            "userid", "u.userId",
+            "email", "u.email",
+            "fullname", "ud.fullName",
+            "department", "ud.department",
+            "createdat", "u.createdAt",
+            "isactive", "u.isActive",
+            "roles", "(SELECT MIN(r.roleName) FROM u.roles r)"
+    );
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Object[]> searchUsersPage(UserSearchRequestDTO searchRequest) {
+        String sortBy = searchRequest.getSortBy() != null ? searchRequest.getSortBy().toLowerCase(Locale.ROOT) : "";
+        String sortExpression = SORT_EXPRESSIONS.getOrDefault(sortBy, "u.userId");
+        String direction = "desc".equalsIgnoreCase(searchRequest.getSortDirection())
+                ? "DESC NULLS LAST" : "ASC NULLS FIRST";
+
+        String jpql = "SELECT u.userId, u.email, " +
+                "COALESCE(ud.fullName, ''), COALESCE(ud.phone, ''), " +
+                "COALESCE(ud.department, ''), COALESCE(ud.enrollmentNo, ''), " +
+                "u.isActive, u.isDeleted, COALESCE(u.googleId, ''), u.createdAt, " +
+                "COALESCE(ud.avatar, ''), COALESCE(ud.address, ''), " +
+                "(SELECT LISTAGG(r.roleName, ',') WITHIN GROUP (ORDER BY r.roleName) FROM u.roles r) " +
+                USER_SEARCH_FILTER +
+                "ORDER BY " + sortExpression + " " + direction +
+                (sortExpression.equals("u.userId") ? "" : ", u.userId " + direction);
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class)
+                .setFirstResult(searchRequest.getPage() * searchRequest.getSize())
+                .setMaxResults(searchRequest.getSize());
+        bindFilters(query, searchRequest);
+        return query.getResultList();
+    }
+
+    private static void bindFilters(TypedQuery<?> query, UserSearchRequestDTO searchRequest) {
+        query.setParameter("keyword", searchRequest.keywordPattern());
+        query.setParameter("department", searchRequest.hasDepartment() ? searchRequest.getDepartment() : null);
+        query.setParameter("role", searchRequest.hasRole() ? searchRequest.getRole() : null);
+        query.setParameter("isActive", searchRequest.hasActiveFilter() ? searchRequest.getIsActive() : null);
+    }
+}
@@ -1,245 +1,289 @@
 package fpt.aptech.eventsphere.services.Admin;
 
 import fpt.aptech.eventsphere.dto.admin.AdminDashboardDTO;
+import fpt.aptech.eventsphere.dto.admin.CertificateDownloadsDTO;
 import fpt.aptech.eventsphere.dto.admin.ChartDataDTO;
 import fpt.aptech.eventsphere.dto.admin.DepartmentStatsDTO;
 import fpt.aptech.eventsphere.dto.admin.SystemAlertDTO;
-import fpt.aptech.eventsphere.repositories.UserDetailsRepository;
-import fpt.aptech.eventsphere.repositories.admin.AdminCertificateRepository;
+import fpt.aptech.eventsphere.models.DailyStat;
+import fpt.aptech.eventsphere.repositories.DailyStatRepository;
 import fpt.aptech.eventsphere.repositories.admin.AdminFeedbackRepository;
-import fpt.aptech.eventsphere.repositories.admin.AdminMediaGalleryRepository;
 import fpt.aptech.eventsphere.repositories.admin.AdminUserRepository;
+import fpt.aptech.eventsphere.services.CertificateDownloadCounter;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Serves the admin dashboard from an in-memory snapshot.
+ * <p>
+ * The snapshot is rebuilt in the background: on startup, every refresh interval, and shortly after
+ * a user, user detail, feedback or certificate changes (see DashboardChangeListener). Changes are
+ * debounced, so a burst of writes triggers a single rebuild. A rebuild runs its independent
+ * sections in parallel and each query once; a failing section keeps its previous values. Per-day
+ * and per-department figures come from the daily_stats rollup rather than the base tables.
+ */
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class AdminDashboardService {
+    private static final List<String> CHART_COLORS = List.of("#007bff", "#28a745", "#ffc107", "#dc3545", "#17a2b8");
 
     private final AdminUserRepository userRepository;
-    private final UserDetailsRepository userDetailsRepository;
     private final AdminFeedbackRepository adminFeedbackRepository;
-    private final AdminMediaGalleryRepository adminMediaGalleryRepository;
-    private final AdminCertificateRepository adminCertificateRepository;
+    private final DailyStatRepository dailyStatRepository;
+    private final CertificateDownloadCounter certificateDownloadCounter;
 
+    // A snapshot older than this is reported as stale even without known changes
+    @Value("${app.admin.dashboard.max-age:10m}")
+    private Duration maxAge;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private volatile AdminDashboardDTO snapshot;
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The latest snapshot. Only the very first call, if it comes before the startup refresh,
+     * waits for the data to be computed.
+     */
     public AdminDashboardDTO getDashboardData() {
-        AdminDashboardDTO dashboard = new AdminDashboardDTO();
+        AdminDashboardDTO current = snapshot;
+        return current != null ? current : refresh();
+    }
 
-        try {
-            // User Statistics với error handling
-            long totalUsersCount = userRepository.count();
-            long activeUsersCount = 0;
-            long suspendedUsersCount = 0;
-
-            try {
-                activeUsersCount = userRepository.countByIsActiveTrueAndIsDeletedFalse();
-            } catch (Exception e) {
-                System.err.println("Error getting active users count: " + e.getMessage());
-                e.printStackTrace();
-            }
+    /**
+     * When the current snapshot was computed, or null if there is none yet.
+     */
+    public LocalDateTime getLastRefreshed() {
+        AdminDashboardDTO current = snapshot;
+        return current != null ? current.getLastUpdated() : null;
+    }
 
-            try {
-                //nguoi dung không hoạt động
-                suspendedUsersCount = totalUsersCount - activeUsersCount;
-            } catch (Exception e) {
-                System.err.println("Error getting suspended users count: " + e.getMessage());
-                e.printStackTrace();
-            }
+    /**
+     * True if data changed since the snapshot was computed and the rebuild hasn't finished yet,
+     * or if the snapshot is older than app.admin.dashboard.max-age.
+     */
+    public boolean isStale() {
+        LocalDateTime refreshed = getLastRefreshed();
+        return refreshed == null || dirty.get() || refreshed.plus(maxAge).isBefore(LocalDateTime.now());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataChanged(DashboardDataChangedEvent event) {
+        dirty.set(true);
+    }
 
-            // Set values với null check
-            dashboard.setTotalUsers(BigDecimal.valueOf(totalUsersCount));
-            dashboard.setActiveUsers(BigDecimal.valueOf(activeUsersCount));
-            dashboard.setSuspendedUsers(BigDecimal.valueOf(suspendedUsersCount));
+    @Scheduled(initialDelayString = "${app.admin.dashboard.debounce-ms:2000}",
+            fixedDelayString = "${app.admin.dashboard.debounce-ms:2000}")
+    public void refreshIfChanged() {
+        if (dirty.getAndSet(false)) {
+            refresh();
+        }
+    }
 
-            // Debug after setting
-            System.out.println("Dashboard totalUsers: " + dashboard.getTotalUsers());
-            System.out.println("Dashboard activeUsers: " + dashboard.getActiveUsers());
-            System.out.println("Dashboard suspendedUsers: " + dashboard.getSuspendedUsers());
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.admin.dashboard.refresh-interval-ms:300000}",
+            fixedDelayString = "${app.admin.dashboard.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        refresh();
+    }
 
-            // Set other user stats
-            dashboard.setNewUsersThisMonth(getUsersCountThisMonth());
-            dashboard.setUserGrowthRate(calculateUserGrowthRate());
+    /**
+     * Recomputes the snapshot now and returns it.
+     */
+    public synchronized AdminDashboardDTO refresh() {
+        long started = System.nanoTime();
+        AdminDashboardDTO previous = snapshot;
+
+        CompletableFuture<long[]> userCounts = section(this::getUserCounts, "user statistics");
+        CompletableFuture<List<DepartmentStatsDTO>> departments = section(this::getDepartmentDetails, "department statistics");
+        CompletableFuture<Long> todayRegistrations = section(this::getTodayRegistrations, "today registrations");
+        CompletableFuture<BigDecimal> pendingFeedback = section(this::getPendingFeedbackReviews, "pending feedback reviews");
+        CompletableFuture<BigDecimal> averageRating = section(this::getAverageEventRating, "average rating");
+        CompletableFuture<Long> certificates = section(
+                () -> dailyStatRepository.sumAll(DailyStat.Metric.CERTIFICATES_ISSUED), "certificates issued");
+        CompletableFuture<List<CertificateDownloadsDTO>> topDownloads = section(
+                () -> certificateDownloadCounter.getTopDownloaded(5), "top downloaded certificates");
+        CompletableFuture<List<ChartDataDTO>> registrationChart = section(this::getUserRegistrationChartData, "registration chart");
 
-        } catch (Exception e) {
-            System.err.println("Error in getDashboardData: " + e.getMessage());
-            e.printStackTrace();
+        AdminDashboardDTO dashboard = new AdminDashboardDTO();
 
-            // Fallback values
+        long[] counts = userCounts.join();
+        if (counts != null) {
+            long total = counts[0];
+            long active = counts[1];
+            dashboard.setTotalUsers(BigDecimal.valueOf(total));
+            dashboard.setActiveUsers(BigDecimal.valueOf(active));
+            dashboard.setSuspendedUsers(BigDecimal.valueOf(total - active));
+            dashboard.setNewUsersThisMonth(BigDecimal.valueOf(counts[2]));
+            dashboard.setUserGrowthRate(growthRate(counts[2], counts[3]));
+            dashboard.setTotalRegistrations(BigDecimal.valueOf(total));
+
+            List<SystemAlertDTO> alerts = getSystemAlerts(total - active);
+            dashboard.setSystemAlerts(alerts);
+            dashboard.setCriticalAlerts(countCriticalAlerts(alerts));
+        } else if (previous != null) {
+            dashboard.setTotalUsers(previous.getTotalUsers());
+            dashboard.setActiveUsers(previous.getActiveUsers());
+            dashboard.setSuspendedUsers(previous.getSuspendedUsers());
+            dashboard.setNewUsersThisMonth(previous.getNewUsersThisMonth());
+            dashboard.setUserGrowthRate(previous.getUserGrowthRate());
+            dashboard.setTotalRegistrations(previous.getTotalRegistrations());
+            dashboard.setSystemAlerts(previous.getSystemAlerts());
+            dashboard.setCriticalAlerts(previous.getCriticalAlerts());
+        } else {
             dashboard.setTotalUsers(BigDecimal.ZERO);
             dashboard.setActiveUsers(BigDecimal.ZERO);
             dashboard.setSuspendedUsers(BigDecimal.ZERO);
             dashboard.setNewUsersThisMonth(BigDecimal.ZERO);
             dashboard.setUserGrowthRate(BigDecimal.ZERO);
+            dashboard.setTotalRegistrations(BigDecimal.ZERO);
+            dashboard.setSystemAlerts(new ArrayList<>());
+            dashboard.setCriticalAlerts(BigDecimal.ZERO);
         }
 
-
-        // Department Statistics
-        try {
-            dashboard.setUsersByDepartment(getUsersByDepartment());
-            dashboard.setDepartmentDetails(getDepartmentDetails());
-        } catch (Exception e) {
-            System.err.println("Error getting department statistics: " + e.getMessage());
+        List<DepartmentStatsDTO> departmentDetails = departments.join();
+        if (departmentDetails != null) {
+            Map<String, Long> usersByDepartment = departmentDetails.stream()
+                    .collect(Collectors.toMap(DepartmentStatsDTO::getDepartmentName, DepartmentStatsDTO::getTotalUsers));
+            dashboard.setUsersByDepartment(usersByDepartment);
+            dashboard.setDepartmentDetails(departmentDetails);
+            dashboard.setDepartmentDistributionChart(getDepartmentDistributionChartData(usersByDepartment));
+        } else if (previous != null) {
+            dashboard.setUsersByDepartment(previous.getUsersByDepartment());
+            dashboard.setDepartmentDetails(previous.getDepartmentDetails());
+            dashboard.setDepartmentDistributionChart(previous.getDepartmentDistributionChart());
+        } else {
             dashboard.setUsersByDepartment(new HashMap<>());
-            dashboard.setEventsByDepartment(new HashMap<>());
             dashboard.setDepartmentDetails(new ArrayList<>());
+            dashboard.setDepartmentDistributionChart(new ArrayList<>());
         }
 
-        // Recent Activities
-        try {
-            dashboard.setTodayRegistrations(getTodayRegistrations());
-            dashboard.setPendingFeedbackReviews(getPendingFeedbackReviews());
-        } catch (Exception e) {
-            System.err.println("Error getting recent activities: " + e.getMessage());
-            dashboard.setTodayRegistrations(BigDecimal.ZERO);
-            dashboard.setTodayEventCreations(BigDecimal.ZERO);
-            dashboard.setPendingFeedbackReviews(BigDecimal.ZERO);
-        }
+        Long today = todayRegistrations.join();
+        dashboard.setTodayRegistrations(today != null ? BigDecimal.valueOf(today)
+                : previous != null ? previous.getTodayRegistrations() : BigDecimal.ZERO);
 
-        // Performance Metrics
-        try {
-            dashboard.setTotalRegistrations(getTotalRegistrations());
-            dashboard.setCertificatesIssued(getCertificatesIssued());
-        } catch (Exception e) {
-            System.err.println("Error getting performance metrics: " + e.getMessage());
-            dashboard.setAverageEventRating(BigDecimal.ZERO);
-            dashboard.setTotalRegistrations(BigDecimal.ZERO);
-            dashboard.setCompletedEvents(BigDecimal.ZERO);
-            dashboard.setCertificatesIssued(BigDecimal.ZERO);
-        }
+        BigDecimal pending = pendingFeedback.join();
+        dashboard.setPendingFeedbackReviews(pending != null ? pending
+                : previous != null ? previous.getPendingFeedbackReviews() : BigDecimal.ZERO);
 
-        // System Alerts
-        try {
-            dashboard.setSystemAlerts(getSystemAlerts());
-            dashboard.setCriticalAlerts(getCriticalAlerts());
-        } catch (Exception e) {
-            System.err.println("Error getting system alerts: " + e.getMessage());
-            dashboard.setSystemAlerts(new ArrayList<>());
-            dashboard.setCriticalAlerts(BigDecimal.ZERO);
-        }
+        BigDecimal rating = averageRating.join();
+        dashboard.setAverageEventRating(rating != null ? rating
+                : previous != null ? previous.getAverageEventRating() : BigDecimal.ZERO);
 
-        // Charts Data
-        try {
-            dashboard.setUserRegistrationChart(getUserRegistrationChartData());
-            dashboard.setDepartmentDistributionChart(getDepartmentDistributionChartData());
-        } catch (Exception e) {
-            System.err.println("Error getting charts data: " + e.getMessage());
-            dashboard.setUserRegistrationChart(new ArrayList<>());
-            dashboard.setEventCreationChart(new ArrayList<>());
-            dashboard.setDepartmentDistributionChart(new ArrayList<>());
-        }
+        Long issued = certificates.join();
+        dashboard.setCertificatesIssued(issued != null ? BigDecimal.valueOf(issued)
+                : previous != null ? previous.getCertificatesIssued() : BigDecimal.ZERO);
 
-        dashboard.setLastUpdated(LocalDateTime.now());
+        List<CertificateDownloadsDTO> downloads = topDownloads.join();
+        dashboard.setTopDownloadedCertificates(downloads != null ? downloads
+                : previous != null ? previous.getTopDownloadedCertificates() : new ArrayList<>());
+
+        List<ChartDataDTO> chart = registrationChart.join();
+        dashboard.setUserRegistrationChart(chart != null ? chart
+                : previous != null ? previous.getUserRegistrationChart() : new ArrayList<>());
 
+        dashboard.setLastUpdated(LocalDateTime.now());
+        snapshot = dashboard;
+        log.debug("Dashboard snapshot refreshed in {} ms", Duration.ofNanos(System.nanoTime() - started).toMillis());
         return dashboard;
     }
 
-    private BigDecimal getUsersCountThisMonth() {
-        LocalDateTime startOfMonth = LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
-        return BigDecimal.valueOf(userRepository.countByCreatedAtAfter(startOfMonth));
+    // Runs one dashboard section on its own virtual thread; completes with null if it fails
+    private <T> CompletableFuture<T> section(Supplier<T> query, String name) {
+        return CompletableFuture.supplyAsync(query, executor)
+                .exceptionally(e -> {
+                    log.warn("Error getting {} for the dashboard: {}", name, e.getMessage());
+                    return null;
+                });
     }
 
-
-    private BigDecimal calculateUserGrowthRate() {
-        LocalDateTime thisMonth = LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
+    // [total, active, created this month, created last month]
+    private long[] getUserCounts() {
+        LocalDateTime thisMonth = LocalDate.now().withDayOfMonth(1).atStartOfDay();
         LocalDateTime lastMonth = thisMonth.minusMonths(1);
+        return new long[]{
+                userRepository.count(),
+                userRepository.countByIsActiveTrueAndIsDeletedFalse(),
+                userRepository.countByCreatedAtAfter(thisMonth),
+                userRepository.countByCreatedAtBetween(lastMonth, thisMonth)
+        };
+    }
 
-        long thisMonthCount = userRepository.countByCreatedAtBetween(thisMonth, LocalDateTime.now());
-        long lastMonthCount = userRepository.countByCreatedAtBetween(lastMonth, thisMonth);
-
+    private BigDecimal growthRate(long thisMonthCount, long lastMonthCount) {
         if (lastMonthCount == 0) return BigDecimal.valueOf(100);
 
         double growthRate = ((double) (thisMonthCount - lastMonthCount) / lastMonthCount) * 100;
         return BigDecimal.valueOf(Math.round(growthRate * 100.0) / 100.0);
     }
 
-
-    private Map<String, Long> getUsersByDepartment() {
-        List<Object[]> results = userRepository.countUsersByDepartment();
-        return results.stream()
-                .collect(Collectors.toMap(
-                        result -> (String) result[0],
-                        result -> (Long) result[1]
-                ));
-    }
-
-
     private List<DepartmentStatsDTO> getDepartmentDetails() {
-        Map<String, Long> usersByDept = getUsersByDepartment();
-
-        return usersByDept.keySet().stream()
-                .map(dept -> {
-                    DepartmentStatsDTO dto = new DepartmentStatsDTO();
-                    dto.setDepartmentName(dept);
-                    dto.setTotalUsers(usersByDept.getOrDefault(dept, 0L));
-                    // Add more calculations as needed
-                    return dto;
-                })
-                .collect(Collectors.toList());
-    }
-
-    private BigDecimal getTodayRegistrations() {
-        try {
-            LocalDate today = LocalDate.now();
-            long count = userRepository.countByCreatedAtToday(today);
-            return BigDecimal.valueOf(count);
-        } catch (Exception e) {
-            System.err.println("Error getting today registrations: " + e.getMessage());
-            return BigDecimal.ZERO;
+        Map<String, DepartmentStatsDTO> byDepartment = new TreeMap<>();
+        for (Object[] row : dailyStatRepository.sumPerDepartment()) {
+            DepartmentStatsDTO dto = byDepartment.computeIfAbsent((String) row[0], dept -> {
+                DepartmentStatsDTO d = new DepartmentStatsDTO();
+                d.setDepartmentName(dept);
+                d.setTotalUsers(0L);
+                d.setTotalRegistrations(0L);
+                return d;
+            });
+            long count = ((Number) row[2]).longValue();
+            switch ((DailyStat.Metric) row[1]) {
+                case USERS_CREATED -> dto.setTotalUsers(count);
+                case REGISTRATIONS -> dto.setTotalRegistrations(count);
+                case FEEDBACK -> dto.setAverageRating(count > 0 ? ((Number) row[3]).doubleValue() / count : null);
+                default -> {
+                }
+            }
         }
-
+        // Departments whose users have all been removed only linger in the rollup with zero users
+        byDepartment.values().removeIf(dto -> dto.getTotalUsers() <= 0);
+        return new ArrayList<>(byDepartment.values());
     }
 
-
-    private BigDecimal getPendingFeedbackReviews() {
-        try {
-            BigDecimal count = adminFeedbackRepository.countPendingReviews();
-            return count != null ? count : BigDecimal.ZERO;
-        } catch (Exception e) {
-            System.err.println("Error getting pending feedback reviews: " + e.getMessage());
-            return BigDecimal.ZERO;
-        }
+    private long getTodayRegistrations() {
+        return dailyStatRepository.sumSince(DailyStat.Metric.USERS_CREATED, LocalDate.now());
     }
 
-//    private BigDecimal getPendingMediaReviews() {
-//        return mediaGalleryRepository.countPendingReviews();
-//    }
-
-
-    private BigDecimal getTotalRegistrations() {
-        try {
-            long count = userRepository.count();
-            return BigDecimal.valueOf(count);
-        } catch (Exception e) {
-            System.err.println("Error getting total registrations: " + e.getMessage());
-            return BigDecimal.ZERO;
-        }
-
+    private BigDecimal getAverageEventRating() {
+        Object[] totals = dailyStatRepository.sumRatings().get(0);
+        long count = ((Number) totals[1]).longValue();
+        if (count == 0) return BigDecimal.ZERO;
+        return BigDecimal.valueOf(Math.round(((Number) totals[0]).doubleValue() / count * 10.0) / 10.0);
     }
 
-
-    private BigDecimal getCertificatesIssued() {
-        try {
-            long count = adminCertificateRepository.count();
-            System.out.println("Total certificates issued from DB: " + count);
-            return BigDecimal.valueOf(count);
-        } catch (Exception e) {
-            System.err.println("Error getting certificates issued: " + e.getMessage());
-            return BigDecimal.ZERO;
-        }
-
+    private BigDecimal getPendingFeedbackReviews() {
+        BigDecimal count = adminFeedbackRepository.countPendingReviews();
+        return count != null ? count : BigDecimal.ZERO;
     }
 
-    private List<SystemAlertDTO> getSystemAlerts() {
+    private List<SystemAlertDTO> getSystemAlerts(long inactiveUsers) {
         List<SystemAlertDTO> alerts = new ArrayList<>();
 
         // Check for system issues and create alerts
-        long inactiveUsers = userRepository.count() - userRepository.countByIsActiveTrueAndIsDeletedFalse();
         if (inactiveUsers > 10) {
             alerts.add(new SystemAlertDTO(
                     "inactive_users",
@@ -254,25 +298,23 @@ public class AdminDashboardService {
             ));
         }
 
-
         return alerts;
     }
 
-    private BigDecimal getCriticalAlerts() {
-        return BigDecimal.valueOf(getSystemAlerts().stream()
+    private BigDecimal countCriticalAlerts(List<SystemAlertDTO> alerts) {
+        return BigDecimal.valueOf(alerts.stream()
                 .mapToLong(alert -> "ERROR".equals(alert.getType()) || "CRITICAL".equals(alert.getType()) ? 1 : 0)
                 .sum());
     }
 
     private List<ChartDataDTO> getUserRegistrationChartData() {
-        LocalDateTime startDate = LocalDateTime.now().minusDays(30);
-        List<Object[]> results = userRepository.getUserRegistrationStats(startDate);
+        List<Object[]> results = dailyStatRepository.sumPerDay(DailyStat.Metric.USERS_CREATED, LocalDate.now().minusDays(30));
 
         return results.stream()
                 .map(result -> {
                     ChartDataDTO dto = new ChartDataDTO(
                             result[0].toString(),
-                            BigDecimal.valueOf((Long) result[1])
+                            BigDecimal.valueOf(((Number) result[1]).longValue())
                     );
                     dto.setColor("#007bff");
                     return dto;
@@ -280,21 +322,17 @@ public class AdminDashboardService {
                 .collect(Collectors.toList());
     }
 
-
-    private List<ChartDataDTO> getDepartmentDistributionChartData() {
-        Map<String, Long> usersByDept = getUsersByDepartment();
-        List<String> colors = Arrays.asList("#007bff", "#28a745", "#ffc107", "#dc3545", "#17a2b8");
-
+    private List<ChartDataDTO> getDepartmentDistributionChartData(Map<String, Long> usersByDept) {
         return usersByDept.entrySet().stream()
                 .map(entry -> {
                     ChartDataDTO dto = new ChartDataDTO(
                             entry.getKey(),
                             BigDecimal.valueOf(entry.getValue())
                     );
-                    dto.setColor(colors.get(Math.abs(entry.getKey().hashCode()) % colors.size()));
+                    dto.setColor(CHART_COLORS.get(Math.abs(entry.getKey().hashCode()) % CHART_COLORS.size()));
                     return dto;
                 })
                 .collect(Collectors.toList());
     }
 
-}
\ No newline at end of file
+}
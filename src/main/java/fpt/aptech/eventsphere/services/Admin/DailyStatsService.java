@@ -0,0 +1,90 @@
+package fpt.aptech.eventsphere.services.Admin;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps the daily_stats rollup (see DailyStat) in line with the tables it summarises.
+ * <p>
+ * Triggers update the rollup on every write; this service rebuilds it from the base tables to
+ * repair anything the triggers can't see, such as writes made while they didn't exist yet or a
+ * user moving to another department. The whole history is rebuilt on startup, the last
+ * app.stats.reconcile-days days every night.
+ */
+@Service
+@Slf4j
+public class DailyStatsService {
+    // Same metrics and attribution as the triggers created by DataInitializer
+    private static final String REBUILD_SQL = """
+            INSERT INTO daily_stats (stat_day, metric, department, status, item_count, rating_sum)
+            SELECT u.created_at::date, 'USERS_CREATED', coalesce(ud.department, ''), '', count(*), 0
+            FROM users u LEFT JOIN user_details ud ON ud.user_id = u.user_id
+            WHERE u.created_at >= ?
+            GROUP BY 1, 3
+            UNION ALL
+            SELECT r.registered_on::date, 'REGISTRATIONS', coalesce(ud.department, ''), r.status, count(*), 0
+            FROM registrations r LEFT JOIN user_details ud ON ud.user_id = r.student_id
+            WHERE r.registered_on >= ?
+            GROUP BY 1, 3, 4
+            UNION ALL
+            SELECT c.issued_on::date, 'CERTIFICATES_ISSUED', coalesce(ud.department, ''), '', count(*), 0
+            FROM certificates c LEFT JOIN user_details ud ON ud.user_id = c.student_id
+            WHERE c.issued_on >= ?
+            GROUP BY 1, 3
+            UNION ALL
+            SELECT f.submitted_on::date, 'FEEDBACK', coalesce(ud.department, ''),
+                   CASE WHEN f.rating > 0 THEN 'RATED' ELSE 'PENDING' END, count(*), sum(f.rating)
+            FROM feedback f LEFT JOIN user_details ud ON ud.user_id = f.student_id
+            WHERE f.submitted_on >= ?
+            GROUP BY 1, 3, 4
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int reconcileDays;
+
+    public DailyStatsService(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.stats.reconcile-days:35}") int reconcileDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reconcileDays = reconcileDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAll() {
+        rebuild(LocalDate.EPOCH);
+    }
+
+    @Scheduled(cron = "${app.stats.reconcile-cron:0 30 2 * * *}")
+    public void reconcile() {
+        rebuild(LocalDate.now().minusDays(reconcileDays));
+    }
+
+    /**
+     * Replaces every rollup row from the given day on with freshly aggregated ones.
+     */
+    public void rebuild(LocalDate from) {
+        try {
+            int rows = transactionTemplate.execute(status -> {
+                // Holds off the triggers (they take ROW EXCLUSIVE) and waits for writers that already
+                // bumped a counter, so no write is counted twice or lost between delete and insert
+                jdbcTemplate.execute("LOCK TABLE daily_stats IN SHARE ROW EXCLUSIVE MODE");
+                jdbcTemplate.update("DELETE FROM daily_stats WHERE stat_day >= ?", from);
+                return jdbcTemplate.update(REBUILD_SQL, from, from, from, from);
+            });
+            log.info("Daily statistics rebuilt from {}: {} row(s)", from, rows);
+        } catch (Exception e) {
+            log.error("Could not rebuild daily statistics from {}", from, e);
+        }
+    }
+}
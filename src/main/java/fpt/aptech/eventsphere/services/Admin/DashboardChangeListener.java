@@ -0,0 +1,26 @@
+package fpt.aptech.eventsphere.services.Admin;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * JPA entity listener that tells the dashboard snapshot its data changed, whichever service or
+ * controller did the write. Bulk JPQL updates bypass entity callbacks; the periodic refresh in
+ * AdminDashboardService covers those.
+ */
+public class DashboardChangeListener {
+    private final ApplicationEventPublisher publisher;
+
+    public DashboardChangeListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        publisher.publishEvent(new DashboardDataChangedEvent(entity.getClass()));
+    }
+}
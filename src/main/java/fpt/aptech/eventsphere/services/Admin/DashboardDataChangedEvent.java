@@ -0,0 +1,8 @@
+package fpt.aptech.eventsphere.services.Admin;
+
+/**
+ * Published when an entity the admin dashboard counts (users, user details, feedback,
+ * certificates) is inserted, updated or deleted.
+ */
+public record DashboardDataChangedEvent(Class<?> entityType) {
+}
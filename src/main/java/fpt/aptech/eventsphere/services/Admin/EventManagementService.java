@@ -1,12 +1,16 @@
 package fpt.aptech.eventsphere.services.Admin;
 
+import fpt.aptech.eventsphere.configs.CacheConfig;
 import fpt.aptech.eventsphere.dto.admin.EventManagementDTO;
 import fpt.aptech.eventsphere.dto.admin.EventSearchRequestDTO;
 import fpt.aptech.eventsphere.dto.admin.EventWithCountDTO;
 import fpt.aptech.eventsphere.models.Events;
 import fpt.aptech.eventsphere.models.Registrations;
 import fpt.aptech.eventsphere.repositories.admin.AdminEventRepository;
+import fpt.aptech.eventsphere.services.EventSearchService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -25,6 +29,8 @@ public class EventManagementService {
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(EventManagementService.class);
     @Autowired
     private AdminEventRepository adminEventRepository;
+    @Autowired
+    private EventSearchService eventSearchService;
 
     @Transactional(readOnly = true)
     public EventManagementDTO getEventById(Integer id) {
@@ -55,9 +61,9 @@ public class EventManagementService {
                                     reg.getRegistrationId(),
                                     reg.getStatus() != null ? reg.getStatus() : "NULL"));
 
-                    // Log the number of confirmed registrations
+                    // Log the number of confirmed registrations (checked-in attendees keep their seat)
                     long confirmedCount = event.getRegistrations().stream()
-                            .filter(reg -> reg.getStatus() == Registrations.RegistrationStatus.CONFIRMED)
+                            .filter(reg -> reg.getStatus() != null && reg.getStatus().holdsSeat())
                             .count();
                     log.debug("Event has {} confirmed registrations", confirmedCount);
                 }
@@ -95,12 +101,12 @@ public class EventManagementService {
             );
 
             // Get normalized search parameters
-            String keyword = searchRequest.hasKeyword() ? searchRequest.getKeyword().trim().toLowerCase() : null;
+            String searchQuery = searchRequest.hasKeyword() ? EventSearchService.toPrefixQuery(searchRequest.getKeyword()) : null;
             String category = searchRequest.hasCategory() ? searchRequest.getCategory().trim() : null;
             String organizerName = searchRequest.hasOrganizerName() ? searchRequest.getOrganizerName().trim().toLowerCase() : null;
 
-            log.debug("Searching events with normalized params - keyword: '{}', category: '{}', organizerName: '{}', status: {}",
-                    keyword, category, organizerName, searchRequest.getStatus());
+            log.debug("Searching events with normalized params - query: '{}', category: '{}', organizerName: '{}', status: {}",
+                    searchQuery, category, organizerName, searchRequest.getStatus());
 
             // Get status from search request
             Events.EventStatus status = null;
@@ -114,7 +120,7 @@ public class EventManagementService {
 
             // Use the repository method with logging
             Page<EventWithCountDTO> eventsPage = adminEventRepository.searchEventsWithLogging(
-                    keyword, category, organizerName, status, pageable
+                    searchQuery, category, organizerName, status, pageable
             );
 
             if (eventsPage.getTotalElements() == 0) {
@@ -122,7 +128,20 @@ public class EventManagementService {
             }
 
             // Convert Page<EventWithCountDTO> to Page<EventManagementDTO>
-            return eventsPage.map(dto -> convertToDto(dto.getEvent(), dto.getConfirmedCount()));
+            Page<EventManagementDTO> result = eventsPage.map(dto -> convertToDto(dto.getEvent(), dto.getConfirmedCount()));
+            if (searchQuery != null && result.hasContent()) {
+                Map<Integer, EventSearchService.Highlight> highlights = eventSearchService.highlight(
+                        result.getContent().stream().map(dto -> dto.getId().intValue()).toList(),
+                        searchRequest.getKeyword());
+                result.forEach(dto -> {
+                    EventSearchService.Highlight highlight = highlights.get(dto.getId().intValue());
+                    if (highlight != null) {
+                        dto.setHighlightedName(highlight.title());
+                        dto.setHighlightedDescription(highlight.snippet());
+                    }
+                });
+            }
+            return result;
 
         } catch (Exception e) {
             log.error("Error in searchAndSortEvents: {}", e.getMessage(), e);
@@ -211,7 +230,7 @@ public class EventManagementService {
                         .peek(reg -> log.debug("Registration ID: {}, Status: {}",
                                 reg.getRegistrationId(),
                                 reg.getStatus() != null ? reg.getStatus() : "NULL"))
-                        .filter(reg -> reg.getStatus() == Registrations.RegistrationStatus.CONFIRMED)
+                        .filter(reg -> reg.getStatus() != null && reg.getStatus().holdsSeat())
                         .peek(reg -> log.debug("Confirmed registration found: {}", reg.getRegistrationId()))
                         .count();
 
@@ -241,6 +260,7 @@ public class EventManagementService {
 
 
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.EVENT_CATEGORIES, allEntries = true)
     public boolean updateEventDetails(int eventId, String title, String description, String category,
                                       LocalDateTime startDate, LocalDateTime endDate, String imagePath) {
         try {
@@ -267,6 +287,7 @@ public class EventManagementService {
         }
     }
 
+    @Cacheable(CacheConfig.EVENT_CATEGORIES)
     public List<String> getAllEventCategories() {
         return adminEventRepository.findAllEventCategories();
     }
@@ -6,16 +6,16 @@ import fpt.aptech.eventsphere.models.admin.EventsModel;
 import fpt.aptech.eventsphere.models.admin.EventsModel.Status;
 import fpt.aptech.eventsphere.repositories.UserRepository;
 import fpt.aptech.eventsphere.repositories.admin.*;
+import fpt.aptech.eventsphere.services.EventSearchService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.*;
+import org.springframework.data.jpa.domain.JpaSort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -30,77 +30,22 @@ public class EventModerationService {
     @Autowired
     private UserRepository userRepository;
 
-public Page<EventModerationDTO> searchAndSortAllEvents(EventModelSearchDTO searchRequest) {
-    System.out.println("=== DEBUG EventModerationService.searchAndSortAllEvents ===");
-    System.out.println("Search request status: " + searchRequest.getStatus());
-    System.out.println("Keyword: " + searchRequest.getKeyword());
-    System.out.println("Category: " + searchRequest.getCategory());
-    System.out.println("Organizer: " + searchRequest.getOrganizerName());
-
-    List<Object[]> results = adminEventModelRepository.searchEventsModel(
-        searchRequest.getStatus(), // This can be null to get all statuses
-        searchRequest.hasKeyword() ? searchRequest.getKeyword() : null,
-        searchRequest.hasCategory() ? searchRequest.getCategory() : null,
-        searchRequest.hasOrganizer() ? searchRequest.getOrganizerName() : null
-    );
-
-    System.out.println("Raw results from database: " + results.size());
-
-    // Convert to DTOs
-    List<EventModerationDTO> events = convertToEventModerationDTO(results);
-    System.out.println("Converted to DTOs: " + events.size());
-
-    // Apply sorting
-    events = applySorting(events, searchRequest.getSortBy(), searchRequest.getSortDirection());
-    System.out.println("After sorting: " + events.size());
-
-    // Apply pagination
-    int start = searchRequest.getPage() * searchRequest.getSize();
-    int end = Math.min(start + searchRequest.getSize(), events.size());
-    
-    System.out.println("Pagination - start: " + start + ", end: " + end);
-    
-    List<EventModerationDTO> pagedEvents = events.subList(start, end);
-    System.out.println("Paged events: " + pagedEvents.size());
-    
-    return new PageImpl<>(pagedEvents, 
-                        PageRequest.of(searchRequest.getPage(), searchRequest.getSize()), 
-                        events.size());
-}
-
-    private List<EventModerationDTO> convertToEventModerationDTO(List<Object[]> results) {
-        return results.stream().map(row -> {
-            EventModerationDTO dto = new EventModerationDTO();
-            
-            dto.setEventModelId((Integer) row[0]);
-            dto.setStatus((Status) row[1]);
-            dto.setSubmitAt((LocalDateTime) row[2]);
-            dto.setUpdatedAt((LocalDateTime) row[3]);
-            dto.setAdminComment((String) row[4]);
-            dto.setOrgannizerComment((String) row[5]);
-            
-            dto.setEventId((Integer) row[6]);
-            dto.setTitle((String) row[7]);
-            dto.setDescription((String) row[8]);
-            dto.setCategory((String) row[9]);
-            dto.setStartDate((LocalDateTime) row[10]);
-            dto.setEndDate((LocalDateTime) row[11]);
-            dto.setImageUrl((String) row[12]);
-            
-            dto.setVenueName((String) row[13]);
-            dto.setOrganizerId((Integer) row[14]);
-            dto.setOrganizerName((String) row[15]);
-            dto.setOrganizerEmail((String) row[16]);
-            
-            dto.setTotalSeats((Integer) row[17]);
-            dto.setSeatsBooked((Integer) row[18]);
-            dto.setWaitlistEnabled((Boolean) row[19]);
-
-//            dto.setReviewedByEmail((String) row[20]);
-            dto.setModerationCreatedAt((LocalDateTime) row[21]);
-            
-            return dto;
-        }).collect(Collectors.toList());
+    // Same cut-off as the user autocomplete, for the typo-tolerant organizer filter
+    @Value("${app.admin.autocomplete.threshold:0.3}")
+    private double organizerNameThreshold;
+
+    public Page<EventModerationDTO> searchAndSortAllEvents(EventModelSearchDTO searchRequest) {
+        Pageable pageable = PageRequest.of(searchRequest.getPage(), searchRequest.getSize(),
+                moderationSort(searchRequest.getSortBy(), searchRequest.getSortDirection()));
+
+        return adminEventModelRepository.findModerationPage(
+                searchRequest.getStatus(), // This can be null to get all statuses
+                searchRequest.hasKeyword() ? EventSearchService.toPrefixQuery(searchRequest.getKeyword()) : null,
+                searchRequest.hasCategory() ? searchRequest.getCategory() : null,
+                searchRequest.hasOrganizer() ? searchRequest.getOrganizerName() : null,
+                organizerNameThreshold,
+                pageable
+        );
     }
 
     public boolean submitEventForReview(Integer eventId, String organizerComment) {
@@ -252,40 +197,21 @@ public Page<EventModerationDTO> searchAndSortAllEvents(EventModelSearchDTO searc
         return dto;
     }
 
-    private List<EventModerationDTO> applySorting(List<EventModerationDTO> events, String sortBy, String sortDirection) {
-        Comparator<EventModerationDTO> comparator;
-
-        switch (sortBy.toLowerCase()) {
-            case "title":
-                comparator = Comparator.comparing(e -> e.getTitle() != null ? e.getTitle().toLowerCase() : "");
-                break;
-            case "category":
-                comparator = Comparator.comparing(e -> e.getCategory() != null ? e.getCategory().toLowerCase() : "");
-                break;
-            case "organizername":
-                comparator = Comparator.comparing(e -> e.getOrganizerName() != null ? e.getOrganizerName().toLowerCase() : "");
-                break;
-            case "startdate":
-                comparator = Comparator.comparing(e -> e.getStartDate() != null ? e.getStartDate() : LocalDateTime.MIN);
-                break;
-            case "status":
-                comparator = Comparator.comparing(EventModerationDTO::getStatus);
-                break;
-            case "updatedat":
-                comparator = Comparator.comparing(e -> e.getUpdatedAt() != null ? e.getUpdatedAt() : LocalDateTime.MIN);
-                break;
-            default: // submitAt
-                comparator = Comparator.comparing(e -> e.getSubmitAt() != null ? e.getSubmitAt() : LocalDateTime.MIN);
-                break;
-        }
-
-        if ("desc".equalsIgnoreCase(sortDirection)) {
-            comparator = comparator.reversed();
-        }
-
-        return events.stream()
-                   .sorted(comparator)
-                   .collect(Collectors.toList());
+    // Only these sort keys reach the query; anything else sorts by submitAt. eventModelId breaks ties
+    // so pages stay stable.
+    private Sort moderationSort(String sortBy, String sortDirection) {
+        Sort.Direction direction = "desc".equalsIgnoreCase(sortDirection) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        String key = sortBy != null ? sortBy.toLowerCase() : "";
+        Sort sort = switch (key) {
+            case "title" -> Sort.by(direction, "event.title");
+            case "category" -> Sort.by(direction, "event.category");
+            case "organizername" -> JpaSort.unsafe(direction, "COALESCE(od.fullName, o.email)");
+            case "startdate" -> Sort.by(direction, "event.startDate");
+            case "status" -> Sort.by(direction, "status");
+            case "updatedat" -> Sort.by(direction, "updatedAt");
+            default -> Sort.by(direction, "submitAt");
+        };
+        return sort.and(Sort.by(direction, "eventModelId"));
     }
 
 }
\ No newline at end of file
@@ -1,17 +1,22 @@
 package fpt.aptech.eventsphere.services.Admin;
 
+import fpt.aptech.eventsphere.configs.CacheConfig;
 import fpt.aptech.eventsphere.dto.admin.UserManagementDTO;
 import fpt.aptech.eventsphere.dto.admin.UserSearchRequestDTO;
+import fpt.aptech.eventsphere.dto.admin.UserSuggestionDTO;
 import fpt.aptech.eventsphere.repositories.RoleRepository;
 import fpt.aptech.eventsphere.repositories.admin.AdminUserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,32 +26,27 @@ public class UserManagementService {
     @Autowired
     private RoleRepository roleRepository;
 
+    // Lowest word similarity (0..1) a name or email needs to be suggested
+    @Value("${app.admin.autocomplete.threshold:0.3}")
+    private double autocompleteThreshold;
+
+    private static final int MIN_AUTOCOMPLETE_LENGTH = 2;
+    private static final int MAX_SUGGESTIONS = 20;
+
     public Page<UserManagementDTO> searchAndSortUsers(UserSearchRequestDTO searchRequest) {
-        List<Object[]> results = adminUserRepository.searchUsersForManagement(
-                searchRequest.hasKeyword() ? searchRequest.getKeyword() : null,
+        // Filtering, sorting and paging all happen in the database; roles come aggregated in the same row
+        List<UserManagementDTO> users = convertToUserManagementDTO(adminUserRepository.searchUsersPage(searchRequest));
+
+        long total = adminUserRepository.countSearchUsersForManagement(
+                searchRequest.keywordPattern(),
                 searchRequest.hasDepartment() ? searchRequest.getDepartment() : null,
                 searchRequest.hasRole() ? searchRequest.getRole() : null,
                 searchRequest.hasActiveFilter() ? searchRequest.getIsActive() : null
         );
 
-        // Convert Object[] to UserManagementDTO
-        List<UserManagementDTO> users = convertToUserManagementDTO(results);
-
-        // Enrich with roles data
-        users = enrichUsersWithRoles(users);
-
-        // Apply sorting
-        users = applySorting(users, searchRequest.getSortBy(), searchRequest.getSortDirection());
-
-        // Apply pagination
-        int start = searchRequest.getPage() * searchRequest.getSize();
-        int end = Math.min(start + searchRequest.getSize(), users.size());
-
-        List<UserManagementDTO> pagedUsers = users.subList(start, end);
-
-        return new PageImpl<>(pagedUsers,
+        return new PageImpl<>(users,
                 PageRequest.of(searchRequest.getPage(), searchRequest.getSize()),
-                users.size());
+                total);
     }
 
     private List<UserManagementDTO> convertToUserManagementDTO(List<Object[]> results) {
@@ -64,6 +64,7 @@ public class UserManagementService {
             dto.setCreatedAt((java.time.LocalDateTime) row[9]);
             dto.setAvatar((String) row[10]);
             dto.setAddress((String) row[11]);
+            dto.setRoles(row[12] != null ? List.of(((String) row[12]).split(",")) : List.of());
 
             // Initialize empty values for statistics
             dto.setEventsAttended(java.math.BigDecimal.ZERO);
@@ -74,58 +75,36 @@ public class UserManagementService {
         }).collect(Collectors.toList());
     }
 
-    private List<UserManagementDTO> enrichUsersWithRoles(List<UserManagementDTO> users) {
-        for (UserManagementDTO user : users) {
-            // Get roles for each user - now returns List<String> directly
-            List<String> roles = adminUserRepository.findRolesByUserId(user.getUserId());
-            user.setRoles(roles);
+    /**
+     * Users whose name or email looks like the typed text, best match first. Tolerates typos;
+     * role (e.g. "ORGANIZER") narrows the result, null or blank means any non-admin user.
+     */
+    @Transactional(readOnly = true)
+    public List<UserSuggestionDTO> suggestUsers(String term, String role, int limit) {
+        String query = term != null ? term.trim().toLowerCase(Locale.ROOT) : "";
+        if (query.length() < MIN_AUTOCOMPLETE_LENGTH) {
+            return List.of();
         }
-        return users;
+        adminUserRepository.setWordSimilarityThreshold(Double.toString(autocompleteThreshold));
+        List<Object[]> rows = adminUserRepository.suggestUsers(query,
+                role != null ? role.trim().toUpperCase(Locale.ROOT) : "",
+                Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
+        return rows.stream()
+                .map(row -> new UserSuggestionDTO(((Number) row[0]).intValue(), (String) row[1],
+                        (String) row[2], ((Number) row[3]).doubleValue()))
+                .toList();
     }
 
+    @Cacheable(CacheConfig.DEPARTMENTS)
     public List<String> getAllDepartments() {
         return adminUserRepository.findAllDepartments();
     }
 
+    @Cacheable(CacheConfig.ROLE_NAMES)
     public List<String> getAllRoles() {
         return adminUserRepository.findAllRoles();
     }
 
-    private List<UserManagementDTO> applySorting(List<UserManagementDTO> users, String sortBy, String sortDirection) {
-        Comparator<UserManagementDTO> comparator;
-
-        switch (sortBy.toLowerCase()) {
-            case "email":
-                comparator = Comparator.comparing(u -> u.getEmail() != null ? u.getEmail().toLowerCase() : "");
-                break;
-            case "fullname":
-                comparator = Comparator.comparing(u -> u.getFullName() != null ? u.getFullName().toLowerCase() : "");
-                break;
-            case "department":
-                comparator = Comparator.comparing(u -> u.getDepartment() != null ? u.getDepartment().toLowerCase() : "");
-                break;
-            case "createdat":
-                comparator = Comparator.comparing(u -> u.getCreatedAt() != null ? u.getCreatedAt() : java.time.LocalDateTime.MIN);
-                break;
-            case "isactive":
-                comparator = Comparator.comparing(UserManagementDTO::isActive);
-                break;
-            case "roles":
-                comparator = Comparator.comparing(u -> u.getRoles() != null && !u.getRoles().isEmpty() ? u.getRoles().get(0) : "");
-                break;
-            default: // userId
-                comparator = Comparator.comparing(UserManagementDTO::getUserId);
-                break;
-        }
-
-        if ("desc".equalsIgnoreCase(sortDirection)) {
-            comparator = comparator.reversed();
-        }
-
-        return users.stream()
-                .sorted(comparator)
-                .collect(Collectors.toList());
-    }
     public long getTotalUserCount() {
         return adminUserRepository.countByIsDeletedFalseAndNotAdmin();
     }
@@ -0,0 +1,242 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.dto.BulkSendResult;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.*;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Sends many messages over a small pool of already-connected SMTP transports.
+ * <p>
+ * JavaMailSender.send connects, negotiates STARTTLS and authenticates on every call; here a
+ * connection is reused for up to {@code maxMessagesPerConnection} messages and kept open
+ * between calls until it has been idle too long. Results are reported per recipient.
+ */
+@Service
+public class BulkMailSender {
+    private static final Logger logger = LoggerFactory.getLogger(BulkMailSender.class);
+
+    private final JavaMailSenderImpl mailSender;
+    private final BlockingQueue<PooledTransport> idleTransports;
+    private final Semaphore permits;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int chunkSize;
+    private final int maxMessagesPerConnection;
+    private final long maxIdleMillis;
+
+    public BulkMailSender(JavaMailSenderImpl mailSender,
+                          @Value("${app.mail.pool.size:4}") int poolSize,
+                          @Value("${app.mail.pool.chunk-size:50}") int chunkSize,
+                          @Value("${app.mail.pool.max-messages-per-connection:100}") int maxMessagesPerConnection,
+                          @Value("${app.mail.pool.max-idle-ms:30000}") long maxIdleMillis) {
+        this.mailSender = mailSender;
+        this.idleTransports = new ArrayBlockingQueue<>(poolSize);
+        this.permits = new Semaphore(poolSize);
+        this.chunkSize = chunkSize;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    public MimeMessage createMimeMessage() {
+        return mailSender.createMimeMessage();
+    }
+
+    /**
+     * Splits the messages into chunks and sends the chunks in parallel, one pooled connection each.
+     */
+    public BulkSendResult sendAll(List<MimeMessage> messages) {
+        List<Future<BulkSendResult>> futures = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i += chunkSize) {
+            List<MimeMessage> chunk = messages.subList(i, Math.min(i + chunkSize, messages.size()));
+            futures.add(executor.submit(() -> sendChunk(chunk)));
+        }
+
+        BulkSendResult result = new BulkSendResult();
+        for (Future<BulkSendResult> future : futures) {
+            try {
+                result.merge(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while sending bulk email", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Bulk email chunk failed", e.getCause());
+            }
+        }
+        logger.info("Bulk send finished - sent: {}, failed: {}",
+                result.getSentRecipients().size(), result.getFailedRecipients().size());
+        return result;
+    }
+
+    /**
+     * Sends the messages sequentially over one pooled connection.
+     */
+    public BulkSendResult sendChunk(List<MimeMessage> messages) {
+        BulkSendResult result = new BulkSendResult();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            messages.forEach(message -> failAll(message, e, result));
+            return result;
+        }
+
+        PooledTransport transport = null;
+        int next = 0;
+        try {
+            transport = borrow();
+            for (; next < messages.size(); next++) {
+                if (transport.sent >= maxMessagesPerConnection) {
+                    close(transport);
+                    transport = connect();
+                }
+                if (!send(transport, messages.get(next), result)) {
+                    // Connection dropped mid-chunk; carry on with a fresh one
+                    close(transport);
+                    transport = connect();
+                }
+            }
+        } catch (MessagingException e) {
+            // Could not (re)connect: every message not yet attempted fails
+            logger.error("SMTP connection to {}:{} failed", mailSender.getHost(), mailSender.getPort(), e);
+            if (transport != null) {
+                close(transport);
+                transport = null;
+            }
+            for (; next < messages.size(); next++) {
+                failAll(messages.get(next), e, result);
+            }
+        } finally {
+            if (transport != null) {
+                transport.lastUsed = System.currentTimeMillis();
+                if (!idleTransports.offer(transport)) {
+                    close(transport);
+                }
+            }
+            permits.release();
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        PooledTransport transport;
+        while ((transport = idleTransports.poll()) != null) {
+            close(transport);
+        }
+    }
+
+    /**
+     * @return false if the connection broke and must not be reused
+     */
+    private boolean send(PooledTransport transport, MimeMessage message, BulkSendResult result) {
+        Address[] recipients;
+        try {
+            if (message.getSentDate() == null) {
+                message.setSentDate(new Date());
+            }
+            message.saveChanges();
+            recipients = message.getAllRecipients();
+            if (recipients == null || recipients.length == 0) {
+                throw new SendFailedException("No recipient addresses");
+            }
+        } catch (MessagingException e) {
+            failAll(message, e, result);
+            return true;
+        }
+
+        try {
+            transport.transport.sendMessage(message, recipients);
+            transport.sent++;
+            for (Address recipient : recipients) {
+                result.addSent(recipient.toString());
+            }
+            return true;
+        } catch (SendFailedException e) {
+            // Rejected by the server for some or all recipients; the connection is still usable
+            transport.sent++;
+            addAll(e.getValidSentAddresses(), result::addSent);
+            addAll(e.getInvalidAddresses(), address -> result.addFailed(address, "Invalid address"));
+            addAll(e.getValidUnsentAddresses(), address -> result.addFailed(address, e.getMessage()));
+            result.addFailedMessage(message, e);
+            return true;
+        } catch (MessagingException e) {
+            failAll(message, e, result);
+            return false;
+        }
+    }
+
+    /**
+     * Takes an idle connection that is still fresh, or opens a new one.
+     */
+    private PooledTransport borrow() throws MessagingException {
+        PooledTransport pooled;
+        while ((pooled = idleTransports.poll()) != null) {
+            boolean stale = System.currentTimeMillis() - pooled.lastUsed > maxIdleMillis;
+            if (!stale && pooled.transport.isConnected()) {
+                return pooled;
+            }
+            close(pooled);
+        }
+        return connect();
+    }
+
+    private PooledTransport connect() throws MessagingException {
+        Session session = mailSender.getSession();
+        // Same fallback as JavaMailSenderImpl: spring.mail.protocol is optional
+        String protocol = mailSender.getProtocol();
+        if (protocol == null) {
+            protocol = session.getProperty("mail.transport.protocol");
+        }
+        if (protocol == null) {
+            protocol = JavaMailSenderImpl.DEFAULT_PROTOCOL;
+        }
+        Transport transport = session.getTransport(protocol);
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        logger.debug("Opened SMTP connection to {}:{}", mailSender.getHost(), mailSender.getPort());
+        return new PooledTransport(transport);
+    }
+
+    private void close(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Error closing SMTP connection", e);
+        }
+    }
+
+    private void failAll(MimeMessage message, Exception cause, BulkSendResult result) {
+        result.addFailedMessage(message, cause);
+        try {
+            addAll(message.getAllRecipients(), address -> result.addFailed(address, cause.getMessage()));
+        } catch (MessagingException ignored) {
+            // recipients unreadable, the message-level failure is already recorded
+        }
+    }
+
+    private static void addAll(Address[] addresses, java.util.function.Consumer<String> sink) {
+        if (addresses != null) {
+            for (Address address : addresses) {
+                sink.accept(address.toString());
+            }
+        }
+    }
+
+    private static final class PooledTransport {
+        final Transport transport;
+        int sent;
+        long lastUsed = System.currentTimeMillis();
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.models.CertificateBatchJob;
+import fpt.aptech.eventsphere.models.Certificates;
+import fpt.aptech.eventsphere.models.Events;
+import fpt.aptech.eventsphere.repositories.CertificateBatchJobRepository;
+import fpt.aptech.eventsphere.repositories.CertificateRepository;
+import fpt.aptech.eventsphere.repositories.EventRepository;
+import fpt.aptech.eventsphere.services.Admin.DashboardDataChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Issues and renders the certificates of a whole event in one organizer-started job.
+ * <p>
+ * Issuing is a single INSERT ... SELECT over the event's attendees. The PDFs are then rendered
+ * in chunks on a fixed-size pool into the CertificatePdfStore, where they are kept under a hash
+ * of their content: a certificate already rendered (by an earlier run or a participant's own
+ * download) is not rendered again, and one whose event or student was edited since is. A job
+ * is only COMPLETED once every certificate is rendered; one interrupted by shutdown stays
+ * RUNNING and resumes on the next start. The finished set is downloaded as a ZIP built while it
+ * is sent, one file at a time.
+ */
+@Service
+public class CertificateBatchService {
+    private static final Logger logger = LoggerFactory.getLogger(CertificateBatchService.class);
+
+    private final CertificateRepository certificateRepository;
+    private final CertificateBatchJobRepository jobRepository;
+    private final EventRepository eventRepository;
+    private final CertificatePdfStore certificatePdfStore;
+    private final EventStatisticsService eventStatisticsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int chunkSize;
+    private final ExecutorService renderPool;
+    private final Map<Integer, RunningJob> running = new ConcurrentHashMap<>();
+    private volatile boolean stopping;
+
+    public CertificateBatchService(CertificateRepository certificateRepository,
+                                   CertificateBatchJobRepository jobRepository,
+                                   EventRepository eventRepository,
+                                   CertificatePdfStore certificatePdfStore,
+                                   EventStatisticsService eventStatisticsService,
+                                   ApplicationEventPublisher eventPublisher,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.certificates.batch.threads:4}") int threads,
+                                   @Value("${app.certificates.batch.chunk-size:50}") int chunkSize) {
+        this.certificateRepository = certificateRepository;
+        this.jobRepository = jobRepository;
+        this.eventRepository = eventRepository;
+        this.certificatePdfStore = certificatePdfStore;
+        this.eventStatisticsService = eventStatisticsService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        // Rendering is CPU-bound, so a small fixed pool rather than a thread per chunk
+        this.renderPool = Executors.newFixedThreadPool(threads);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        for (CertificateBatchJob job : jobRepository.findByStatus(CertificateBatchJob.JobStatus.RUNNING)) {
+            logger.info("Resuming certificate batch {} for event {}", job.getId(), job.getEventId());
+            launch(job);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopping = true;
+        // The job threads wait on their chunks; interrupting them leaves the jobs RUNNING
+        running.values().forEach(run -> run.thread.interrupt());
+        renderPool.shutdownNow();
+    }
+
+    /**
+     * Issues certificates to every attendee of the event who has none yet and starts rendering
+     * all of the event's certificates in the background. Starting again after a failed or
+     * finished run only does the missing work. Returns the running job.
+     */
+    public synchronized CertificateBatchJob start(int eventId) {
+        RunningJob current = running.get(eventId);
+        if (current != null) {
+            return current.job;
+        }
+        Events event = eventRepository.findById(eventId)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid event ID"));
+        if (event.getEndDate() != null && event.getEndDate().isAfter(LocalDateTime.now())) {
+            throw new IllegalStateException("Certificates can only be issued once the event has ended.");
+        }
+        boolean paid = event.getCertificateFee() == null || event.getCertificateFee() <= 0;
+
+        CertificateBatchJob job = transactionTemplate.execute(status -> {
+            int issued = certificateRepository.issueForAttendees(eventId, LocalDateTime.now(), paid);
+            logger.info("Issued {} certificate(s) for event {}", issued, eventId);
+            CertificateBatchJob created = new CertificateBatchJob();
+            created.setEventId(eventId);
+            created.setStartedAt(LocalDateTime.now());
+            return jobRepository.save(created);
+        });
+        // The bulk insert bypasses the entity listeners
+        eventStatisticsService.evict(eventId);
+        eventPublisher.publishEvent(new DashboardDataChangedEvent(Certificates.class));
+
+        launch(job);
+        return job;
+    }
+
+    /**
+     * The event's current or most recent job, with live counts while it runs.
+     */
+    public Optional<BatchProgress> getProgress(int eventId) {
+        RunningJob current = running.get(eventId);
+        if (current != null) {
+            return Optional.of(current.progress());
+        }
+        return jobRepository.findFirstByEventIdOrderByIdDesc(eventId).map(BatchProgress::of);
+    }
+
+    /**
+     * Writes the rendered certificates of the event as a ZIP, reading one PDF at a time. A
+     * certificate edited since the job ran is rendered again on the way.
+     */
+    public void writeZip(int eventId, OutputStream out) throws IOException {
+        BatchProgress progress = getProgress(eventId).orElse(null);
+        if (progress == null || progress.status() != CertificateBatchJob.JobStatus.COMPLETED) {
+            throw new IllegalStateException("The certificates of this event have not been generated yet.");
+        }
+        List<Integer> ids = certificateRepository.findIdsByEventId(eventId);
+
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out));
+        // PDF content streams are already compressed
+        zip.setLevel(Deflater.BEST_SPEED);
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Certificates> chunk = new ArrayList<>(
+                    certificateRepository.findForRendering(ids.subList(from, Math.min(from + chunkSize, ids.size()))));
+            chunk.sort(Comparator.comparing(Certificates::getCertificateId));
+            for (Certificates certificate : chunk) {
+                Path file = certificatePdfStore.store(certificate);
+                zip.putNextEntry(new ZipEntry(certificate.getCertificateId() + "_"
+                        + certificate.getStudent().getEmail().replaceAll("[^A-Za-z0-9._@-]", "_") + ".pdf"));
+                Files.copy(file, zip);
+                zip.closeEntry();
+            }
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    private void launch(CertificateBatchJob job) {
+        if (stopping) {
+            return; // stays RUNNING for the next start
+        }
+        RunningJob run = new RunningJob(job);
+        run.thread = Thread.ofVirtual().name("certificate-batch-" + job.getEventId()).unstarted(() -> run(run));
+        if (running.putIfAbsent(job.getEventId(), run) != null) {
+            return;
+        }
+        run.thread.start();
+    }
+
+    private void run(RunningJob run) {
+        CertificateBatchJob job = run.job;
+        try {
+            List<Integer> ids = certificateRepository.findIdsByEventId(job.getEventId());
+
+            // Certificates already in the store are counted as they are reached, without rendering
+            job.setTotal(ids.size());
+            run.rendered.set(0);
+            run.failed.set(0);
+            job.setRendered(0);
+            job.setFailed(0);
+            jobRepository.save(job);
+
+            List<Future<?>> chunks = new ArrayList<>();
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+                chunks.add(renderPool.submit(() -> {
+                    renderChunk(run, chunk);
+                    return null;
+                }));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+            if (run.failed.get() == 0 && run.rendered.get() == job.getTotal()) {
+                finish(run, CertificateBatchJob.JobStatus.COMPLETED, null);
+            } else {
+                finish(run, CertificateBatchJob.JobStatus.FAILED, run.lastError != null ? run.lastError
+                        : run.rendered.get() + " of " + job.getTotal() + " certificates rendered");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("Certificate batch {} for event {} interrupted, resuming on next start", job.getId(), job.getEventId());
+        } catch (ExecutionException | RuntimeException e) {
+            if (stopping || e.getCause() instanceof InterruptedException) {
+                // A chunk was interrupted, or the pool refused it while shutting down: leave it RUNNING
+                logger.info("Certificate batch {} for event {} interrupted, resuming on next start", job.getId(), job.getEventId());
+            } else {
+                logger.error("Certificate batch {} for event {} failed", job.getId(), job.getEventId(), e);
+                finish(run, CertificateBatchJob.JobStatus.FAILED, e.getMessage());
+            }
+        } finally {
+            running.remove(job.getEventId(), run);
+        }
+    }
+
+    private void renderChunk(RunningJob run, List<Integer> ids) throws InterruptedException {
+        for (Certificates certificate : certificateRepository.findForRendering(ids)) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            try {
+                certificatePdfStore.store(certificate);
+                run.rendered.incrementAndGet();
+            } catch (Exception e) {
+                if (Thread.interrupted()) {
+                    // e.g. ClosedByInterruptException: not a failure of this certificate
+                    throw new InterruptedException();
+                }
+                logger.warn("Could not render certificate {}: {}", certificate.getCertificateId(), e.getMessage());
+                run.failed.incrementAndGet();
+                run.lastError = "Certificate " + certificate.getCertificateId() + ": " + e.getMessage();
+            }
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                jobRepository.updateProgress(run.job.getId(), run.rendered.get(), run.failed.get()));
+    }
+
+    private void finish(RunningJob run, CertificateBatchJob.JobStatus status, String error) {
+        CertificateBatchJob job = run.job;
+        job.setStatus(status);
+        job.setRendered(run.rendered.get());
+        job.setFailed(run.failed.get());
+        job.setFinishedAt(LocalDateTime.now());
+        job.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+        jobRepository.save(job);
+        logger.info("Certificate batch {} for event {} {}: {} of {} rendered, {} failed", job.getId(),
+                job.getEventId(), status, job.getRendered(), job.getTotal(), job.getFailed());
+    }
+
+    private static final class RunningJob {
+        final CertificateBatchJob job;
+        volatile Thread thread;
+        final AtomicInteger rendered = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        volatile String lastError;
+
+        RunningJob(CertificateBatchJob job) {
+            this.job = job;
+        }
+
+        BatchProgress progress() {
+            return new BatchProgress(job.getId(), CertificateBatchJob.JobStatus.RUNNING, job.getTotal(),
+                    rendered.get(), failed.get(), job.getStartedAt(), null, lastError);
+        }
+    }
+
+    public record BatchProgress(Long jobId, CertificateBatchJob.JobStatus status, int total, int rendered,
+                                int failed, LocalDateTime startedAt, LocalDateTime finishedAt, String lastError) {
+        static BatchProgress of(CertificateBatchJob job) {
+            return new BatchProgress(job.getId(), job.getStatus(), job.getTotal(), job.getRendered(),
+                    job.getFailed(), job.getStartedAt(), job.getFinishedAt(), job.getLastError());
+        }
+    }
+}
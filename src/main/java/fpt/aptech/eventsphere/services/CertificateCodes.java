@@ -0,0 +1,56 @@
+package fpt.aptech.eventsphere.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Public certificate codes, printed on the PDF and used to verify it: the certificate ID
+ * followed by an HMAC-SHA256 (truncated to 80 bits) over certificate, event and student ID.
+ * Without app.certificates.verify.secret a valid code cannot be derived from the ID, and
+ * changing the secret invalidates every printed code.
+ */
+@Component
+public class CertificateCodes {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_HEX_LENGTH = 20;
+    private static final Pattern FORMAT = Pattern.compile("\\d{1,10}-[0-9A-F]{" + SIGNATURE_HEX_LENGTH + "}");
+
+    private final SecretKeySpec key;
+
+    public CertificateCodes(@Value("${app.certificates.verify.secret}") String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("app.certificates.verify.secret must be set");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    public String codeFor(int certificateId, int eventId, int studentId) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            byte[] signature = mac.doFinal((certificateId + ":" + eventId + ":" + studentId).getBytes(StandardCharsets.UTF_8));
+            return certificateId + "-" + HexFormat.of().withUpperCase().formatHex(signature).substring(0, SIGNATURE_HEX_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign certificate code", e);
+        }
+    }
+
+    /**
+     * The code in canonical form (trimmed, upper case), or null if it isn't shaped like one.
+     */
+    public String normalize(String code) {
+        if (code == null) {
+            return null;
+        }
+        String normalized = code.trim().toUpperCase(Locale.ROOT);
+        return FORMAT.matcher(normalized).matches() ? normalized : null;
+    }
+}
@@ -0,0 +1,100 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.dto.admin.CertificateDownloadsDTO;
+import fpt.aptech.eventsphere.repositories.CertificateRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts certificate downloads in memory and adds them to certificates.download_count in
+ * periodic batches, instead of updating the row on every download.
+ * <p>
+ * Each certificate gets a LongAdder, so concurrent downloads of the same certificate don't
+ * contend. A flush takes every pending count, writes them in one JDBC batch and puts them back
+ * if the batch fails. An adder with nothing to flush has been idle for an interval and is dropped,
+ * so the map only holds recently downloaded certificates. Counts still pending at shutdown are
+ * flushed before the data source closes.
+ */
+@Service
+@Slf4j
+public class CertificateDownloadCounter {
+    private static final String FLUSH_SQL =
+            "UPDATE certificates SET download_count = download_count + ? WHERE certificate_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CertificateRepository certificateRepository;
+    private final Map<Integer, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public CertificateDownloadCounter(JdbcTemplate jdbcTemplate, CertificateRepository certificateRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.certificateRepository = certificateRepository;
+    }
+
+    public void record(int certificateId) {
+        LongAdder adder = pending.computeIfAbsent(certificateId, id -> new LongAdder());
+        adder.increment();
+        // flush() may have dropped the adder as idle in the meantime: move the count to the current one
+        if (pending.get(certificateId) != adder) {
+            long moved = adder.sumThenReset();
+            if (moved > 0) {
+                pending.computeIfAbsent(certificateId, id -> new LongAdder()).add(moved);
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.certificates.downloads.flush-interval-ms:10000}",
+            fixedDelayString = "${app.certificates.downloads.flush-interval-ms:10000}")
+    public synchronized void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        pending.forEach((certificateId, adder) -> {
+            long count = adder.sumThenReset();
+            if (count > 0) {
+                batch.add(new Object[]{count, certificateId});
+            } else if (pending.remove(certificateId, adder)) {
+                // Increments that reached the adder before the removal are taken here; later ones
+                // are moved back into the map by record()
+                long late = adder.sumThenReset();
+                if (late > 0) {
+                    batch.add(new Object[]{late, certificateId});
+                }
+            }
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+            log.debug("Flushed download counts of {} certificate(s)", batch.size());
+        } catch (Exception e) {
+            log.warn("Could not flush certificate download counts, keeping them for the next flush: {}", e.getMessage());
+            for (Object[] row : batch) {
+                pending.computeIfAbsent((Integer) row[1], id -> new LongAdder()).add((Long) row[0]);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * The most downloaded certificates, as last flushed.
+     */
+    public List<CertificateDownloadsDTO> getTopDownloaded(int limit) {
+        return certificateRepository.findTopDownloaded(PageRequest.of(0, limit)).stream()
+                .map(row -> new CertificateDownloadsDTO(((Number) row[0]).intValue(), (String) row[1],
+                        (String) row[2], ((Number) row[3]).longValue()))
+                .toList();
+    }
+}
@@ -0,0 +1,99 @@
+package fpt.aptech.eventsphere.services;
+
+import com.itextpdf.text.DocumentException;
+import fpt.aptech.eventsphere.models.Certificates;
+import fpt.aptech.eventsphere.repositories.CertificateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Rendered certificate PDFs, stored as certificates/&lt;hash&gt;.pdf where the hash covers everything
+ * the certificate shows (PdfCertificateService.contentHash). Edited event or user data yields a
+ * new file, so an outdated PDF is never served again; the certificate's certificate_url points at
+ * its current file and the previous one is deleted when it moves. Used by single downloads and
+ * organizer batches alike, so each certificate is rendered once.
+ */
+@Component
+public class CertificatePdfStore {
+    private static final Logger logger = LoggerFactory.getLogger(CertificatePdfStore.class);
+    // certificate_url of a certificate whose PDF has been stored
+    private static final String STORED_PREFIX = "certificates/";
+
+    private final CertificateRepository certificateRepository;
+    private final PdfCertificateService pdfCertificateService;
+    private final Path storageLocation;
+
+    public CertificatePdfStore(CertificateRepository certificateRepository,
+                               PdfCertificateService pdfCertificateService) {
+        this.certificateRepository = certificateRepository;
+        this.pdfCertificateService = pdfCertificateService;
+        try {
+            this.storageLocation = Paths.get("certificates").toAbsolutePath();
+            Files.createDirectories(this.storageLocation);
+            logger.info("Certificate storage location: {}", this.storageLocation);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not create the directory for certificates", ex);
+        }
+    }
+
+    /**
+     * The hash the certificate's current PDF is stored under; doubles as its ETag.
+     */
+    public String hashOf(Certificates certificate) {
+        return pdfCertificateService.contentHash(certificate.getStudent(), certificate.getEvent(), certificate);
+    }
+
+    /**
+     * Where the PDF with this hash is (or would be) stored.
+     */
+    public Path pathOf(String hash) {
+        return storageLocation.resolve(hash + ".pdf");
+    }
+
+    /**
+     * Renders the certificate's PDF unless its current version is already stored, and points
+     * certificate_url at it. The student and event must be loaded.
+     * @return the stored file
+     */
+    public Path store(Certificates certificate) throws IOException {
+        String hash = hashOf(certificate);
+        Path file = pathOf(hash);
+        if (!Files.exists(file)) {
+            try {
+                byte[] pdfBytes = pdfCertificateService.generateCertificatePdf(
+                        certificate.getStudent(), certificate.getEvent(), certificate);
+                Path partial = Files.createTempFile(storageLocation, hash, ".part");
+                Files.write(partial, pdfBytes);
+                Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (DocumentException e) {
+                throw new IOException("Error generating PDF certificate", e);
+            }
+        }
+        String certificateUrl = STORED_PREFIX + file.getFileName();
+        if (!certificateUrl.equals(certificate.getCertificateUrl())) {
+            deleteStoredPdf(certificate.getCertificateUrl());
+            certificateRepository.updateCertificateUrl(certificate.getCertificateId(), certificateUrl);
+            certificate.setCertificateUrl(certificateUrl);
+        }
+        return file;
+    }
+
+    // Removes the PDF rendered from the certificate's previous data, if any
+    private void deleteStoredPdf(String certificateUrl) {
+        if (certificateUrl == null || !certificateUrl.startsWith(STORED_PREFIX)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(storageLocation.resolve(certificateUrl.substring(STORED_PREFIX.length())));
+        } catch (IOException e) {
+            logger.warn("Could not delete outdated certificate {}: {}", certificateUrl, e.getMessage());
+        }
+    }
+}
@@ -8,7 +8,8 @@ import fpt.aptech.eventsphere.repositories.CertificateRepository;
 import fpt.aptech.eventsphere.repositories.EventRepository;
 import fpt.aptech.eventsphere.repositories.UserRepository;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -18,42 +19,28 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
-import com.itextpdf.text.*;
 
 @Service
 public class CertificateServiceImpl implements CertificateService {
-
     private final CertificateRepository certificateRepository;
     private final UserRepository userRepository;
     private final EventRepository eventRepository;
-    private final Path fileStorageLocation;
-    private final PdfCertificateService pdfCertificateService;
+    private final CertificatePdfStore certificatePdfStore;
     
 
     public CertificateServiceImpl(CertificateRepository certificateRepository,
                                 UserRepository userRepository,
                                 EventRepository eventRepository,
-                                PdfCertificateService pdfCertificateService) {
+                                CertificatePdfStore certificatePdfStore) {
         this.certificateRepository = certificateRepository;
         this.userRepository = userRepository;
         this.eventRepository = eventRepository;
-        this.pdfCertificateService = pdfCertificateService;
-        
-        try {
-            // Store certificates in the project's certificates directory
-            this.fileStorageLocation = Paths.get("certificates").toAbsolutePath();
-            Files.createDirectories(this.fileStorageLocation);
-            System.out.println("Certificate storage location: " + this.fileStorageLocation);
-        } catch (Exception ex) {
-            throw new RuntimeException("Could not create the directory for certificates", ex);
-        }
+        this.certificatePdfStore = certificatePdfStore;
     }
 
     @Override
@@ -107,21 +94,22 @@ public class CertificateServiceImpl implements CertificateService {
             throw new RuntimeException("Certificate fee has not been paid.");
         }
 
-        try {
-            byte[] pdfBytes = pdfCertificateService.generateCertificatePdf(user, event, certificate);
-            ByteArrayResource resource = new ByteArrayResource(pdfBytes);
-
-            String fileName = String.format("certificate_%s_%s.pdf",
-                    event.getTitle().replaceAll("\\s+", "_"),
-                    user.getEmail());
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
-                    .body(resource);
-        } catch (DocumentException e) {
-            throw new IOException("Error generating PDF certificate", e);
-        }
+        // Stored under a hash of what the certificate shows, so edited event or user data
+        // yields a new file and the old one is never served again
+        Path file = certificatePdfStore.store(certificate);
+        String hash = certificatePdfStore.hashOf(certificate);
+
+        String fileName = String.format("certificate_%s_%s.pdf",
+                event.getTitle().replaceAll("\\s+", "_"),
+                user.getEmail());
+
+        // A matching If-None-Match is answered with 304 by Spring MVC, without sending the file
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .eTag(hash)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(new FileSystemResource(file));
     }
 
     @Override
@@ -0,0 +1,189 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.models.Certificates;
+import fpt.aptech.eventsphere.repositories.CertificateRepository;
+import fpt.aptech.eventsphere.services.Admin.DashboardDataChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Answers public certificate verification from memory.
+ * <p>
+ * Every issued certificate's code (see CertificateCodes) is kept in a map next to a Bloom
+ * filter of the same codes. A lookup first checks the code's shape, then the filter, so
+ * malformed, forged and unknown codes are turned away without touching the map, let alone the
+ * database. New certificates are added incrementally shortly after they are committed; a
+ * periodic full rebuild drops deleted certificates and picks up edited names and titles.
+ */
+@Service
+@Slf4j
+public class CertificateVerificationService {
+    private static final int MIN_CAPACITY = 10_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    // Ids are assigned before commit, so a certificate can become visible after a higher id;
+    // incremental syncs re-read this many ids back to pick such stragglers up
+    private static final int SYNC_OVERLAP = 500;
+
+    private final CertificateRepository certificateRepository;
+    private final CertificateCodes certificateCodes;
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private volatile Index index = new Index(MIN_CAPACITY);
+
+    public CertificateVerificationService(CertificateRepository certificateRepository,
+                                          CertificateCodes certificateCodes) {
+        this.certificateRepository = certificateRepository;
+        this.certificateCodes = certificateCodes;
+    }
+
+    public Optional<Verification> verify(String code) {
+        String normalized = certificateCodes.normalize(code);
+        if (normalized == null) {
+            return Optional.empty();
+        }
+        Index current = index;
+        if (!current.bloom.mightContain(normalized)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(current.byCode.get(normalized));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.certificates.verify.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${app.certificates.verify.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        try {
+            List<Object[]> rows = certificateRepository.findVerificationRows(0);
+            Index rebuilt = new Index(Math.max(MIN_CAPACITY, rows.size() * 2));
+            rebuilt.addAll(rows);
+            index = rebuilt;
+            log.info("Certificate verification index rebuilt: {} certificate(s)", rebuilt.byCode.size());
+        } catch (Exception e) {
+            log.error("Could not rebuild the certificate verification index", e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataChanged(DashboardDataChangedEvent event) {
+        if (Certificates.class.isAssignableFrom(event.entityType())) {
+            changed.set(true);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.certificates.verify.sync-interval-ms:2000}",
+            fixedDelayString = "${app.certificates.verify.sync-interval-ms:2000}")
+    public void syncIfChanged() {
+        if (changed.getAndSet(false)) {
+            sync();
+        }
+    }
+
+    private synchronized void sync() {
+        try {
+            Index current = index;
+            List<Object[]> rows = certificateRepository.findVerificationRows(Math.max(0, current.lastId - SYNC_OVERLAP));
+            if (current.byCode.size() + rows.size() > current.capacity) {
+                // The filter would exceed its false-positive rate, so size a new one
+                rebuild();
+                return;
+            }
+            current.addAll(rows);
+        } catch (Exception e) {
+            changed.set(true);
+            log.warn("Could not sync the certificate verification index: {}", e.getMessage());
+        }
+    }
+
+    public record Verification(int certificateId, String recipient, String event,
+                               LocalDateTime eventDate, LocalDateTime issuedOn) {
+    }
+
+    private final class Index {
+        final int capacity;
+        final Map<String, Verification> byCode = new ConcurrentHashMap<>();
+        final BloomFilter bloom;
+        volatile int lastId;
+
+        Index(int capacity) {
+            this.capacity = capacity;
+            this.bloom = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        }
+
+        void addAll(List<Object[]> rows) {
+            for (Object[] row : rows) {
+                int certificateId = ((Number) row[0]).intValue();
+                String code = certificateCodes.codeFor(certificateId, ((Number) row[1]).intValue(), ((Number) row[2]).intValue());
+                // Map first: a reader that passes the filter must find the entry
+                byCode.put(code, new Verification(certificateId, (String) row[3], (String) row[4],
+                        (LocalDateTime) row[5], (LocalDateTime) row[6]));
+                bloom.add(code);
+                lastId = Math.max(lastId, certificateId);
+            }
+        }
+    }
+
+    private static final class BloomFilter {
+        private final AtomicLongArray words;
+        private final int bits;
+        private final int hashes;
+
+        BloomFilter(int expectedEntries, double falsePositiveRate) {
+            double ln2 = Math.log(2);
+            this.bits = Math.max(64, (int) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (ln2 * ln2)));
+            this.hashes = Math.max(1, (int) Math.round((double) bits / expectedEntries * ln2));
+            this.words = new AtomicLongArray((bits + 63) / 64);
+        }
+
+        void add(String value) {
+            long hash = hash64(value);
+            for (int i = 0; i < hashes; i++) {
+                int bit = index(hash, i);
+                words.getAndUpdate(bit >>> 6, word -> word | (1L << bit));
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash64(value);
+            for (int i = 0; i < hashes; i++) {
+                int bit = index(hash, i);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Double hashing: the i-th probe is h1 + i * h2
+        private int index(long hash, int i) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            return Math.floorMod(h1 + i * h2, bits);
+        }
+
+        // FNV-1a followed by the MurmurHash3 finalizer
+        private static long hash64(String value) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                h ^= value.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
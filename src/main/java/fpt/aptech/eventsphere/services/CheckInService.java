@@ -0,0 +1,208 @@
+package fpt.aptech.eventsphere.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fpt.aptech.eventsphere.models.Registrations;
+import fpt.aptech.eventsphere.repositories.EventRepository;
+import fpt.aptech.eventsphere.repositories.RegistrationRepository;
+import fpt.aptech.eventsphere.services.Admin.DashboardDataChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Door check-in from scanned ticket QR codes (see TicketCodes).
+ * <p>
+ * A scan is answered from memory: the ticket's signature proves it was issued for that
+ * registration and event, a per-event set of revoked registrations turns away tickets whose
+ * registration no longer holds a seat, and a per-event set of checked-in registrations turns
+ * away a second scan of the same ticket, whichever scanner it reaches. Only the first scan of
+ * each event at a node reads the database, to load the organizer and both sets; afterwards the
+ * revoked set follows committed status changes (RegistrationStatusChangedEvent). Admissions are
+ * queued and written every flush interval in one transaction: an attendance row per attendee and
+ * the registration moved from CONFIRMED to ATTENDED. A ticket cancelled on another node, which
+ * this node has not heard of, is still dropped at that point.
+ */
+@Service
+@Slf4j
+public class CheckInService {
+    // The registration must still hold a seat; the unique index makes rescans and retries harmless
+    private static final String INSERT_ATTENDANCE_SQL =
+            "INSERT INTO attendance (event_id, student_id, attended, marked_on) " +
+                    "SELECT r.event_id, r.student_id, true, ? FROM registrations r " +
+                    "WHERE r.registration_id = ? AND r.status IN ('CONFIRMED', 'ATTENDED') " +
+                    "ON CONFLICT (event_id, student_id) DO UPDATE SET attended = true, marked_on = excluded.marked_on " +
+                    "WHERE NOT attendance.attended";
+    private static final String MARK_ATTENDED_SQL =
+            "UPDATE registrations SET status = 'ATTENDED' WHERE registration_id = ? AND status = 'CONFIRMED'";
+
+    private final TicketCodes ticketCodes;
+    private final EventRepository eventRepository;
+    private final RegistrationRepository registrationRepository;
+    private final EventStatisticsService eventStatisticsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Queue<Admission> pending = new ConcurrentLinkedQueue<>();
+    private final Cache<Integer, Door> doors = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofHours(12))
+            .build();
+
+    public CheckInService(TicketCodes ticketCodes,
+                          EventRepository eventRepository,
+                          RegistrationRepository registrationRepository,
+                          EventStatisticsService eventStatisticsService,
+                          ApplicationEventPublisher eventPublisher,
+                          JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager) {
+        this.ticketCodes = ticketCodes;
+        this.eventRepository = eventRepository;
+        this.registrationRepository = registrationRepository;
+        this.eventStatisticsService = eventStatisticsService;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Whether the user organizes the event; cached with the event's door, so scanners don't hit
+     * the database on every request.
+     */
+    public boolean isOrganizer(int eventId, String email) {
+        String organizerEmail = door(eventId).organizerEmail;
+        return organizerEmail != null && organizerEmail.equals(email);
+    }
+
+    public ScanResult scan(int eventId, String ticketText) {
+        TicketCodes.Ticket ticket = ticketCodes.parse(ticketText);
+        if (ticket == null) {
+            return new ScanResult(Result.INVALID_TICKET, null, null);
+        }
+        if (ticket.eventId() != eventId) {
+            return new ScanResult(Result.WRONG_EVENT, ticket.registrationId(), null);
+        }
+        Door door = door(eventId);
+        if (door.revoked.contains(ticket.registrationId())) {
+            return new ScanResult(Result.REVOKED, ticket.registrationId(), null);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime first = door.checkedIn.putIfAbsent(ticket.registrationId(), now);
+        if (first != null) {
+            return new ScanResult(Result.ALREADY_CHECKED_IN, ticket.registrationId(),
+                    first.equals(LocalDateTime.MIN) ? null : first);
+        }
+        pending.add(new Admission(eventId, ticket.registrationId(), now));
+        return new ScanResult(Result.ADMITTED, ticket.registrationId(), now);
+    }
+
+    /**
+     * Keeps a loaded door's revoked set in step with committed registration changes; a door loaded
+     * later reads the committed state itself.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationChanged(RegistrationStatusChangedEvent event) {
+        // Waits for a door being loaded, so the change can't slip in between its read and its caching
+        doors.asMap().computeIfPresent(event.eventId(), (id, door) -> {
+            if (event.status() != null && event.status().holdsSeat()) {
+                door.revoked.remove(event.registrationId());
+            } else {
+                door.revoked.add(event.registrationId());
+            }
+            return door;
+        });
+    }
+
+    @Scheduled(initialDelayString = "${app.checkin.flush-interval-ms:250}",
+            fixedDelayString = "${app.checkin.flush-interval-ms:250}")
+    public synchronized void flush() {
+        List<Admission> batch = new ArrayList<>();
+        for (Admission admission; (admission = pending.poll()) != null; ) {
+            batch.add(admission);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_ATTENDANCE_SQL, batch.stream()
+                        .map(a -> new Object[]{Timestamp.valueOf(a.scannedAt()), a.registrationId()})
+                        .toList());
+                jdbcTemplate.batchUpdate(MARK_ATTENDED_SQL, batch.stream()
+                        .map(a -> new Object[]{a.registrationId()})
+                        .toList());
+            });
+        } catch (Exception e) {
+            log.warn("Could not record {} check-in(s), retrying with the next flush: {}", batch.size(), e.getMessage());
+            pending.addAll(batch);
+            return;
+        }
+        // Plain JDBC bypasses the entity listeners, so tell the caches ourselves
+        Set<Integer> eventIds = new TreeSet<>();
+        batch.forEach(a -> eventIds.add(a.eventId()));
+        eventIds.forEach(eventStatisticsService::evict);
+        eventPublisher.publishEvent(new DashboardDataChangedEvent(Registrations.class));
+        log.debug("Recorded {} check-in(s) for event(s) {}", batch.size(), eventIds);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private Door door(int eventId) {
+        return doors.get(eventId, id -> {
+            Door door = new Door(eventRepository.findOrganizerEmail(id));
+            // Checked in earlier (or by another node); the scan time isn't kept, so MIN stands in
+            registrationRepository.findAttendedIds(id).forEach(registrationId -> door.checkedIn.put(registrationId, LocalDateTime.MIN));
+            door.revoked.addAll(registrationRepository.findIdsWithoutSeat(id));
+            return door;
+        });
+    }
+
+    public enum Result {
+        ADMITTED,
+        ALREADY_CHECKED_IN,
+        INVALID_TICKET,
+        WRONG_EVENT,
+        // Genuine ticket, but the registration was cancelled, waitlisted or is not confirmed
+        REVOKED
+    }
+
+    /**
+     * checkedInAt is the first scan's time; null when it isn't known (checked in before this
+     * node loaded the event) or the ticket wasn't admitted.
+     */
+    public record ScanResult(Result result, Integer registrationId, LocalDateTime checkedInAt) {
+    }
+
+    private record Admission(int eventId, int registrationId, LocalDateTime scannedAt) {
+    }
+
+    private static final class Door {
+        final String organizerEmail;
+        final Map<Integer, LocalDateTime> checkedIn = new ConcurrentHashMap<>();
+        final Set<Integer> revoked = ConcurrentHashMap.newKeySet();
+
+        Door(String organizerEmail) {
+            this.organizerEmail = organizerEmail;
+        }
+    }
+}
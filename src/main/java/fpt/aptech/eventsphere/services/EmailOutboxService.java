@@ -0,0 +1,228 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.dto.BulkSendResult;
+import fpt.aptech.eventsphere.models.EmailOutbox;
+import fpt.aptech.eventsphere.repositories.EmailOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Transactional outbox for outbound email.
+ * <p>
+ * Callers only insert rows (in their own transaction), so request and scheduler threads never
+ * wait on SMTP. A poller claims due rows with SKIP LOCKED and hands them to a bounded pool of
+ * virtual threads in chunks; each chunk is sent over a pooled SMTP connection from
+ * {@link BulkMailSender}. Every claim counts as an attempt, so a message whose send kills or
+ * hangs its worker (its lease expires without an outcome) also runs out of attempts. Failed
+ * messages are retried with exponential backoff until max attempts, then marked FAILED.
+ */
+@Service
+public class EmailOutboxService {
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxService.class);
+    private static final long LEASE_MINUTES = 5;
+    private static final long BASE_BACKOFF_SECONDS = 30;
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final BulkMailSender bulkMailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore workerPermits;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final String fromAddress;
+
+    public EmailOutboxService(EmailOutboxRepository emailOutboxRepository,
+                              BulkMailSender bulkMailSender,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.mail.outbox.workers:4}") int workers,
+                              @Value("${app.mail.outbox.batch-size:50}") int batchSize,
+                              @Value("${app.mail.outbox.max-attempts:5}") int maxAttempts,
+                              @Value("${spring.mail.username:noreply@eventsphere.com}") String fromAddress) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.bulkMailSender = bulkMailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workerPermits = new Semaphore(workers);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.fromAddress = fromAddress;
+    }
+
+    /**
+     * Queues one plain-text email per recipient. Joins the caller's transaction if there is one.
+     */
+    public void enqueue(List<String> recipients, String subject, String body) {
+        enqueue(recipients, subject, body, false, null, null);
+    }
+
+    public void enqueue(List<String> recipients, String subject, String body, boolean html,
+                        byte[] attachment, String attachmentName) {
+        List<EmailOutbox> messages = new ArrayList<>(recipients.size());
+        for (String recipient : recipients) {
+            EmailOutbox message = new EmailOutbox(recipient, subject, body, html);
+            message.setAttachment(attachment);
+            message.setAttachmentName(attachmentName);
+            messages.add(message);
+        }
+        emailOutboxRepository.saveAll(messages);
+        logger.debug("Queued {} email(s) with subject '{}'", messages.size(), subject);
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:1000}")
+    public void drain() {
+        int freeWorkers = workerPermits.availablePermits();
+        if (freeWorkers == 0) {
+            return;
+        }
+
+        List<EmailOutbox> claimed = transactionTemplate.execute(status -> claim(freeWorkers * batchSize));
+        if (claimed == null || claimed.isEmpty()) {
+            return;
+        }
+        logger.info("Claimed {} outbox message(s) for delivery", claimed.size());
+
+        for (int i = 0; i < claimed.size(); i += batchSize) {
+            List<EmailOutbox> chunk = claimed.subList(i, Math.min(i + batchSize, claimed.size()));
+            if (!workerPermits.tryAcquire()) {
+                // Leave the rest SENDING; they are retried when their lease expires
+                logger.warn("No free outbox worker, {} message(s) deferred", claimed.size() - i);
+                break;
+            }
+            executor.submit(() -> {
+                try {
+                    Map<Long, Exception> failures = deliver(chunk);
+                    transactionTemplate.executeWithoutResult(status -> recordOutcome(chunk, failures));
+                } catch (Exception e) {
+                    logger.error("Outbox worker failed", e);
+                } finally {
+                    workerPermits.release();
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Leases due rows to this node, counting the attempt up front.
+     * @return the rows to deliver; rows whose lease expired on their last attempt are marked FAILED instead
+     */
+    List<EmailOutbox> claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutbox> claimed = new ArrayList<>();
+        for (EmailOutbox message : emailOutboxRepository.lockDueMessages(now, limit)) {
+            if (message.getStatus() == EmailOutbox.OutboxStatus.SENDING) {
+                // The last worker's lease expired without an outcome
+                message.setLastError("Delivery did not finish within the lease");
+                if (message.getAttempts() >= maxAttempts) {
+                    message.setStatus(EmailOutbox.OutboxStatus.FAILED);
+                    logger.error("Giving up on email {} to {} after {} attempts", message.getId(), message.getRecipient(),
+                            message.getAttempts());
+                    continue;
+                }
+            }
+            message.setAttempts(message.getAttempts() + 1);
+            message.setStatus(EmailOutbox.OutboxStatus.SENDING);
+            message.setNextAttemptAt(now.plusMinutes(LEASE_MINUTES));
+            claimed.add(message);
+        }
+        return claimed;
+    }
+
+    /**
+     * Sends the chunk over one pooled SMTP connection.
+     * @return the failed messages' ids mapped to their error; empty if everything was sent
+     */
+    Map<Long, Exception> deliver(List<EmailOutbox> chunk) {
+        Map<Long, Exception> failures = new HashMap<>();
+        Map<MimeMessage, Long> idsByMessage = new IdentityHashMap<>();
+        List<MimeMessage> mimeMessages = new ArrayList<>(chunk.size());
+
+        for (EmailOutbox message : chunk) {
+            try {
+                MimeMessage mimeMessage = toMimeMessage(message);
+                mimeMessages.add(mimeMessage);
+                idsByMessage.put(mimeMessage, message.getId());
+            } catch (MessagingException e) {
+                failures.put(message.getId(), e);
+            }
+        }
+        if (mimeMessages.isEmpty()) {
+            return failures;
+        }
+
+        BulkSendResult result = bulkMailSender.sendChunk(mimeMessages);
+        result.getFailedMessages().forEach((failed, cause) -> failures.put(idsByMessage.get(failed), cause));
+        return failures;
+    }
+
+    private MimeMessage toMimeMessage(EmailOutbox message) throws MessagingException {
+        MimeMessage mimeMessage = bulkMailSender.createMimeMessage();
+        boolean multipart = message.getAttachment() != null;
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, multipart, "UTF-8");
+        helper.setFrom(fromAddress);
+        helper.setTo(message.getRecipient());
+        helper.setSubject(message.getSubject());
+        helper.setText(message.getBody(), message.isHtml());
+        if (multipart) {
+            helper.addAttachment(message.getAttachmentName(), new ByteArrayResource(message.getAttachment()));
+        }
+        return mimeMessage;
+    }
+
+    private void recordOutcome(List<EmailOutbox> chunk, Map<Long, Exception> failures) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> sentIds = new ArrayList<>(chunk.size());
+        List<EmailOutbox> failed = new ArrayList<>(failures.size());
+        for (EmailOutbox message : chunk) {
+            Exception failure = failures.get(message.getId());
+            if (failure == null) {
+                sentIds.add(message.getId());
+                continue;
+            }
+            // Counted when the message was claimed
+            int attempts = message.getAttempts();
+            message.setLastError(truncate(failure.getMessage()));
+            if (attempts >= maxAttempts) {
+                message.setStatus(EmailOutbox.OutboxStatus.FAILED);
+                logger.error("Giving up on email {} to {} after {} attempts", message.getId(), message.getRecipient(), attempts);
+            } else {
+                message.setStatus(EmailOutbox.OutboxStatus.PENDING);
+                message.setNextAttemptAt(now.plusSeconds(BASE_BACKOFF_SECONDS << (attempts - 1)));
+            }
+            failed.add(message);
+        }
+        if (!sentIds.isEmpty()) {
+            emailOutboxRepository.markSent(sentIds, now);
+        }
+        if (!failed.isEmpty()) {
+            emailOutboxRepository.saveAll(failed);
+        }
+        logger.info("Outbox chunk done - sent: {}, failed: {}", sentIds.size(), failed.size());
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+}
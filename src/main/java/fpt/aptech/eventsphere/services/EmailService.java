@@ -4,6 +4,7 @@ import java.util.List;
 
 public interface EmailService {
     void sendEmail(String to, String subject, String body) throws Exception;
+    // Queued in the email outbox and delivered asynchronously
     public void sendEmailToUsers(List<String> recipients, String subject, String body);
     public void sendEmailWithAttachment(List<String> recipients, String subject, String body, byte[] attachment, String attachmentName);
 }
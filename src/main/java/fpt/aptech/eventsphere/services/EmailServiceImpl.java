@@ -1,11 +1,6 @@
 package fpt.aptech.eventsphere.services;
 
-import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.JsonFactory;
-import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
 import com.google.api.services.gmail.Gmail;
 import com.google.api.services.gmail.model.Message;
 import lombok.RequiredArgsConstructor;
@@ -22,12 +17,7 @@ import jakarta.mail.MessagingException;
 import jakarta.mail.Session;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
-import org.springframework.mail.javamail.JavaMailSender;
 
 import java.util.List;
 import java.io.ByteArrayOutputStream;
@@ -39,40 +29,40 @@ import java.util.Properties;
 @RequiredArgsConstructor
 public class EmailServiceImpl implements EmailService {
     private static final Logger logger = LoggerFactory.getLogger(EmailServiceImpl.class);
-
-    private static final String APPLICATION_NAME = "EventSphere";
-    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
     private final OAuth2AuthorizedClientService authorizedClientService;
-    @Autowired
-    private JavaMailSender mailSender;
+    private final EmailOutboxService emailOutboxService;
+    private final GmailClientCache gmailClientCache;
 
     @Override
     public void sendEmail(String to, String subject, String body) throws Exception {
+        String principalName = currentPrincipalName();
+        Gmail service = gmailClientCache.getClient(principalName, loadAccessToken(principalName));
+
+        // Create and send the email
+        MimeMessage mimeMessage = createMimeMessage(to, subject, body);
+        Message message = createMessageWithEmail(mimeMessage);
+
+        try {
+            service.users().messages().send("me", message).execute();
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() == 401) {
+                gmailClientCache.evict(principalName);
+            }
+            throw e;
+        }
+    }
+
+    private String currentPrincipalName() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String principalName = authentication.getName();
+        return authentication.getName();
+    }
 
+    private OAuth2AccessToken loadAccessToken(String principalName) {
         OAuth2AuthorizedClient client = authorizedClientService.loadAuthorizedClient("google", principalName);
         if (client == null) {
             throw new RuntimeException("No authorized client found for user: " + principalName);
         }
-
-        OAuth2AccessToken oauth2AccessToken = client.getAccessToken();
-        NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-
-        // Create a credential with the access token
-        Credential credential = new GoogleCredential()
-            .setAccessToken(oauth2AccessToken.getTokenValue());
-
-        // Create Gmail service
-        Gmail service = new Gmail.Builder(httpTransport, JSON_FACTORY, credential)
-            .setApplicationName(APPLICATION_NAME)
-            .build();
-
-        // Create and send the email
-        MimeMessage mimeMessage = createMimeMessage(to, subject, body);
-        Message message = createMessageWithEmail(mimeMessage);
-
-        service.users().messages().send("me", message).execute();
+        return client.getAccessToken();
     }
 
     private MimeMessage createMimeMessage(String to, String subject, String body) throws MessagingException, java.io.UnsupportedEncodingException {
@@ -105,32 +95,14 @@ public class EmailServiceImpl implements EmailService {
         return message;
     }
 
+    // Queued in the outbox (same transaction as the caller) and delivered asynchronously
     @Override
     public void sendEmailToUsers(List<String> recipients, String subject, String body) {
-        for (String recipient : recipients) {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(recipient);
-            message.setSubject(subject);
-            message.setText(body);
-            mailSender.send(message);
-        }
+        emailOutboxService.enqueue(recipients, subject, body);
     }
 
     @Override
     public void sendEmailWithAttachment(List<String> recipients, String subject, String body, byte[] attachment, String attachmentName) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true);
-
-            helper.setFrom("abc@example.com");
-            helper.setTo(recipients.toArray(new String[0]));
-            helper.setSubject(subject);
-            helper.setText(body);
-            helper.addAttachment(attachmentName, new ByteArrayResource(attachment));
-
-            mailSender.send(message);
-        } catch (MessagingException e) {
-            throw new RuntimeException("Failed to send email with attachment", e);
-        }
+        emailOutboxService.enqueue(recipients, subject, body, false, attachment, attachmentName);
     }
 }
@@ -0,0 +1,138 @@
+package fpt.aptech.eventsphere.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.*;
+
+/**
+ * Renders email bodies from the Thymeleaf templates under templates/email.
+ * <p>
+ * Uses its own template engine with caching always on (independent of spring.thymeleaf.cache),
+ * so each template is parsed once. {@link #prepare} goes further for mails that share most of
+ * their content: the shared variables are rendered once and the result is split into literal
+ * segments around the per-recipient slots, so rendering for a recipient is just appending
+ * strings into a pre-sized buffer. Prepared templates are kept in a small LRU keyed by the
+ * shared variables, so a change to the event simply produces a new entry.
+ */
+@Service
+public class EmailTemplateService {
+    private static final Logger logger = LoggerFactory.getLogger(EmailTemplateService.class);
+    private static final String SLOT_PREFIX = "@@EMAIL_SLOT_";
+    private static final String SLOT_SUFFIX = "@@";
+    private static final int MAX_PREPARED = 256;
+
+    private final TemplateEngine templateEngine = new TemplateEngine();
+    private final Map<PreparedKey, PreparedTemplate> prepared = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<PreparedKey, PreparedTemplate> eldest) {
+                    return size() > MAX_PREPARED;
+                }
+            });
+
+    public EmailTemplateService() {
+        templateEngine.addTemplateResolver(resolver(".html", TemplateMode.HTML, 1));
+        templateEngine.addTemplateResolver(resolver(".txt", TemplateMode.TEXT, 2));
+    }
+
+    /**
+     * Renders a template (e.g. "reminder.txt") with the given variables.
+     */
+    public String render(String template, Map<String, Object> variables) {
+        return templateEngine.process(template, new Context(Locale.getDefault(), variables));
+    }
+
+    /**
+     * Renders the shared part of a template once; the returned template only fills in
+     * {@code recipientVariables}, in the order given.
+     */
+    public PreparedTemplate prepare(String template, Map<String, Object> sharedVariables, String... recipientVariables) {
+        PreparedKey key = new PreparedKey(template, new HashMap<>(sharedVariables), List.of(recipientVariables));
+        PreparedTemplate cached = prepared.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Map<String, Object> variables = new HashMap<>(key.sharedVariables());
+        for (int i = 0; i < recipientVariables.length; i++) {
+            variables.put(recipientVariables[i], SLOT_PREFIX + i + SLOT_SUFFIX);
+        }
+        PreparedTemplate compiled = PreparedTemplate.split(render(template, variables), template.endsWith(".html"));
+        prepared.put(key, compiled);
+        logger.debug("Prepared email template {} with {} slot(s)", template, compiled.slots.length);
+        return compiled;
+    }
+
+    private static ClassLoaderTemplateResolver resolver(String suffix, TemplateMode mode, int order) {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/email/");
+        resolver.setResolvablePatterns(Set.of("*" + suffix));
+        resolver.setTemplateMode(mode);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        resolver.setOrder(order);
+        return resolver;
+    }
+
+    private record PreparedKey(String template, Map<String, Object> sharedVariables, List<String> recipientVariables) {
+    }
+
+    /**
+     * A rendered template with holes for the per-recipient values.
+     */
+    public static final class PreparedTemplate {
+        private final String[] segments;
+        private final int[] slots;
+        private final boolean html;
+        private final int literalLength;
+
+        private PreparedTemplate(String[] segments, int[] slots, boolean html) {
+            this.segments = segments;
+            this.slots = slots;
+            this.html = html;
+            int length = 0;
+            for (String segment : segments) {
+                length += segment.length();
+            }
+            this.literalLength = length;
+        }
+
+        static PreparedTemplate split(String rendered, boolean html) {
+            List<String> segments = new ArrayList<>();
+            List<Integer> slots = new ArrayList<>();
+            int from = 0;
+            int start;
+            while ((start = rendered.indexOf(SLOT_PREFIX, from)) >= 0) {
+                int end = rendered.indexOf(SLOT_SUFFIX, start + SLOT_PREFIX.length());
+                segments.add(rendered.substring(from, start));
+                slots.add(Integer.parseInt(rendered.substring(start + SLOT_PREFIX.length(), end)));
+                from = end + SLOT_SUFFIX.length();
+            }
+            segments.add(rendered.substring(from));
+            return new PreparedTemplate(segments.toArray(new String[0]),
+                    slots.stream().mapToInt(Integer::intValue).toArray(), html);
+        }
+
+        /**
+         * Fills in the recipient values, given in the order passed to {@link #prepare}.
+         */
+        public String render(String... values) {
+            StringBuilder body = new StringBuilder(literalLength + slots.length * 32);
+            for (int i = 0; i < slots.length; i++) {
+                body.append(segments[i]);
+                String value = values[slots[i]];
+                if (value != null) {
+                    body.append(html ? HtmlUtils.htmlEscape(value) : value);
+                }
+            }
+            return body.append(segments[segments.length - 1]).toString();
+        }
+    }
+}
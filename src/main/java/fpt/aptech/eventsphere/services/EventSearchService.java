@@ -0,0 +1,97 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.models.Events;
+import fpt.aptech.eventsphere.repositories.EventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.util.HtmlUtils;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Full-text search over event title, category and description.
+ * <p>
+ * Matching and ranking run in PostgreSQL against a GIN expression index
+ * (event_search_vector, created by DataInitializer); title matches weigh more than category,
+ * category more than description. Every search term is prefix-matched, so "conf" finds
+ * "conference". Highlighting uses ts_headline for just the events on the current page.
+ */
+@Service
+@RequiredArgsConstructor
+public class EventSearchService {
+    private static final int MAX_TERMS = 8;
+    // Control characters can't occur in event text, so they mark matches safely through HTML escaping
+    private static final String MATCH_START = "\u0002";
+    private static final String MATCH_END = "\u0003";
+    private static final String TITLE_OPTIONS =
+            "StartSel=\"" + MATCH_START + "\", StopSel=\"" + MATCH_END + "\", HighlightAll=true";
+    private static final String SNIPPET_OPTIONS =
+            "StartSel=\"" + MATCH_START + "\", StopSel=\"" + MATCH_END + "\", " +
+            "MaxFragments=2, MaxWords=25, MinWords=10, FragmentDelimiter=\" … \"";
+
+    private final EventRepository eventRepository;
+
+    /**
+     * Turns user input into a to_tsquery string where every word must match as a prefix,
+     * e.g. "tech conf" becomes "tech:* &amp; conf:*". Returns null if the input has no words.
+     */
+    public static String toPrefixQuery(String keyword) {
+        if (keyword == null) {
+            return null;
+        }
+        String query = Arrays.stream(keyword.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(term -> !term.isEmpty())
+                .limit(MAX_TERMS)
+                .map(term -> term + ":*")
+                .collect(Collectors.joining(" & "));
+        return query.isEmpty() ? null : query;
+    }
+
+    /**
+     * Upcoming events matching the keyword, best match first.
+     */
+    @Transactional(readOnly = true)
+    public Page<Events> searchUpcoming(String keyword, String category, int page, int size) {
+        String query = toPrefixQuery(keyword);
+        if (query == null) {
+            return Page.empty(PageRequest.of(page, size));
+        }
+        return eventRepository.searchUpcoming(LocalDate.now().atStartOfDay(), category, query,
+                PageRequest.of(page, size));
+    }
+
+    /**
+     * Highlighted title and description fragment for each of the given events, keyed by event id.
+     * The returned strings are HTML-escaped with matches wrapped in &lt;mark&gt;.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, Highlight> highlight(Collection<Integer> eventIds, String keyword) {
+        String query = toPrefixQuery(keyword);
+        if (query == null || eventIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Integer, Highlight> highlights = new HashMap<>();
+        for (Object[] row : eventRepository.findSearchHighlights(eventIds, query, TITLE_OPTIONS, SNIPPET_OPTIONS)) {
+            highlights.put(((Number) row[0]).intValue(),
+                    new Highlight(toHtml((String) row[1]), toHtml((String) row[2])));
+        }
+        return highlights;
+    }
+
+    private static String toHtml(String headline) {
+        if (headline == null) {
+            return "";
+        }
+        return HtmlUtils.htmlEscape(headline)
+                .replace(MATCH_START, "<mark>")
+                .replace(MATCH_END, "</mark>");
+    }
+
+    public record Highlight(String title, String snippet) {
+    }
+}
@@ -0,0 +1,8 @@
+package fpt.aptech.eventsphere.services;
+
+/**
+ * Published when a registration, feedback or certificate of the event is written, so its cached
+ * statistics are dropped.
+ */
+public record EventStatisticsChangedEvent(int eventId) {
+}
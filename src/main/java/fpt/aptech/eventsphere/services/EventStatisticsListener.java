@@ -0,0 +1,40 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.models.Certificates;
+import fpt.aptech.eventsphere.models.Events;
+import fpt.aptech.eventsphere.models.Feedback;
+import fpt.aptech.eventsphere.models.Registrations;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * JPA entity listener on registrations, feedback and certificates that invalidates the cached
+ * statistics of their event (see EventStatisticsService). Bulk JPQL updates bypass it and have
+ * to evict themselves.
+ */
+public class EventStatisticsListener {
+    private final ApplicationEventPublisher publisher;
+
+    public EventStatisticsListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        Events event = null;
+        if (entity instanceof Registrations registration) {
+            event = registration.getEvent();
+        } else if (entity instanceof Feedback feedback) {
+            event = feedback.getEvent();
+        } else if (entity instanceof Certificates certificate) {
+            event = certificate.getEvent();
+        }
+        if (event != null) {
+            publisher.publishEvent(new EventStatisticsChangedEvent(event.getEventId()));
+        }
+    }
+}
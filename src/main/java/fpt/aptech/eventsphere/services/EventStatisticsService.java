@@ -0,0 +1,107 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.configs.CacheConfig;
+import fpt.aptech.eventsphere.dto.EventStatisticsDTO;
+import fpt.aptech.eventsphere.models.Registrations;
+import fpt.aptech.eventsphere.repositories.RegistrationRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Per-event statistics for organizers, computed by one aggregate query and cached until a
+ * registration, feedback or certificate of the event changes (see EventStatisticsListener).
+ */
+@Service
+@RequiredArgsConstructor
+public class EventStatisticsService {
+    private final RegistrationRepository registrationRepository;
+
+    @Cacheable(cacheNames = CacheConfig.EVENT_STATISTICS, key = "#eventId")
+    @Transactional(readOnly = true)
+    public EventStatisticsDTO getStatistics(int eventId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = registrationRepository.aggregateEventStatistics(eventId, now.minusHours(24));
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Invalid event ID");
+        }
+
+        EventStatisticsDTO stats = new EventStatisticsDTO();
+        stats.setEventId(eventId);
+        for (Registrations.RegistrationStatus status : Registrations.RegistrationStatus.values()) {
+            stats.getStatusCounts().put(status, 0L);
+        }
+        long total = 0;
+        long recent = 0;
+        LocalDateTime first = null;
+        LocalDateTime last = null;
+        for (Object[] row : rows) {
+            if (row[0] == null) {
+                continue; // no registrations at all
+            }
+            long count = ((Number) row[1]).longValue();
+            stats.getStatusCounts().put((Registrations.RegistrationStatus) row[0], count);
+            total += count;
+            recent += ((Number) row[4]).longValue();
+            first = earliest(first, (LocalDateTime) row[2]);
+            last = latest(last, (LocalDateTime) row[3]);
+        }
+
+        // The remaining columns are the same on every row
+        Object[] row = rows.get(0);
+        int totalSeats = row[5] != null ? ((Number) row[5]).intValue() : 0;
+        // Attendees checked in at the door (ATTENDED) still hold their seat
+        long seated = 0;
+        for (Registrations.RegistrationStatus status : Registrations.RegistrationStatus.values()) {
+            if (status.holdsSeat()) {
+                seated += stats.getCount(status);
+            }
+        }
+
+        stats.setTotalRegistrations(total);
+        stats.setTotalSeats(totalSeats);
+        stats.setFillRate(totalSeats > 0 ? Math.round(seated * 1000.0 / totalSeats) / 10.0 : 0);
+        stats.setFirstRegistration(first);
+        stats.setLastRegistration(last);
+        stats.setRegistrationsLast24Hours(recent);
+        stats.setRegistrationsPerHour(perHour(total, first, last));
+        stats.setAverageRating(row[6] != null ? Math.round(((Number) row[6]).doubleValue() * 10.0) / 10.0 : null);
+        stats.setFeedbackCount(((Number) row[7]).longValue());
+        stats.setCertificatesIssued(((Number) row[8]).longValue());
+        stats.setComputedAt(now);
+        return stats;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @CacheEvict(cacheNames = CacheConfig.EVENT_STATISTICS, key = "#event.eventId()")
+    public void onChanged(EventStatisticsChangedEvent event) {
+    }
+
+    @CacheEvict(cacheNames = CacheConfig.EVENT_STATISTICS, key = "#eventId")
+    public void evict(int eventId) {
+    }
+
+    // At least one hour, so a burst of sign-ups in the first minutes doesn't read as thousands per hour
+    private static double perHour(long total, LocalDateTime first, LocalDateTime last) {
+        if (total == 0 || first == null || last == null) {
+            return 0;
+        }
+        double hours = Math.max(1.0, Duration.between(first, last).toMinutes() / 60.0);
+        return Math.round(total / hours * 10.0) / 10.0;
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        return a == null || (b != null && b.isBefore(a)) ? b : a;
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a == null || (b != null && b.isAfter(a)) ? b : a;
+    }
+}
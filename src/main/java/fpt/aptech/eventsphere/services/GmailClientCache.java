@@ -0,0 +1,98 @@
+package fpt.aptech.eventsphere.services;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.gmail.Gmail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gmail API clients, one per signed-in principal, over a single shared HTTP transport.
+ * <p>
+ * Creating a trusted transport loads the trust store, so it is done once at startup instead of
+ * per email. A principal's client is reused for as long as their access token is unchanged;
+ * a new token, an expired token or a 401 from Gmail drops the cached client.
+ */
+@Service
+public class GmailClientCache {
+    private static final Logger logger = LoggerFactory.getLogger(GmailClientCache.class);
+    private static final String APPLICATION_NAME = "EventSphere";
+    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
+
+    private final HttpTransport httpTransport;
+    private final String rootUrl;
+    private final Map<String, CachedClient> clients = new ConcurrentHashMap<>();
+
+    @Autowired
+    public GmailClientCache(@Value("${app.mail.gmail.root-url:}") String rootUrl)
+            throws GeneralSecurityException, IOException {
+        this(GoogleNetHttpTransport.newTrustedTransport(), rootUrl);
+    }
+
+    GmailClientCache(HttpTransport httpTransport, String rootUrl) {
+        this.httpTransport = httpTransport;
+        this.rootUrl = rootUrl;
+    }
+
+    /**
+     * Returns the cached client for the principal, building a new one if the token changed.
+     */
+    public Gmail getClient(String principalName, OAuth2AccessToken accessToken) {
+        String tokenValue = accessToken.getTokenValue();
+        return clients.compute(principalName, (name, cached) -> {
+            if (cached != null && cached.tokenValue.equals(tokenValue) && !cached.isExpired(Instant.now())) {
+                return cached;
+            }
+            logger.debug("Building Gmail client for {}", name);
+            return new CachedClient(tokenValue, accessToken.getExpiresAt(), build(tokenValue));
+        }).gmail;
+    }
+
+    /**
+     * Drops the principal's client, e.g. after Gmail rejected its token.
+     */
+    public void evict(String principalName) {
+        clients.remove(principalName);
+    }
+
+    public int size() {
+        return clients.size();
+    }
+
+    @Scheduled(fixedDelay = 600000)
+    public void evictExpired() {
+        Instant now = Instant.now();
+        clients.values().removeIf(cached -> cached.isExpired(now));
+    }
+
+    private Gmail build(String tokenValue) {
+        Credential credential = new GoogleCredential().setAccessToken(tokenValue);
+        Gmail.Builder builder = new Gmail.Builder(httpTransport, JSON_FACTORY, credential)
+                .setApplicationName(APPLICATION_NAME);
+        if (rootUrl != null && !rootUrl.isBlank()) {
+            builder.setRootUrl(rootUrl);
+        }
+        return builder.build();
+    }
+
+    private record CachedClient(String tokenValue, Instant expiresAt, Gmail gmail) {
+        boolean isExpired(Instant now) {
+            return expiresAt != null && !expiresAt.isAfter(now);
+        }
+    }
+}
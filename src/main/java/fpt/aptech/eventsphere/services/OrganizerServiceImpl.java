@@ -5,9 +5,12 @@ import com.google.zxing.WriterException;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
+import fpt.aptech.eventsphere.configs.CacheConfig;
 import fpt.aptech.eventsphere.models.*;
 import fpt.aptech.eventsphere.repositories.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -16,7 +19,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class OrganizerServiceImpl implements OrganizerService {
@@ -26,6 +32,10 @@ public class OrganizerServiceImpl implements OrganizerService {
     VenueRepository  venueRepository;
     UserRepository userRepository;
     RegistrationRepository registrationRepository;
+    SeatAllocationService seatAllocationService;
+    WaitlistService waitlistService;
+    EmailTemplateService emailTemplateService;
+    ReminderService reminderService;
     @Autowired
     EmailServiceImpl emailServiceImpl;
     @Autowired
@@ -35,13 +45,21 @@ public class OrganizerServiceImpl implements OrganizerService {
                                 EventSeatingRepository eventSeatingRepository,
                                 VenueRepository venueRepository,
                                 UserRepository userRepository,
-                                RegistrationRepository registrationRepository) {
+                                RegistrationRepository registrationRepository,
+                                SeatAllocationService seatAllocationService,
+                                WaitlistService waitlistService,
+                                EmailTemplateService emailTemplateService,
+                                ReminderService reminderService) {
 
         this.eventRepository = eventRepository;
         this.eventSeatingRepository = eventSeatingRepository;
         this.venueRepository = venueRepository;
         this.userRepository = userRepository;
         this.registrationRepository = registrationRepository;
+        this.seatAllocationService = seatAllocationService;
+        this.waitlistService = waitlistService;
+        this.emailTemplateService = emailTemplateService;
+        this.reminderService = reminderService;
     }
 
     @Override
@@ -74,6 +92,7 @@ public class OrganizerServiceImpl implements OrganizerService {
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.EVENT_CATEGORIES, allEntries = true)
     public Events saveEvent(Events event) {
         try {
             Events savedEvent = eventRepository.save(event);
@@ -90,12 +109,14 @@ public class OrganizerServiceImpl implements OrganizerService {
     }
 
     @Override
+    @Cacheable(CacheConfig.VENUES)
     public List<Venues> findAllVenues() {
-        return venueRepository.findAll();
+        return List.copyOf(venueRepository.findAll());
     }
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.VENUES, allEntries = true)
     public Venues saveVenue(Venues venue) {
         try {
             return venueRepository.save(venue);
@@ -119,10 +140,19 @@ public class OrganizerServiceImpl implements OrganizerService {
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.EVENT_CATEGORIES, allEntries = true)
     public Events editEvent(Events formEvent) {
+        // Write back pending seat deltas first; the counter is reloaded with the new capacity after commit
+        seatAllocationService.invalidate(formEvent.getEventId());
         Events existing = eventRepository.findById(formEvent.getEventId())
                 .orElseThrow(() -> new IllegalArgumentException("Invalid event ID"));
 
+        // A postponed (or brought forward) event needs all its reminders again
+        if (!Objects.equals(existing.getStartDate(), formEvent.getStartDate())) {
+            existing.setReminderSent(false);
+            existing.setLastReminderMinutes(null);
+        }
+
         // Update event fields
         existing.setTitle(formEvent.getTitle());
         existing.setCategory(formEvent.getCategory());
@@ -138,6 +168,13 @@ public class OrganizerServiceImpl implements OrganizerService {
         }
         //save
         eventRepository.save(existing);
+        // Start date may have moved; this moves the pending reminder jobs with it
+        reminderService.schedule(existing);
+
+        // Extra capacity goes to the waitlist first
+        if (existing.getEventSeating() != null && existing.getEventSeating().isWaitlistEnabled()) {
+            waitlistService.promote(existing.getEventId(), seatAllocationService.getAvailableSeats(existing.getEventId()));
+        }
 
         //get venue for email sending
         Venues venue = venueRepository.findById(existing.getVenue().getVenueId()).get();
@@ -154,22 +191,13 @@ public class OrganizerServiceImpl implements OrganizerService {
         if (!emails.isEmpty()) {
             String subject = "Update: " + existing.getTitle();
 
-            String body = String.format(
-                    "Dear participant,%n%n" +
-                            "The event '%s' has been updated.%n%n" +
-                            "Here are the latest details:%n" +
-                            "Start: %s%n" +
-                            "End: %s%n" +
-                            "Location: %s%n" +
-                            "Venue Address: %s%n%n" +
-                            "Please check the event page for more information.%n%n" +
-                            "Regards,%nEvent Team",
-                    existing.getTitle(),
-                    existing.getStartDate(),
-                    existing.getEndDate(),
-                    venue.getName(),
-                    venue.getAddress()
-            );
+            Map<String, Object> variables = new HashMap<>();
+            variables.put("title", existing.getTitle());
+            variables.put("startDate", existing.getStartDate());
+            variables.put("endDate", existing.getEndDate());
+            variables.put("venueName", venue.getName());
+            variables.put("venueAddress", venue.getAddress());
+            String body = emailTemplateService.render("event-updated.txt", variables);
 
             emailServiceImpl.sendEmailToUsers(emails, subject, body);
         }
@@ -227,28 +255,25 @@ public class OrganizerServiceImpl implements OrganizerService {
             throw new IllegalArgumentException("Registration does not belong to the specified event");
         }
 
-        if (registration.getStatus() == Registrations.RegistrationStatus.CONFIRMED) {
-            return registration; // Already confirmed
+        if (registration.getStatus().holdsSeat()) {
+            return registration; // Already confirmed (or checked in)
         }
 
-        // Check seat availability
-        EventSeating seating = eventSeatingRepository.findByEventId(eventId);
-        if (seating != null && seating.getAvailableSeat() <= 0) {
+        // Check seat availability and take a seat
+        if (!seatAllocationService.tryReserve(eventId, 1)) {
             throw new IllegalStateException("No seats available for confirmation");
         }
 
+        // Confirming manually skips the queue
+        if (registration.getStatus() == Registrations.RegistrationStatus.WAITLIST) {
+            waitlistService.remove(registration);
+        }
+
         // Update status
         registration.setStatus(Registrations.RegistrationStatus.CONFIRMED);
 
-        // Update seat count if needed
-        if (seating != null) {
-            seating.setSeatsBooked(seating.getSeatsBooked() + 1);
-            eventSeatingRepository.save(seating);
-        }
-
-        // Save the user to cascade the registration update
-        registration.getStudent().getRegistrations().add(registration);
-        userRepository.save(registration.getStudent());
+        // Save only the registration instead of cascading through the student's registrations
+        registrationRepository.save(registration);
 
         //send mail after confirm
         Events event = registration.getEvent();
@@ -287,21 +312,19 @@ public class OrganizerServiceImpl implements OrganizerService {
             return registration; // Already cancelled
         }
 
-        // Update seat count if it was confirmed
-        if (registration.getStatus() == Registrations.RegistrationStatus.CONFIRMED) {
-            EventSeating seating = eventSeatingRepository.findByEventId(eventId);
-            if (seating != null && seating.getSeatsBooked() > 0) {
-                seating.setSeatsBooked(seating.getSeatsBooked() - 1);
-                eventSeatingRepository.save(seating);
-            }
+        // Update seat count if it held a seat and hand the seat to the waitlist
+        if (registration.getStatus().holdsSeat()) {
+            seatAllocationService.release(eventId, 1);
+            waitlistService.promote(eventId, 1);
+        } else if (registration.getStatus() == Registrations.RegistrationStatus.WAITLIST) {
+            waitlistService.remove(registration);
         }
 
         // Update status
         registration.setStatus(Registrations.RegistrationStatus.CANCELLED);
 
-        // Save the user to cascade the registration update
-        registration.getStudent().getRegistrations().add(registration);
-        userRepository.save(registration.getStudent());
+        // Save only the registration instead of cascading through the student's registrations
+        registrationRepository.save(registration);
 
         //send mail after cancel
         Events event = registration.getEvent();
@@ -338,32 +361,33 @@ public class OrganizerServiceImpl implements OrganizerService {
             return registration; // No change needed
         }
 
-        // Handle seat count changes
-        EventSeating seating = eventSeatingRepository.findByEventId(eventId);
-        if (seating != null) {
-            // If changing to CONFIRMED from another status
-            if (newStatus == Registrations.RegistrationStatus.CONFIRMED &&
-                oldStatus != Registrations.RegistrationStatus.CONFIRMED) {
-                if (seating.getAvailableSeat() <= 0) {
-                    throw new IllegalStateException("No seats available for confirmation");
-                }
-                seating.setSeatsBooked(seating.getSeatsBooked() + 1);
-                eventSeatingRepository.save(seating);
-            }
-            // If changing from CONFIRMED to another status
-            else if (oldStatus == Registrations.RegistrationStatus.CONFIRMED &&
-                    newStatus != Registrations.RegistrationStatus.CONFIRMED) {
-                seating.setSeatsBooked(Math.max(0, seating.getSeatsBooked() - 1));
-                eventSeatingRepository.save(seating);
+        // Handle seat count changes (CONFIRMED and ATTENDED both hold a seat)
+        // If taking a seat
+        if (newStatus.holdsSeat() && !oldStatus.holdsSeat()) {
+            if (!seatAllocationService.tryReserve(eventId, 1)) {
+                throw new IllegalStateException("No seats available for confirmation");
             }
         }
+        // If giving the seat up
+        else if (oldStatus.holdsSeat() && !newStatus.holdsSeat()) {
+            seatAllocationService.release(eventId, 1);
+            waitlistService.promote(eventId, 1);
+        }
+
+        // Keep the waitlist queue in step with the status
+        if (oldStatus == Registrations.RegistrationStatus.WAITLIST) {
+            waitlistService.remove(registration);
+        }
 
         // Update the status
         registration.setStatus(newStatus);
 
-        // Save the user to cascade the registration update
-        registration.getStudent().getRegistrations().add(registration);
-        userRepository.save(registration.getStudent());
+        // Save only the registration instead of cascading through the student's registrations
+        registrationRepository.save(registration);
+
+        if (newStatus == Registrations.RegistrationStatus.WAITLIST) {
+            waitlistService.enqueue(registration);
+        }
 
         //send mail after update
         Events event = registration.getEvent();
@@ -389,31 +413,35 @@ public class OrganizerServiceImpl implements OrganizerService {
     public void confirmRegistration(int registrationId) {
         Registrations reg = findRegistrationById(registrationId);
         Events event = reg.getEvent();
-        EventSeating seating = eventSeatingRepository.findByEventId(event.getEventId());
+        int eventId = event.getEventId();
         Users student = reg.getStudent();
 
-        // Check if registration is already CONFIRMED
-        if (reg.getStatus() == Registrations.RegistrationStatus.CONFIRMED) {
+        // Check if registration already holds a seat (CONFIRMED, or ATTENDED after check-in)
+        if (reg.getStatus().holdsSeat()) {
             throw new IllegalStateException("Registration is already confirmed.");
         }
 
-        // Check seat availability for non-waitlist registrations
-        if (reg.getStatus() != Registrations.RegistrationStatus.WAITLIST) {
-            if (seating.getAvailableSeat() <= 0 && !seating.isWaitlistEnabled()) {
-                throw new IllegalStateException("No seats available and waitlist is disabled.");
+        // If seats are available, confirm and take a seat
+        if (seatAllocationService.tryReserve(eventId, 1)) {
+            if (reg.getStatus() == Registrations.RegistrationStatus.WAITLIST) {
+                waitlistService.remove(reg);
             }
-        }
-
-        // If seats are available, confirm and increment seatsBooked
-        if (seating.getAvailableSeat() > 0) {
-            reg.setStatus(Registrations.RegistrationStatus.CONFIRMED);
-            seating.setSeatsBooked(seating.getSeatsBooked() + 1);
-            eventSeatingRepository.save(seating);
-        } else if (seating.isWaitlistEnabled()) {
-            // If on waitlist and waitlist is enabled, confirm without taking a seat
             reg.setStatus(Registrations.RegistrationStatus.CONFIRMED);
-        } else {
+        } else if (reg.getStatus() == Registrations.RegistrationStatus.WAITLIST) {
             throw new IllegalStateException("Cannot confirm registration: no seats available.");
+        } else if (seatAllocationService.isWaitlistEnabled(eventId)) {
+            // Event is full - queue the registration, it is promoted when a seat frees up
+            reg.setStatus(Registrations.RegistrationStatus.WAITLIST);
+            registrationRepository.save(reg);
+            waitlistService.enqueue(reg);
+
+            String subject = "Registration Waitlisted for " + event.getTitle();
+            String body = "The event '" + event.getTitle() + "' is currently full, so your registration has been added to the waitlist.\n\n" +
+                    "You will be confirmed automatically as soon as a seat becomes available.";
+            emailServiceImpl.sendEmailToUsers(List.of(student.getEmail()), subject, body);
+            return;
+        } else {
+            throw new IllegalStateException("No seats available and waitlist is disabled.");
         }
 
         registrationRepository.save(reg);
@@ -441,7 +469,7 @@ public class OrganizerServiceImpl implements OrganizerService {
     public void cancelRegistration(int registrationId) {
         Registrations reg = findRegistrationById(registrationId);
         Events event = reg.getEvent();
-        EventSeating seating = eventSeatingRepository.findByEventId(event.getEventId());
+        int eventId = event.getEventId();
         Users student = reg.getStudent();
 
         // Check if registration is already WAITLIST or CANCELLED
@@ -450,17 +478,17 @@ public class OrganizerServiceImpl implements OrganizerService {
             throw new IllegalStateException("Registration is already on waitlist or cancelled.");
         }
 
-        // If CONFIRMED, free up a seat
-        if (reg.getStatus() == Registrations.RegistrationStatus.CONFIRMED && seating.getSeatsBooked() >= 0) {
-            if(seating.isWaitlistEnabled()){
-                seating.setSeatsBooked(seating.getSeatsBooked() - 1);
-                eventSeatingRepository.save(seating);
+        // If it holds a seat, free it up
+        if (reg.getStatus().holdsSeat()) {
+            seatAllocationService.release(eventId, 1);
+            // Promote before re-queueing so the freed seat goes to whoever was already waiting
+            waitlistService.promote(eventId, 1);
+            if(seatAllocationService.isWaitlistEnabled(eventId)){
                 reg.setStatus(Registrations.RegistrationStatus.WAITLIST);
                 registrationRepository.save(reg);
+                waitlistService.enqueue(reg);
             }
             else{
-                seating.setSeatsBooked(seating.getSeatsBooked() - 1);
-                eventSeatingRepository.save(seating);
                 reg.setStatus(Registrations.RegistrationStatus.CANCELLED);
                 registrationRepository.save(reg);
             }
@@ -480,11 +508,13 @@ public class OrganizerServiceImpl implements OrganizerService {
     }
 
     @Override
+    @Cacheable(CacheConfig.HOSTS)
     public List<Host> findAllHosts() {
-        return hostRepository.findAll();
+        return List.copyOf(hostRepository.findAll());
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.HOSTS, allEntries = true)
     public Host saveHost(Host host) {
         return hostRepository.save(host);
     }
@@ -1,5 +1,6 @@
 package fpt.aptech.eventsphere.services;
 
+import fpt.aptech.eventsphere.dto.EventKeysetPage;
 import fpt.aptech.eventsphere.dto.ParticipantRegistrationDto;
 import fpt.aptech.eventsphere.models.Events;
 import fpt.aptech.eventsphere.models.Registrations;
@@ -13,9 +14,11 @@ public interface ParticipantService {
     List<Events> getPastEvents();
     
     // Get all events (not just the ones the user registered for)
-    List<Events> getAllUpcomingEvents();
-    List<Events> getAllPastEvents();
-    List<Events> getUpcomingEventsByCategory(String category);
+    // Keyset-paginated: pass at most one of after/before (cursors from a previous page)
+    EventKeysetPage getUpcomingEventsPage(String category, String after, String before, int size);
+    EventKeysetPage getPastEventsPage(String after, String before, int size);
+    List<String> getUpcomingEventCategories();
+    List<String> getPastEventCategories();
     
     // User statistics
     int getTotalRegistrations();
@@ -33,10 +36,11 @@ public interface ParticipantService {
     Registrations registerForEvent(Integer eventId);
     
     /**
-     * Confirms a PENDING registration if seats are available
+     * Confirms a PENDING registration if seats are available, or puts it on the
+     * waitlist if the event is full and has its waitlist enabled
      * @param eventId The ID of the event to confirm registration for
-     * @return The updated registration with CONFIRMED status if successful
-     * @throws IllegalStateException if no seats are available or registration cannot be confirmed
+     * @return The updated registration with CONFIRMED (or WAITLIST) status if successful
+     * @throws IllegalStateException if no seats are available and there is no waitlist
      */
     Registrations confirmRegistration(Integer eventId);
     
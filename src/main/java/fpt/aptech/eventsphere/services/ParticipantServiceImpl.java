@@ -1,8 +1,11 @@
 package fpt.aptech.eventsphere.services;
 
+import fpt.aptech.eventsphere.dto.EventKeysetPage;
 import fpt.aptech.eventsphere.dto.ParticipantRegistrationDto;
 import fpt.aptech.eventsphere.repositories.*;
 import fpt.aptech.eventsphere.models.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -11,7 +14,11 @@ import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Transactional
@@ -26,6 +33,10 @@ public class ParticipantServiceImpl implements ParticipantService {
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
     private final EventSeatingRepository eventSeatingRepository;
+    private final RegistrationRepository registrationRepository;
+    private final SeatAllocationService seatAllocationService;
+    private final WaitlistService waitlistService;
+    private final EmailTemplateService emailTemplateService;
 
     public ParticipantServiceImpl(ParticipantRepository participantRepository,
                             EventRepository eventRepository,
@@ -34,7 +45,11 @@ public class ParticipantServiceImpl implements ParticipantService {
                             RoleRepository roleRepository,
                             PasswordEncoder passwordEncoder,
                             EmailService emailService,
-                            EventSeatingRepository eventSeatingRepository) {
+                            EventSeatingRepository eventSeatingRepository,
+                            RegistrationRepository registrationRepository,
+                            SeatAllocationService seatAllocationService,
+                            WaitlistService waitlistService,
+                            EmailTemplateService emailTemplateService) {
         this.participantRepository = participantRepository;
         this.eventRepository = eventRepository;
         this.userRepository = userRepository;
@@ -43,6 +58,10 @@ public class ParticipantServiceImpl implements ParticipantService {
         this.passwordEncoder = passwordEncoder;
         this.emailService = emailService;
         this.eventSeatingRepository = eventSeatingRepository;
+        this.registrationRepository = registrationRepository;
+        this.seatAllocationService = seatAllocationService;
+        this.waitlistService = waitlistService;
+        this.emailTemplateService = emailTemplateService;
     }
 
     // Removed duplicate getCurrentUser() method
@@ -127,17 +146,31 @@ public class ParticipantServiceImpl implements ParticipantService {
             return registration;
         }
 
-        // Handle seat count changes based on status transitions
-        if (newStatus == Registrations.RegistrationStatus.CONFIRMED) {
+        // Handle seat count changes based on status transitions (CONFIRMED and ATTENDED both hold a seat)
+        if (newStatus.holdsSeat()) {
             // Only increment if not already counted (coming from PENDING or CANCELLED)
-            if (oldStatus != Registrations.RegistrationStatus.CONFIRMED) {
+            if (!oldStatus.holdsSeat()) {
                 logger.info("Changing to CONFIRMED from {} - increasing seat count", oldStatus);
-                updateSeatCount(eventId, 1);
+                if (!updateSeatCount(eventId, 1)) {
+                    if (!seatAllocationService.isWaitlistEnabled(eventId)) {
+                        throw new IllegalStateException("No seats available");
+                    }
+                    // Event is full but has a waitlist - queue the registration instead
+                    logger.info("No seats left for event {} - adding registration to the waitlist", eventId);
+                    newStatus = Registrations.RegistrationStatus.WAITLIST;
+                    emailType = "waitlist";
+                    if (oldStatus == newStatus) {
+                        // Already queued: keep the place in line, the registration date and send no email
+                        logger.info("Registration {} stays on the waitlist of event {}", registration.getRegistrationId(), eventId);
+                        return registration;
+                    }
+                }
             }
-        } else if (oldStatus == Registrations.RegistrationStatus.CONFIRMED) {
-            // Only decrement if was previously CONFIRMED
-            logger.info("Changing from CONFIRMED to {} - decreasing seat count", newStatus);
+        } else if (oldStatus.holdsSeat()) {
+            // Only decrement if it held a seat, then hand the seat to the waitlist
+            logger.info("Changing from {} to {} - decreasing seat count", oldStatus, newStatus);
             updateSeatCount(eventId, -1);
+            waitlistService.promote(eventId, 1);
         } else if (oldStatus == Registrations.RegistrationStatus.CANCELLED && 
                   newStatus == Registrations.RegistrationStatus.PENDING) {
             // When re-activating a CANCELLED registration to PENDING, no seat count change
@@ -146,13 +179,22 @@ public class ParticipantServiceImpl implements ParticipantService {
             logger.info("Status change from {} to {} - no seat count change needed", oldStatus, newStatus);
         }
         
+        // Leaving the waitlist (cancelled or confirmed) frees the queue slot
+        if (oldStatus == Registrations.RegistrationStatus.WAITLIST) {
+            waitlistService.remove(registration);
+        }
+
         // Update the status
         registration.setStatus(newStatus);
         registration.setRegisteredOn(java.time.LocalDateTime.now());
         
         // Save the updated registration through the repository
         logger.info("Saving updated registration with status: {}", newStatus);
-        userRepository.saveAndFlush(registration.getStudent());
+        registrationRepository.saveAndFlush(registration);
+
+        if (newStatus == Registrations.RegistrationStatus.WAITLIST) {
+            waitlistService.enqueue(registration);
+        }
         
         // Send email notification if needed
         if (emailType != null) {
@@ -163,50 +205,40 @@ public class ParticipantServiceImpl implements ParticipantService {
         return registration;
     }
     
-    private void updateSeatCount(Integer eventId, int change) {
+    // Returns false when seats were requested but the event is full
+    private boolean updateSeatCount(Integer eventId, int change) {
         logger.info("Updating seat count for event {} with change: {}", eventId, change);
         
-        // Get or create EventSeating
-        EventSeating seating = eventSeatingRepository.findByEventId(eventId);
-        if (seating == null) {
-            logger.info("No EventSeating found for event {}, creating a new one", eventId);
-            Events event = eventRepository.findById(eventId)
-                .orElseThrow(() -> new RuntimeException("Event not found"));
-                
-            seating = new EventSeating();
-            seating.setEvent(event);
-            seating.setTotalSeats(200); // Default value, adjust as needed
-            seating.setSeatsBooked(0);
-            seating.setWaitlistEnabled(false);
-            seating = eventSeatingRepository.save(seating);
-            logger.info("Created new EventSeating for event {}", eventId);
-        }
-        
-        // Calculate new seats booked
-        int currentBooked = seating.getSeatsBooked();
-        int newSeatsBooked = currentBooked + change;
-        
-        logger.info("Current state - Total: {}, Booked: {}, Available: {}", 
-            seating.getTotalSeats(), currentBooked, seating.getAvailableSeat());
-        logger.info("Requested change: {}, New booked seats will be: {}", change, newSeatsBooked);
-        
-        // Validate seat availability
-        if (newSeatsBooked > seating.getTotalSeats()) {
-            logger.warn("Cannot book more seats than available. Requested: {}, Available: {}", 
-                newSeatsBooked, seating.getTotalSeats());
-            throw new IllegalStateException("No seats available");
+        // Get or create EventSeating (only needed before the allocator has loaded the event)
+        if (!seatAllocationService.isLoaded(eventId)) {
+            EventSeating seating = eventSeatingRepository.findByEventId(eventId);
+            if (seating == null) {
+                logger.info("No EventSeating found for event {}, creating a new one", eventId);
+                Events event = eventRepository.findById(eventId)
+                    .orElseThrow(() -> new RuntimeException("Event not found"));
+
+                seating = new EventSeating();
+                seating.setEvent(event);
+                seating.setTotalSeats(200); // Default value, adjust as needed
+                seating.setSeatsBooked(0);
+                seating.setWaitlistEnabled(false);
+                eventSeatingRepository.save(seating);
+                logger.info("Created new EventSeating for event {}", eventId);
+            }
         }
         
-        if (newSeatsBooked < 0) {
-            logger.warn("Cannot have negative booked seats. Requested: {}", newSeatsBooked);
-            throw new IllegalStateException("Invalid seat count");
+        // Seats are reserved/released in memory and written back in batches by the allocator
+        if (change > 0) {
+            if (!seatAllocationService.tryReserve(eventId, change)) {
+                logger.warn("Cannot book more seats than available. Requested: {}, Available: {}",
+                    change, seatAllocationService.getAvailableSeats(eventId));
+                return false;
+            }
+        } else if (change < 0) {
+            seatAllocationService.release(eventId, -change);
         }
-        
-        // Update the seat count
-        seating.setSeatsBooked(newSeatsBooked);
-        eventSeatingRepository.save(seating);
-        logger.info("Seat count updated - Total: {}, Booked: {}, Available: {}", 
-            seating.getTotalSeats(), newSeatsBooked, (seating.getTotalSeats() - newSeatsBooked));
+        logger.info("Seat count updated - Available: {}", seatAllocationService.getAvailableSeats(eventId));
+        return true;
     }
 
     @Override
@@ -252,8 +284,9 @@ public class ParticipantServiceImpl implements ParticipantService {
     public boolean isUserRegisteredForEvent(Integer eventId) {
         Users user = getCurrentUser();
         return participantRepository.findRegistration(eventId, user.getUserId())
-                .map(registration -> registration.getStatus() == Registrations.RegistrationStatus.CONFIRMED || 
-                                    registration.getStatus() == Registrations.RegistrationStatus.PENDING)
+                .map(registration -> registration.getStatus().holdsSeat() ||
+                                    registration.getStatus() == Registrations.RegistrationStatus.PENDING ||
+                                    registration.getStatus() == Registrations.RegistrationStatus.WAITLIST)
                 .orElse(false);
     }
 
@@ -261,28 +294,30 @@ public class ParticipantServiceImpl implements ParticipantService {
     public int getAvailableSeats(Integer eventId) {
         logger.info("Getting available seats for event {}", eventId);
         
-        // First try to get existing seating
-        EventSeating seating = eventSeatingRepository.findByEventId(eventId);
-        
-        // If no seating exists, create one
-        if (seating == null) {
-            logger.info("No EventSeating found for event {}, creating a default one", eventId);
-            Events event = eventRepository.findById(eventId).orElse(null);
-            if (event == null) {
-                logger.warn("Event {} not found, returning 0 available seats", eventId);
-                return 0;
+        // Seating already tracked by the allocator, no need to hit the table
+        if (!seatAllocationService.isLoaded(eventId)) {
+            EventSeating seating = eventSeatingRepository.findByEventId(eventId);
+
+            // If no seating exists, create one
+            if (seating == null) {
+                logger.info("No EventSeating found for event {}, creating a default one", eventId);
+                Events event = eventRepository.findById(eventId).orElse(null);
+                if (event == null) {
+                    logger.warn("Event {} not found, returning 0 available seats", eventId);
+                    return 0;
+                }
+
+                seating = new EventSeating();
+                seating.setEvent(event);
+                seating.setTotalSeats(200); // Default value
+                seating.setSeatsBooked(0);
+                seating.setWaitlistEnabled(false);
+                eventSeatingRepository.save(seating);
+                logger.info("Created default EventSeating for event {}", eventId);
             }
-            
-            seating = new EventSeating();
-            seating.setEvent(event);
-            seating.setTotalSeats(200); // Default value
-            seating.setSeatsBooked(0);
-            seating.setWaitlistEnabled(false);
-            seating = eventSeatingRepository.save(seating);
-            logger.info("Created default EventSeating for event {}", eventId);
         }
-        
-        int available = seating.getAvailableSeat();
+
+        int available = seatAllocationService.getAvailableSeats(eventId);
         logger.info("Available seats for event {}: {}", eventId, available);
         return available;
     }
@@ -292,40 +327,17 @@ public class ParticipantServiceImpl implements ParticipantService {
             String subject = "EventSphere: " + event.getTitle() + " - Registration " + 
                 ("registration".equals(emailType) ? "Confirmed" : "Updated");
             
-            String body = String.format("""
-                <html>
-                <body style=\"font-family: Arial, sans-serif; line-height: 1.6; color: #333; max-width: 600px; margin: 0 auto;\">
-                    <div style=\"background-color: #f8f9fa; padding: 20px; border-radius: 5px;\">
-                        <h2 style=\"color: #2c3e50;\">Event Registration %s</h2>
-                        <p>Dear %s,</p>
-                        <p>This email confirms your %s for the following event:</p>
-                        
-                        <div style=\"background: white; padding: 15px; border-radius: 5px; margin: 15px 0;\">
-                            <h3 style=\"margin-top: 0; color: #2c3e50;\">%s</h3>
-                            <p><strong>Date:</strong> %s</p>
-                            <p><strong>Time:</strong> %s</p>
-                            <p><strong>Location:</strong> %s</p>
-                        </div>
-                        
-                        <p>We look forward to seeing you there!</p>
-                        
-                        <p>Best regards,<br>The EventSphere Team</p>
-                        
-                        <div style=\"margin-top: 20px; padding-top: 15px; border-top: 1px solid #eee; font-size: 12px; color: #777;\">
-                            <p>This is an automated message. Please do not reply to this email.</p>
-                        </div>
-                    </div>
-                </body>
-                </html>
-                """,
-                "registration".equals(emailType) ? "Confirmation" : "Update",
-                user.getEmail(),
-                "registration".equals(emailType) ? "registration" : "registration update",
-                event.getTitle(),
-                event.getStartDate().toLocalDate(),
-                event.getStartDate().toLocalTime(),
-                event.getVenue() != null ? event.getVenue().getName() : "To be announced"
-            );
+            // Event part is rendered once and shared by everyone registering for it
+            boolean registration = "registration".equals(emailType);
+            Map<String, Object> variables = new HashMap<>();
+            variables.put("heading", registration ? "Confirmation" : "Update");
+            variables.put("action", registration ? "registration" : "registration update");
+            variables.put("title", event.getTitle());
+            variables.put("date", event.getStartDate().toLocalDate());
+            variables.put("time", event.getStartDate().toLocalTime());
+            variables.put("location", event.getVenue() != null ? event.getVenue().getName() : "To be announced");
+            String body = emailTemplateService.prepare("registration.html", variables, "recipientName")
+                    .render(user.getEmail());
 
             emailService.sendEmail(user.getEmail(), subject, body);
         } catch (Exception e) {
@@ -368,27 +380,48 @@ public class ParticipantServiceImpl implements ParticipantService {
     }
     
     @Override
-    public List<Events> getAllUpcomingEvents() {
-        logger.debug("Fetching all upcoming events");
-        List<Events> events = eventRepository.findAllUpcomingEvents();
-        logger.debug("Found {} upcoming events", events.size());
-        return events;
+    public EventKeysetPage getUpcomingEventsPage(String category, String after, String before, int size) {
+        LocalDateTime from = LocalDate.now().atStartOfDay();
+        Pageable limit = PageRequest.of(0, size + 1);
+        if (before != null) {
+            EventKeysetPage.Cursor cursor = EventKeysetPage.Cursor.parse(before);
+            return EventKeysetPage.backward(eventRepository.findUpcomingPageBefore(
+                    from, category, cursor.date(), cursor.id(), limit), size, Events::getStartDate);
+        }
+        if (after != null) {
+            EventKeysetPage.Cursor cursor = EventKeysetPage.Cursor.parse(after);
+            return EventKeysetPage.forward(eventRepository.findUpcomingPageAfter(
+                    from, category, cursor.date(), cursor.id(), limit), size, true, Events::getStartDate);
+        }
+        return EventKeysetPage.forward(eventRepository.findUpcomingPage(from, category, limit),
+                size, false, Events::getStartDate);
     }
-    
+
+    @Override
+    public EventKeysetPage getPastEventsPage(String after, String before, int size) {
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        Pageable limit = PageRequest.of(0, size + 1);
+        if (before != null) {
+            EventKeysetPage.Cursor cursor = EventKeysetPage.Cursor.parse(before);
+            return EventKeysetPage.backward(eventRepository.findPastPageBefore(
+                    today, cursor.date(), cursor.id(), limit), size, Events::getEndDate);
+        }
+        if (after != null) {
+            EventKeysetPage.Cursor cursor = EventKeysetPage.Cursor.parse(after);
+            return EventKeysetPage.forward(eventRepository.findPastPageAfter(
+                    today, cursor.date(), cursor.id(), limit), size, true, Events::getEndDate);
+        }
+        return EventKeysetPage.forward(eventRepository.findPastPage(today, limit), size, false, Events::getEndDate);
+    }
+
     @Override
-    public List<Events> getAllPastEvents() {
-        logger.debug("Fetching all past events");
-        List<Events> events = eventRepository.findAllPastEvents();
-        logger.debug("Found {} past events", events.size());
-        return events;
+    public List<String> getUpcomingEventCategories() {
+        return eventRepository.findUpcomingCategories(LocalDate.now().atStartOfDay());
     }
-    
+
     @Override
-    public List<Events> getUpcomingEventsByCategory(String category) {
-        logger.debug("Fetching upcoming events for category: {}", category);
-        List<Events> events = eventRepository.findUpcomingEventsByCategory(category);
-        logger.debug("Found {} events for category: {}", events.size(), category);
-        return events;
+    public List<String> getPastEventCategories() {
+        return eventRepository.findPastCategories(LocalDate.now().atStartOfDay());
     }
 
     @Override
@@ -1,5 +1,7 @@
 package fpt.aptech.eventsphere.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.itextpdf.text.*;
 import com.itextpdf.text.Font;
 import com.itextpdf.text.Image;
@@ -7,14 +9,33 @@ import com.itextpdf.text.pdf.*;
 import fpt.aptech.eventsphere.models.Certificates;
 import fpt.aptech.eventsphere.models.Events;
 import fpt.aptech.eventsphere.models.Users;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
 
+/**
+ * Renders participation certificates.
+ * <p>
+ * In template mode (app.certificates.pdf.use-template, the default) everything but the
+ * recipient's name, the issue date and the certificate ID is laid out once per event and kept
+ * as a finished PDF; each certificate is that PDF with the three values stamped onto it at the
+ * positions recorded while the template was laid out. Otherwise the whole document is laid out
+ * for every certificate. Both modes produce the same page.
+ */
 @Service
 public class PdfCertificateService {
 
@@ -24,42 +45,141 @@ public class PdfCertificateService {
     private static final Font NAME_FONT = new Font(Font.FontFamily.HELVETICA, 20, Font.BOLD, DARK_BLUE);
     private static final Font NORMAL_FONT = new Font(Font.FontFamily.HELVETICA, 12, Font.NORMAL);
     private static final Font ITALIC_FONT = new Font(Font.FontFamily.HELVETICA, 10, Font.ITALIC);
+    private static final Font ID_FONT = new Font(Font.FontFamily.COURIER, 8, Font.ITALIC, BaseColor.GRAY);
+
+    // Generic tags of the placeholders in a template
+    private static final String NAME_FIELD = "name";
+    private static final String DATE_FIELD = "date";
+    private static final String ID_FIELD = "id";
+    // Part of the content hash: bump when the layout changes so stored PDFs are rendered again
+    private static final int LAYOUT_VERSION = 2;
+
+    private final CertificateCodes certificateCodes;
+    private final String verifyUrl;
+    private final boolean useTemplate;
+    // Keyed by everything the template shows, so an edited event simply gets a new template
+    private final Cache<TemplateKey, CertificateTemplate> templates = Caffeine.newBuilder()
+            .maximumSize(200)
+            .expireAfterAccess(Duration.ofHours(6))
+            .build();
+
+    public PdfCertificateService(CertificateCodes certificateCodes,
+                                 @Value("${app.certificates.verify.url}") String verifyUrl,
+                                 @Value("${app.certificates.pdf.use-template:true}") boolean useTemplate) {
+        this.certificateCodes = certificateCodes;
+        this.verifyUrl = verifyUrl;
+        this.useTemplate = useTemplate;
+    }
 
     public byte[] generateCertificatePdf(Users user, Events event, Certificates certificate) throws IOException, DocumentException {
+        return useTemplate
+                ? stampCertificatePdf(user, event, certificate)
+                : renderCertificatePdf(user, event, certificate);
+    }
+
+    /**
+     * SHA-256 (hex) of everything printed on the certificate. Two calls return the same hash
+     * exactly when the rendered PDFs would show the same content.
+     */
+    public String contentHash(Users user, Events event, Certificates certificate) {
+        String content = String.join("\u0000", String.valueOf(LAYOUT_VERSION), TemplateKey.of(event).toString(),
+                recipientName(user), issueDate(certificate), certificateIdText(user, event, certificate));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Lays out the complete certificate for one recipient.
+     */
+    public byte[] renderCertificatePdf(Users user, Events event, Certificates certificate) throws IOException, DocumentException {
         Document document = new Document(PageSize.A4.rotate(), 50, 50, 50, 50);
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         PdfWriter writer = PdfWriter.getInstance(document, baos);
-        
+
         document.open();
-        
+        layout(document, writer, event,
+                new Fields(recipientName(user), issueDate(certificate), certificateIdText(user, event, certificate)));
+        document.close();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Stamps the recipient's fields onto the event's cached template, laying the template out
+     * first if needed.
+     */
+    public byte[] stampCertificatePdf(Users user, Events event, Certificates certificate) throws IOException, DocumentException {
+        CertificateTemplate template;
+        try {
+            template = templates.get(TemplateKey.of(event), key -> renderTemplate(event));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        PdfReader reader = new PdfReader(template.pdf());
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(template.pdf().length + 1024);
+        PdfStamper stamper = new PdfStamper(reader, baos);
+        PdfContentByte canvas = stamper.getOverContent(1);
+        template.slots().get(NAME_FIELD).stamp(canvas, recipientName(user));
+        template.slots().get(DATE_FIELD).stamp(canvas, issueDate(certificate));
+        template.slots().get(ID_FIELD).stamp(canvas, certificateIdText(user, event, certificate));
+        stamper.close();
+        reader.close();
+        return baos.toByteArray();
+    }
+
+    private CertificateTemplate renderTemplate(Events event) {
+        try {
+            Document document = new Document(PageSize.A4.rotate(), 50, 50, 50, 50);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            PdfWriter writer = PdfWriter.getInstance(document, baos);
+            SlotRecorder recorder = new SlotRecorder();
+            writer.setPageEvent(recorder);
+
+            document.open();
+            layout(document, writer, event, null);
+            document.close();
+
+            Map<String, Slot> slots = new HashMap<>();
+            slots.put(NAME_FIELD, recorder.slot(NAME_FIELD, NAME_FONT, Element.ALIGN_CENTER));
+            slots.put(DATE_FIELD, recorder.slot(DATE_FIELD, NORMAL_FONT, Element.ALIGN_CENTER));
+            slots.put(ID_FIELD, recorder.slot(ID_FIELD, ID_FONT, Element.ALIGN_RIGHT));
+            return new CertificateTemplate(baos.toByteArray(), slots);
+        } catch (DocumentException e) {
+            throw new UncheckedIOException(new IOException("Could not lay out certificate template", e));
+        }
+    }
+
+    // With fields == null this lays out a template: placeholders instead of the per-recipient values
+    private void layout(Document document, PdfWriter writer, Events event, Fields fields) throws DocumentException {
         // Add background
         addBackground(document, writer);
-        
+
         // Add header
         addHeader(document);
-        
+
         // Add content
-        addContent(document, user, event, certificate);
-        
+        addContent(document, event, fields);
+
         // Add footer
-        addFooter(document, event);
-        
-        document.close();
-        return baos.toByteArray();
+        addFooter(document, fields);
     }
-    
+
     private void addBackground(Document document, PdfWriter writer) {
         try {
             PdfContentByte canvas = writer.getDirectContentUnder();
             Rectangle rect = document.getPageSize();
-            
+
             // Create a background with light blue color and rounded corners
             canvas.setColorFill(new BaseColor(227, 242, 253, 25)); // 25 alpha for transparency
             canvas.roundRectangle(
-                rect.getLeft() + 20, 
-                rect.getBottom() + 20, 
-                rect.getWidth() - 40, 
-                rect.getHeight() - 40, 
+                rect.getLeft() + 20,
+                rect.getBottom() + 20,
+                rect.getWidth() - 40,
+                rect.getHeight() - 40,
                 20
             );
             canvas.fill();
@@ -67,7 +187,7 @@ public class PdfCertificateService {
             // Background is not critical, continue without it
         }
     }
-    
+
     private void addHeader(Document document) throws DocumentException {
         // Add logo if available
         try {
@@ -80,13 +200,13 @@ public class PdfCertificateService {
         } catch (Exception e) {
             // Logo not found, continue without it
         }
-        
+
         // Add title
         Paragraph title = new Paragraph("CERTIFICATE OF PARTICIPATION", TITLE_FONT);
         title.setAlignment(Element.ALIGN_CENTER);
         title.setSpacingAfter(20);
         document.add(title);
-        
+
         // Add decorative line
         Paragraph line = new Paragraph();
         line.add(Chunk.NEWLINE);
@@ -94,158 +214,213 @@ public class PdfCertificateService {
         line.setSpacingAfter(20);
         document.add(line);
     }
-    
-    private void addContent(Document document, Users user, Events event, Certificates certificate) throws DocumentException {
+
+    private void addContent(Document document, Events event, Fields fields) throws DocumentException {
         // Add recipient name
         Paragraph recipient = new Paragraph("This certificate is awarded to", HEADER_FONT);
         recipient.setAlignment(Element.ALIGN_CENTER);
         document.add(recipient);
-        
+
         // Add user's name (using email as identifier)
-        String userName = user.getEmail() != null ? user.getEmail() : "Participant";
-        Paragraph name = new Paragraph(userName, NAME_FONT);
+        Paragraph name = new Paragraph(field(fields == null ? null : fields.name(), NAME_FIELD, NAME_FONT));
         name.setAlignment(Element.ALIGN_CENTER);
         name.setSpacingAfter(15);
         document.add(name);
-        
+
         // Add participation text
         Paragraph participation = new Paragraph("has successfully participated in", HEADER_FONT);
         participation.setAlignment(Element.ALIGN_CENTER);
         participation.setSpacingAfter(15);
         document.add(participation);
-        
+
         // Add event title
         String title = event.getTitle() != null ? event.getTitle() : "the event";
-        Paragraph eventTitle = new Paragraph("\"" + title + "\"", 
+        Paragraph eventTitle = new Paragraph("\"" + title + "\"",
             new Font(Font.FontFamily.HELVETICA, 18, Font.BOLD, DARK_BLUE));
         eventTitle.setAlignment(Element.ALIGN_CENTER);
         eventTitle.setSpacingAfter(10);
         document.add(eventTitle);
-        
+
         // Add event details
         Paragraph details = new Paragraph();
         details.setAlignment(Element.ALIGN_CENTER);
-        
+
         // Add event date
         if (event.getStartDate() != null) {
-            details.add(new Chunk("Held on: " + 
-                event.getStartDate().format(DateTimeFormatter.ofPattern("EEEE, MMMM d, yyyy")), 
+            details.add(new Chunk("Held on: " +
+                event.getStartDate().format(DateTimeFormatter.ofPattern("EEEE, MMMM d, yyyy")),
                 NORMAL_FONT));
             details.add(Chunk.NEWLINE);
         }
-        
+
         // Add venue if available
         if (event.getVenue() != null && event.getVenue().getName() != null) {
             details.add(new Chunk("Venue: " + event.getVenue().getName(), NORMAL_FONT));
             details.add(Chunk.NEWLINE);
         }
-        
+
         // Add organizer if available (using email as identifier)
         if (event.getOrganizer() != null) {
-            String organizerName = event.getOrganizer().getEmail() != null ? 
+            String organizerName = event.getOrganizer().getEmail() != null ?
                 event.getOrganizer().getEmail() : "Organizer";
             details.add(new Chunk("Organized by: " + organizerName, NORMAL_FONT));
             details.add(Chunk.NEWLINE);
         }
-        
+
         details.setSpacingAfter(30);
         document.add(details);
-        
+
         // Add signatures
-        addSignatures(document, event, certificate);
+        addSignatures(document, event, fields);
     }
-    
-    private void addSignatures(Document document, Events event, Certificates certificate) throws DocumentException {
+
+    private void addSignatures(Document document, Events event, Fields fields) throws DocumentException {
         PdfPTable table = new PdfPTable(2);
         table.setWidthPercentage(80);
         table.setHorizontalAlignment(Element.ALIGN_CENTER);
         table.setSpacingBefore(20);
-        
+
         // Organizer signature
         PdfPCell organizerCell = new PdfPCell();
         organizerCell.setBorder(Rectangle.NO_BORDER);
         organizerCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        
+
         // Add signature line
         Paragraph organizerLine = new Paragraph("________________________");
         organizerLine.setAlignment(Element.ALIGN_CENTER);
         organizerCell.addElement(organizerLine);
-        
+
         // Add organizer name (using email as identifier)
         if (event.getOrganizer() != null) {
-            String organizerName = event.getOrganizer().getEmail() != null ? 
+            String organizerName = event.getOrganizer().getEmail() != null ?
                 event.getOrganizer().getEmail() : "Organizer";
             Paragraph orgNamePara = new Paragraph(organizerName, NORMAL_FONT);
             orgNamePara.setAlignment(Element.ALIGN_CENTER);
             organizerCell.addElement(orgNamePara);
         }
-        
+
         // Add title
         Paragraph organizerTitle = new Paragraph("Event Organizer", ITALIC_FONT);
         organizerTitle.setAlignment(Element.ALIGN_CENTER);
         organizerCell.addElement(organizerTitle);
-        
+
         table.addCell(organizerCell);
-        
+
         // Date
         PdfPCell dateCell = new PdfPCell();
         dateCell.setBorder(Rectangle.NO_BORDER);
         dateCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        
+
         // Add signature line
         Paragraph dateLine = new Paragraph("________________________");
         dateLine.setAlignment(Element.ALIGN_CENTER);
         dateCell.addElement(dateLine);
-        
-        // Add date (use current date if issuedOn is null)
-        java.time.LocalDate issueDate = certificate != null && certificate.getIssuedOn() != null ? 
-            certificate.getIssuedOn().toLocalDate() : java.time.LocalDate.now();
-            
-        Paragraph date = new Paragraph(
-            issueDate.format(DateTimeFormatter.ofPattern("MMMM d, yyyy")), 
-            NORMAL_FONT);
+
+        // Add issue date
+        Paragraph date = new Paragraph(field(fields == null ? null : fields.date(), DATE_FIELD, NORMAL_FONT));
         date.setAlignment(Element.ALIGN_CENTER);
         dateCell.addElement(date);
-        
+
         // Add title
         Paragraph dateTitle = new Paragraph("Date", ITALIC_FONT);
         dateTitle.setAlignment(Element.ALIGN_CENTER);
         dateCell.addElement(dateTitle);
-        
+
         table.addCell(dateCell);
-        
+
         document.add(table);
     }
-    
-    private void addFooter(Document document, Events event) throws DocumentException {
+
+    private void addFooter(Document document, Fields fields) throws DocumentException {
         // Add some space
         document.add(Chunk.NEWLINE);
         document.add(Chunk.NEWLINE);
-        
+
         // Add certificate ID
-        if (event.getEventId() != 0) {
-            String title = event.getTitle() != null ? 
-                event.getTitle().replaceAll("\\s+", "-").toLowerCase() : "event";
-            String certId = String.format("Certificate ID: %s-%d", 
-                title,
-                event.getEventId());
-                
-            Paragraph idParagraph = new Paragraph(certId, 
-                new Font(Font.FontFamily.COURIER, 8, Font.ITALIC, BaseColor.GRAY));
-            idParagraph.setAlignment(Element.ALIGN_RIGHT);
-            document.add(idParagraph);
-        }
-        
+        Paragraph idParagraph = new Paragraph(field(fields == null ? null : fields.id(), ID_FIELD, ID_FONT));
+        idParagraph.setAlignment(Element.ALIGN_RIGHT);
+        document.add(idParagraph);
+
         // Add terms and conditions
         Paragraph terms = new Paragraph(
             "This certificate is issued as a recognition of participation. " +
-            "The authenticity of this certificate can be verified with the event organizers.",
+            "The authenticity of this certificate can be verified at " + verifyUrl + " followed by its certificate ID.",
             new Font(Font.FontFamily.HELVETICA, 8, Font.ITALIC, BaseColor.GRAY));
         terms.setAlignment(Element.ALIGN_CENTER);
         terms.setSpacingBefore(20);
         document.add(terms);
     }
-    
+
+    // The value itself, or for a template a blank placeholder that reports its position under the tag
+    private static Chunk field(String value, String tag, Font font) {
+        if (value != null) {
+            return new Chunk(value, font);
+        }
+        Chunk placeholder = new Chunk(" ", font);
+        placeholder.setGenericTag(tag);
+        return placeholder;
+    }
+
+    private static String recipientName(Users user) {
+        return user.getEmail() != null ? user.getEmail() : "Participant";
+    }
+
+    private static String issueDate(Certificates certificate) {
+        // Use current date if issuedOn is null
+        java.time.LocalDate issueDate = certificate != null && certificate.getIssuedOn() != null ?
+            certificate.getIssuedOn().toLocalDate() : java.time.LocalDate.now();
+        return issueDate.format(DateTimeFormatter.ofPattern("MMMM d, yyyy"));
+    }
+
+    // The signed code checked by /certificates/verify/{code}; none until the certificate is saved
+    private String certificateIdText(Users user, Events event, Certificates certificate) {
+        if (certificate == null || certificate.getCertificateId() == 0) {
+            return "";
+        }
+        return "Certificate ID: " + certificateCodes.codeFor(certificate.getCertificateId(), event.getEventId(), user.getUserId());
+    }
+
+    private record Fields(String name, String date, String id) {
+    }
+
+    private record TemplateKey(int eventId, String title, LocalDateTime startDate, String venue, String organizer) {
+        static TemplateKey of(Events event) {
+            return new TemplateKey(event.getEventId(), event.getTitle(), event.getStartDate(),
+                    event.getVenue() != null ? event.getVenue().getName() : null,
+                    event.getOrganizer() != null ? event.getOrganizer().getEmail() : null);
+        }
+    }
+
+    private record CertificateTemplate(byte[] pdf, Map<String, Slot> slots) {
+    }
+
+    // Where a field's text goes: its anchor on the baseline, and how the text aligns to it
+    private record Slot(float x, float baseline, int alignment, Font font) {
+        void stamp(PdfContentByte canvas, String text) {
+            ColumnText.showTextAligned(canvas, alignment, new Phrase(text, font), x, baseline, 0);
+        }
+    }
+
+    private static final class SlotRecorder extends PdfPageEventHelper {
+        private final Map<String, Rectangle> positions = new HashMap<>();
+
+        @Override
+        public void onGenericTag(PdfWriter writer, Document document, Rectangle rect, String text) {
+            positions.put(text, new Rectangle(rect));
+        }
+
+        Slot slot(String tag, Font font, int alignment) {
+            Rectangle rect = positions.get(tag);
+            if (rect == null) {
+                throw new IllegalStateException("Certificate template has no position for field " + tag);
+            }
+            // The tag's rectangle spans descent to ascent around the baseline
+            float descent = font.getCalculatedBaseFont(false).getFontDescriptor(BaseFont.DESCENT, font.getSize());
+            float x = alignment == Element.ALIGN_RIGHT ? rect.getRight() : (rect.getLeft() + rect.getRight()) / 2;
+            return new Slot(x, rect.getBottom() - descent, alignment, font);
+        }
+    }
+
     // Simple line separator implementation using iText's built-in LineSeparator
     private static class LineSeparator extends com.itextpdf.text.pdf.draw.LineSeparator {
         public LineSeparator(float lineWidth, float percentage, BaseColor color, int align, float offset) {
@@ -0,0 +1,128 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.repositories.RegistrationRepository;
+import lombok.RequiredArgsConstructor;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes an event's registrations straight to an output stream as CSV or XLSX.
+ * <p>
+ * Rows come from a database cursor as plain column values (no entities), and each row is written
+ * out before the next is read, so memory use doesn't grow with the number of registrations.
+ * XLSX goes through POI's SXSSF, which keeps a small window of rows in memory and spills the
+ * rest to a temporary file.
+ */
+@Service
+@RequiredArgsConstructor
+public class RegistrationExportService {
+    private static final List<String> HEADERS = List.of(
+            "Registration ID", "Registered at", "Status", "Email", "Full name", "Phone", "Department", "Enrollment no");
+    private static final DateTimeFormatter CSV_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int XLSX_WINDOW = 200;
+
+    private final RegistrationRepository registrationRepository;
+
+    @Transactional(readOnly = true)
+    public void writeCsv(int eventId, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        // BOM so Excel opens the file as UTF-8 (names are often Vietnamese)
+        writer.write('\uFEFF');
+        writeCsvLine(writer, HEADERS.toArray());
+        try (Stream<Object[]> rows = registrationRepository.streamExportRows(eventId)) {
+            rows.forEach(row -> {
+                try {
+                    writeCsvLine(writer, row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    @Transactional(readOnly = true)
+    public void writeXlsx(int eventId, OutputStream out) throws IOException {
+        // close() also deletes the temp files the rows were flushed to
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(XLSX_WINDOW)) {
+            workbook.setCompressTempFiles(true);
+            SXSSFSheet sheet = workbook.createSheet("Registrations");
+            CellStyle headerStyle = workbook.createCellStyle();
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            headerStyle.setFont(bold);
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < HEADERS.size(); i++) {
+                header.createCell(i).setCellValue(HEADERS.get(i));
+                header.getCell(i).setCellStyle(headerStyle);
+            }
+
+            try (Stream<Object[]> rows = registrationRepository.streamExportRows(eventId)) {
+                int[] rowIndex = {1};
+                rows.forEach(values -> {
+                    Row row = sheet.createRow(rowIndex[0]++);
+                    for (int i = 0; i < values.length; i++) {
+                        Object value = values[i];
+                        if (value instanceof Number number) {
+                            row.createCell(i).setCellValue(number.doubleValue());
+                        } else if (value instanceof LocalDateTime dateTime) {
+                            row.createCell(i).setCellValue(dateTime);
+                            row.getCell(i).setCellStyle(dateStyle);
+                        } else if (value != null) {
+                            row.createCell(i).setCellValue(value.toString());
+                        }
+                    }
+                });
+            }
+            workbook.write(out);
+            out.flush();
+        }
+    }
+
+    private static void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvField(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof LocalDateTime dateTime ? CSV_DATE.format(dateTime) : value.toString();
+        // Keep spreadsheet apps from running user-entered text as a formula
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            text = '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
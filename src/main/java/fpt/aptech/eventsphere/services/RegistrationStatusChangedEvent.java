@@ -0,0 +1,10 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.models.Registrations;
+
+/**
+ * Published when a registration is written, with its new status (null once deleted), so door
+ * check-in can turn away tickets of registrations that no longer hold a seat.
+ */
+public record RegistrationStatusChangedEvent(int eventId, int registrationId, Registrations.RegistrationStatus status) {
+}
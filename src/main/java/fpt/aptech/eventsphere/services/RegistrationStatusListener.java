@@ -0,0 +1,36 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.models.Registrations;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * JPA entity listener on registrations that publishes their status (see CheckInService). Bulk
+ * JPQL updates bypass it and have to publish themselves.
+ */
+public class RegistrationStatusListener {
+    private final ApplicationEventPublisher publisher;
+
+    public RegistrationStatusListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onWrite(Registrations registration) {
+        if (registration.getEvent() != null) {
+            publisher.publishEvent(new RegistrationStatusChangedEvent(registration.getEvent().getEventId(),
+                    registration.getRegistrationId(), registration.getStatus()));
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Registrations registration) {
+        if (registration.getEvent() != null) {
+            publisher.publishEvent(new RegistrationStatusChangedEvent(registration.getEvent().getEventId(),
+                    registration.getRegistrationId(), null));
+        }
+    }
+}
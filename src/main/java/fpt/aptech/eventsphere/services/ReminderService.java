@@ -2,53 +2,387 @@ package fpt.aptech.eventsphere.services;
 
 import fpt.aptech.eventsphere.models.Events;
 import fpt.aptech.eventsphere.models.Registrations;
+import fpt.aptech.eventsphere.models.ReminderJob;
 import fpt.aptech.eventsphere.repositories.EventRepository;
-import org.springframework.beans.factory.annotation.Autowired;
+import fpt.aptech.eventsphere.repositories.RegistrationRepository;
+import fpt.aptech.eventsphere.repositories.ReminderJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Sends event reminders at fixed offsets before the start (24h and 1h by default).
+ * <p>
+ * Each pending (event, offset) reminder is a row in reminder_jobs, written when upcoming events
+ * are loaded. Every node also keeps the fire times in a delay queue, so a single thread wakes up
+ * at the exact time a reminder is due instead of on the next poll. On wake-up, and on a periodic
+ * sweep that also picks up jobs whose lease expired, the node claims due rows with SKIP LOCKED,
+ * so with several nodes each reminder is sent by one of them. Claimed jobs are sent as a batch:
+ * one query for the event details, one for all recipient emails and one bulk update of the
+ * reminder state, committed together with marking the jobs SENT under this node's lease.
+ * Events.lastReminderMinutes records the smallest offset sent so far, and reminderSent is set
+ * once the last reminder has gone out. A failed job is retried after an exponential backoff
+ * (next_attempt_at) until max-attempts, then left FAILED.
+ */
 @Service
 public class ReminderService {
-    @Autowired
-    EventRepository eventRepository;
-    @Autowired
-    EmailService emailService;
-
-    @Scheduled(fixedRate = 2 * 60 * 1000) //every two minutes
-    @Transactional
-    public void sendEventReminders() {
-        int hoursBefore = 1;
+    private static final Logger logger = LoggerFactory.getLogger(ReminderService.class);
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    private final EventRepository eventRepository;
+    private final RegistrationRepository registrationRepository;
+    private final ReminderJobRepository reminderJobRepository;
+    private final EmailService emailService;
+    private final EmailTemplateService emailTemplateService;
+    private final TransactionTemplate transactionTemplate;
+
+    // Largest offset first
+    private final List<Duration> offsets;
+    private final Duration lookAhead;
+    private final Duration lease;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final String nodeId;
+    private final DelayQueue<Wakeup> wakeups = new DelayQueue<>();
+    private final Map<WakeupKey, Wakeup> scheduled = new ConcurrentHashMap<>();
+    private volatile Thread worker;
+    // Refreshed by sweeps, so metric scrapes don't query the database
+    private final AtomicLong pendingJobs = new AtomicLong();
+
+    private final Counter claimedCounter;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+
+    public ReminderService(EventRepository eventRepository,
+                           RegistrationRepository registrationRepository,
+                           ReminderJobRepository reminderJobRepository,
+                           EmailService emailService,
+                           EmailTemplateService emailTemplateService,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.reminders.offsets:24h,1h}") List<Duration> offsets,
+                           @Value("${app.reminders.refresh-interval-ms:600000}") long refreshIntervalMs,
+                           @Value("${app.reminders.lease:2m}") Duration lease,
+                           @Value("${app.reminders.batch-size:100}") int batchSize,
+                           @Value("${app.reminders.max-attempts:5}") int maxAttempts,
+                           @Value("${app.reminders.retry-backoff:1m}") Duration retryBackoff,
+                           @Value("${app.reminders.node-id:}") String nodeId) {
+        this.eventRepository = eventRepository;
+        this.registrationRepository = registrationRepository;
+        this.reminderJobRepository = reminderJobRepository;
+        this.emailService = emailService;
+        this.emailTemplateService = emailTemplateService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.offsets = offsets.stream().sorted(Comparator.reverseOrder()).toList();
+        // Load anything that fires before the refresh after next, so nothing slips between refreshes
+        this.lookAhead = this.offsets.get(0).plusMillis(2 * refreshIntervalMs);
+        this.lease = lease;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+
+        this.claimedCounter = meterRegistry.counter("reminders.jobs", "outcome", "claimed");
+        this.sentCounter = meterRegistry.counter("reminders.jobs", "outcome", "sent");
+        this.failedCounter = meterRegistry.counter("reminders.jobs", "outcome", "failed");
+        Gauge.builder("reminders.jobs.pending", pendingJobs, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresh();
+        worker = Thread.ofPlatform().daemon().name("reminder-scheduler").start(this::runLoop);
+        logger.info("Reminder scheduler started on node {}", nodeId);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Loads upcoming events and records the reminders they still need.
+     */
+    @Scheduled(initialDelayString = "${app.reminders.refresh-interval-ms:600000}",
+            fixedDelayString = "${app.reminders.refresh-interval-ms:600000}")
+    public void refresh() {
         LocalDateTime now = LocalDateTime.now();
-        LocalDateTime limit = now.plusHours(hoursBefore);
-        List<Events> events = eventRepository.findEventsStartingSoon(now, limit);
-
-        for (Events event : events) {
-            List<Registrations> registrations = eventRepository.findEventRegistrations(event.getEventId());
-            List<String> emails = registrations.stream()
-                    .map(r -> r.getStudent().getEmail())
-                    .toList();
-
-            if (!emails.isEmpty()) {
-                String subject = "Reminder: " + event.getTitle() + " starts soon!";
-                String body = String.format(
-                        "Dear participant,%n%n" +
-                                "This is a reminder that '%s' will start on %s at %s.%n%n" +
-                                "We look forward to seeing you!%n%n" +
-                                "Regards,%nEvent Team",
-                        event.getTitle(),
-                        event.getStartDate(),
-                        event.getVenue().getName()
-                );
+        List<Object[]> candidates = eventRepository.findReminderCandidates(now, now.plus(lookAhead),
+                Events.EventStatus.CANCELLED);
+        int queued = transactionTemplate.execute(status -> {
+            int count = 0;
+            for (Object[] row : candidates) {
+                count += schedule((Integer) row[0], (LocalDateTime) row[1], (Integer) row[2], now);
+            }
+            return count;
+        });
+        logger.info("Reminder refresh: {} upcoming event(s), {} new reminder(s) queued, {} pending",
+                candidates.size(), queued, scheduled.size());
+    }
+
+    /**
+     * Records the reminders for an event whose start date may have changed.
+     * Joins the caller's transaction.
+     */
+    public void schedule(Events event) {
+        LocalDateTime now = LocalDateTime.now();
+        if (event.getStartDate() != null && event.getStartDate().isBefore(now.plus(lookAhead))
+                && !Boolean.TRUE.equals(event.getReminderSent())) {
+            schedule(event.getEventId(), event.getStartDate(), event.getLastReminderMinutes(), now);
+        }
+    }
+
+    /**
+     * Claims due jobs and sends them. Also picks up jobs left behind by a node that died.
+     */
+    @Scheduled(fixedDelayString = "${app.reminders.sweep-interval-ms:60000}")
+    public void sweep() {
+        int sent;
+        do {
+            sent = claimAndSend();
+            // Stop at a partial batch or one with failures: those jobs are backing off
+        } while (sent == batchSize);
+        pendingJobs.set(reminderJobRepository.countByStatus(ReminderJob.JobStatus.PENDING));
+    }
+
+    private int schedule(int eventId, LocalDateTime startDate, Integer lastReminderMinutes, LocalDateTime now) {
+        int queued = 0;
+        Wakeup overdue = null;
+        for (Duration offset : offsets) {
+            int minutes = (int) offset.toMinutes();
+            if (lastReminderMinutes != null && minutes >= lastReminderMinutes) {
+                continue; // already sent
+            }
+            Wakeup wakeup = new Wakeup(eventId, minutes, startDate.minus(offset));
+            if (!wakeup.fireAt.isAfter(now)) {
+                // Missed while down: only the closest overdue reminder is still worth sending
+                overdue = wakeup;
+                continue;
+            }
+            queued += enqueue(wakeup);
+        }
+        if (overdue != null) {
+            queued += enqueue(overdue);
+        }
+        return queued;
+    }
 
+    private int enqueue(Wakeup wakeup) {
+        WakeupKey key = wakeup.key();
+        Wakeup previous = scheduled.get(key);
+        if (previous != null && previous.fireAt.equals(wakeup.fireAt)) {
+            return 0;
+        }
+        reminderJobRepository.upsert(wakeup.eventId, wakeup.offsetMinutes, wakeup.fireAt);
+        if (previous != null) {
+            wakeups.remove(previous); // start date moved
+        }
+        scheduled.put(key, wakeup);
+        wakeups.add(wakeup);
+        return 1;
+    }
+
+    private void runLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<Wakeup> due = new ArrayList<>();
+                due.add(wakeups.take());
+                wakeups.drainTo(due);
+                due.forEach(wakeup -> scheduled.remove(wakeup.key(), wakeup));
+                sweep();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.error("Reminder batch failed", e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of jobs claimed and sent successfully
+     */
+    private synchronized int claimAndSend() {
+        List<ReminderJob> claimed = transactionTemplate.execute(status -> claim());
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+        claimedCounter.increment(claimed.size());
+        int[] sent = {0};
+
+        Map<Integer, List<ReminderJob>> byOffset = new TreeMap<>(Comparator.reverseOrder());
+        for (ReminderJob job : claimed) {
+            byOffset.computeIfAbsent(job.getOffsetMinutes(), m -> new ArrayList<>()).add(job);
+        }
+        byOffset.forEach((offsetMinutes, jobs) -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> sendBatch(offsetMinutes, jobs));
+                sentCounter.increment(jobs.size());
+                sent[0] += jobs.size();
+            } catch (Exception e) {
+                failedCounter.increment(jobs.size());
+                logger.error("Failed to send {}-minute reminders for {} event(s)", offsetMinutes, jobs.size(), e);
+                transactionTemplate.executeWithoutResult(status -> recordFailure(jobs, e));
+            }
+        });
+        return sent[0];
+    }
+
+    private List<ReminderJob> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ReminderJob> due = reminderJobRepository.lockDueJobs(now, batchSize);
+        for (ReminderJob job : due) {
+            if (job.getStatus() == ReminderJob.JobStatus.CLAIMED) {
+                logger.warn("Reclaiming reminder job {} from {} after its lease expired", job.getId(), job.getLeaseOwner());
+            }
+            job.setStatus(ReminderJob.JobStatus.CLAIMED);
+            job.setLeaseOwner(nodeId);
+            job.setLeaseExpiresAt(now.plus(lease));
+        }
+        return due;
+    }
+
+    private void sendBatch(int offsetMinutes, List<ReminderJob> jobs) {
+        Map<Integer, ReminderJob> jobsByEvent = new HashMap<>();
+        jobs.forEach(job -> jobsByEvent.put(job.getEventId(), job));
+
+        // Skip events that moved or already had this reminder since the job was written
+        Map<Integer, Object[]> details = new HashMap<>();
+        for (Object[] row : eventRepository.findReminderDetails(jobsByEvent.keySet())) {
+            Integer eventId = (Integer) row[0];
+            Integer lastReminderMinutes = (Integer) row[4];
+            LocalDateTime expectedStart = jobsByEvent.get(eventId).getFireAt().plusMinutes(offsetMinutes);
+            boolean sameStart = expectedStart.equals(row[2]);
+            boolean notSent = lastReminderMinutes == null || lastReminderMinutes > offsetMinutes;
+            if (sameStart && notSent) {
+                details.put(eventId, row);
+            }
+        }
+
+        if (!details.isEmpty()) {
+            Map<Integer, List<String>> emailsByEvent = new HashMap<>();
+            for (Object[] row : registrationRepository.findEmailsByEventIds(details.keySet(),
+                    Registrations.RegistrationStatus.CONFIRMED)) {
+                emailsByEvent.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add((String) row[1]);
+            }
+
+            details.forEach((eventId, row) -> {
+                List<String> emails = emailsByEvent.get(eventId);
+                if (emails == null) {
+                    return;
+                }
+                String subject = "Reminder: " + row[1] + " starts soon!";
+                Map<String, Object> variables = new HashMap<>();
+                variables.put("title", row[1]);
+                variables.put("startDate", row[2]);
+                variables.put("venue", row[3]);
+                String body = emailTemplateService.render("reminder.txt", variables);
                 emailService.sendEmailToUsers(emails, subject, body);
+            });
+
+            boolean finalReminder = offsetMinutes == offsets.get(offsets.size() - 1).toMinutes();
+            eventRepository.markRemindersSent(details.keySet(), offsetMinutes, finalReminder);
+        }
 
-                event.setReminderSent(true);
-                eventRepository.save(event);
+        // Skipped jobs are done too: a moved event already has a job for its new start date
+        List<Long> jobIds = jobs.stream().map(ReminderJob::getId).toList();
+        int marked = reminderJobRepository.markSent(jobIds, nodeId, LocalDateTime.now());
+        if (marked != jobIds.size()) {
+            // Lease expired and another node took some of the jobs over; let it send them
+            throw new IllegalStateException("Lost the lease on " + (jobIds.size() - marked) + " reminder job(s)");
+        }
+        logger.info("Sent {}-minute reminders for {} event(s)", offsetMinutes, details.size());
+    }
+
+    private void recordFailure(List<ReminderJob> jobs, Exception failure) {
+        String error = failure.getMessage();
+        if (error != null && error.length() > 1000) {
+            error = error.substring(0, 1000);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (ReminderJob job : jobs) {
+            ReminderJob current = reminderJobRepository.findById(job.getId()).orElse(null);
+            if (current == null || current.getStatus() != ReminderJob.JobStatus.CLAIMED
+                    || !nodeId.equals(current.getLeaseOwner())) {
+                continue; // no longer ours
             }
+            current.setAttempts(current.getAttempts() + 1);
+            current.setLastError(error);
+            current.setLeaseOwner(null);
+            current.setLeaseExpiresAt(null);
+            current.setNextAttemptAt(now.plus(backoff(current.getAttempts())));
+            current.setStatus(current.getAttempts() >= maxAttempts
+                    ? ReminderJob.JobStatus.FAILED
+                    : ReminderJob.JobStatus.PENDING);
+        }
+    }
+
+    // retry-backoff after the first failure, doubling with each further one, at most MAX_BACKOFF
+    Duration backoff(int attempts) {
+        Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private record WakeupKey(int eventId, int offsetMinutes) {
+    }
+
+    private static final class Wakeup implements Delayed {
+        final int eventId;
+        final int offsetMinutes;
+        final LocalDateTime fireAt;
+
+        Wakeup(int eventId, int offsetMinutes, LocalDateTime fireAt) {
+            this.eventId = eventId;
+            this.offsetMinutes = offsetMinutes;
+            this.fireAt = fireAt;
+        }
+
+        WakeupKey key() {
+            return new WakeupKey(eventId, offsetMinutes);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(LocalDateTime.now(), fireAt));
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return fireAt.compareTo(((Wakeup) other).fireAt);
         }
     }
 }
@@ -0,0 +1,379 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.models.EventSeating;
+import fpt.aptech.eventsphere.repositories.EventSeatingRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory seat allocator sitting in front of the event_seating table.
+ * <p>
+ * Each event gets its own counter so concurrent registrations for different events never
+ * contend, and seats within an event are reserved with a CAS loop instead of a row lock.
+ * Reserved/released seats are accumulated as a pending delta and written back in the
+ * background with conditional updates that can never push seats_booked outside
+ * [0, total_seats]. A delta that fails to write or is rejected is kept and retried, never
+ * dropped. Counters are loaded lazily from the table, so a restart simply reloads them on
+ * first use.
+ * <p>
+ * Seats reserved since the last flush are lost if the process is killed without shutting
+ * down. The registrations themselves are committed, so on startup {@link #reconcile()} resets
+ * seats_booked of every event to its CONFIRMED and ATTENDED registrations before counters
+ * are used; the registrations table is the source of truth, event_seating only a running total.
+ */
+@Service
+public class SeatAllocationService {
+    private static final Logger logger = LoggerFactory.getLogger(SeatAllocationService.class);
+
+    private final EventSeatingRepository eventSeatingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Integer, SeatCounter> counters = new ConcurrentHashMap<>();
+    // Unwritten seats of dropped counters, picked up by the next counter loaded for the event
+    private final Map<Integer, Integer> carried = new ConcurrentHashMap<>();
+    // Orders counter loads against writes of carried seats
+    private final Object reloadLock = new Object();
+
+    public SeatAllocationService(EventSeatingRepository eventSeatingRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.eventSeatingRepository = eventSeatingRepository;
+        // Flushes always commit on their own, even when triggered from inside a request transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Tries to take {@code seats} seats for the event.
+     * If called inside a transaction that later rolls back, the seats are given back.
+     * @return true if the seats were reserved, false if the event is full
+     * @throws IllegalStateException if the event has no seating configured
+     */
+    public boolean tryReserve(int eventId, int seats) {
+        int reserved;
+        while ((reserved = counterFor(eventId).reserve(seats)) == SeatCounter.REMOVED) {
+            Thread.onSpinWait();
+        }
+        if (reserved == 0) {
+            logger.info("No seats left for event {} (requested {})", eventId, seats);
+            return false;
+        }
+        undoOnRollback(() -> releaseSeats(eventId, seats));
+        return true;
+    }
+
+    /**
+     * Gives {@code seats} seats back to the event.
+     * If called inside a transaction that later rolls back, the seats are taken again.
+     */
+    public void release(int eventId, int seats) {
+        int released = releaseSeats(eventId, seats);
+        if (released > 0) {
+            undoOnRollback(() -> {
+                while (!counterFor(eventId).forceReserve(released)) {
+                    Thread.onSpinWait();
+                }
+            });
+        }
+    }
+
+    public boolean isLoaded(int eventId) {
+        return counters.containsKey(eventId);
+    }
+
+    public int getAvailableSeats(int eventId) {
+        return counterFor(eventId).state.get().available();
+    }
+
+    public boolean isWaitlistEnabled(int eventId) {
+        return counterFor(eventId).waitlistEnabled;
+    }
+
+    /**
+     * Writes back any pending delta for the event and drops its counter, so the next
+     * access reloads it from the table. Use after capacity or waitlist settings change;
+     * inside a transaction the counter is dropped again once it commits.
+     */
+    public void invalidate(int eventId) {
+        SeatCounter counter = counters.get(eventId);
+        if (counter != null) {
+            retire(eventId, counter, 0);
+            flushCarried(eventId);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    SeatCounter stale = counters.get(eventId);
+                    if (stale != null) {
+                        retire(eventId, stale, 0);
+                        flushCarried(eventId);
+                    }
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelay = 500)
+    public void flush() {
+        // One transaction per event, so a failing event can't undo the others' writes.
+        // Carried seats go first, so a delta rejected in this pass waits for the next one.
+        carried.keySet().forEach(this::flushCarried);
+        counters.forEach((eventId, counter) -> {
+            int delta = counter.takeDelta();
+            if (delta == 0) {
+                return;
+            }
+            Boolean applied = write(eventId, delta);
+            if (applied == null) {
+                if (!counter.restoreDelta(delta)) {
+                    carried.merge(eventId, delta, Integer::sum);
+                }
+            } else if (!applied) {
+                // The table disagrees with our view (capacity changed or another node booked seats);
+                // reload the counter from the table, keeping the unwritten seats pending on it.
+                logger.warn("Seat delta {} for event {} rejected by capacity check, reloading counter", delta, eventId);
+                retire(eventId, counter, delta);
+            }
+        });
+    }
+
+    /**
+     * Recomputes seats_booked of every event from its seat-holding registrations and drops the
+     * loaded counters so they are reloaded from the corrected table. Run at startup (see
+     * DataInitializer) to repair totals a killed process left short.
+     */
+    public void reconcile() {
+        flush();
+        synchronized (reloadLock) {
+            Integer corrected = transactionTemplate.execute(status -> eventSeatingRepository.reconcileSeatsBooked());
+            if (corrected != null && corrected > 0) {
+                logger.warn("Reconciled seats_booked of {} event(s) with their registrations", corrected);
+            }
+            // Pending seats are already counted by the registrations they belong to
+            counters.forEach((eventId, counter) -> {
+                counter.retire();
+                counters.remove(eventId, counter);
+            });
+            carried.clear();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        logger.info("Flushing pending seat deltas before shutdown");
+        flush();
+    }
+
+    private int releaseSeats(int eventId, int seats) {
+        int released;
+        while ((released = counterFor(eventId).release(seats)) == SeatCounter.REMOVED) {
+            Thread.onSpinWait();
+        }
+        return released;
+    }
+
+    // Marks the counter removed, moves its pending delta (plus extra) to carried and drops it from
+    // the map, in that order: a counter loaded afterwards always starts from the carried seats.
+    private void retire(int eventId, SeatCounter counter, int extra) {
+        int delta = counter.retire() + extra;
+        if (delta != 0) {
+            carried.merge(eventId, delta, Integer::sum);
+        }
+        counters.remove(eventId, counter);
+    }
+
+    // Writes seats pending for an event without a live counter; a counter loaded meanwhile waits
+    // for the write, so it sees the seats either in the table or still carried.
+    private void flushCarried(int eventId) {
+        synchronized (reloadLock) {
+            Integer delta = carried.remove(eventId);
+            if (delta == null || delta == 0) {
+                return;
+            }
+            Boolean applied = write(eventId, delta);
+            if (applied == null || !applied) {
+                if (applied != null) {
+                    logger.warn("Seat delta {} for event {} rejected by capacity check, retrying on next flush", delta, eventId);
+                }
+                carried.merge(eventId, delta, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * @return whether the table took the delta, or null if the write failed
+     */
+    private Boolean write(int eventId, int delta) {
+        try {
+            int updated = transactionTemplate.execute(status -> delta > 0
+                    ? eventSeatingRepository.incrementSeatsBooked(eventId, delta)
+                    : eventSeatingRepository.decrementSeatsBooked(eventId, -delta));
+            if (updated > 0) {
+                logger.debug("Flushed seat delta {} for event {}", delta, eventId);
+            }
+            return updated > 0;
+        } catch (RuntimeException e) {
+            logger.warn("Could not flush seat delta {} for event {}, keeping it for the next flush: {}",
+                    delta, eventId, e.getMessage());
+            return null;
+        }
+    }
+
+    private SeatCounter counterFor(int eventId) {
+        return counters.computeIfAbsent(eventId, this::loadCounter);
+    }
+
+    private SeatCounter loadCounter(int eventId) {
+        synchronized (reloadLock) {
+            EventSeating seating = eventSeatingRepository.findByEventId(eventId);
+            if (seating == null) {
+                throw new IllegalStateException("No seating configured for event " + eventId);
+            }
+            // Seats handed out by a dropped counter but not yet in the table stay pending on the new one
+            Integer pending = carried.remove(eventId);
+            int delta = pending == null ? 0 : pending;
+            logger.info("Loaded seat counter for event {} - Total: {}, Booked: {}, Pending: {}",
+                    eventId, seating.getTotalSeats(), seating.getSeatsBooked(), delta);
+            return new SeatCounter(seating.getTotalSeats(), seating.getSeatsBooked(), delta, seating.isWaitlistEnabled());
+        }
+    }
+
+    private void undoOnRollback(Runnable undo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    undo.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Available seats and the delta not yet written are swapped together, so retiring a counter
+     * takes exactly the seats it handed out: once removed, every call returns REMOVED (or false)
+     * and the caller moves on to the reloaded counter.
+     */
+    static final class SeatCounter {
+        static final int REMOVED = -1;
+
+        final int totalSeats;
+        final boolean waitlistEnabled;
+        final AtomicReference<State> state;
+
+        SeatCounter(int totalSeats, int seatsBooked, int pendingDelta, boolean waitlistEnabled) {
+            this.totalSeats = totalSeats;
+            this.waitlistEnabled = waitlistEnabled;
+            this.state = new AtomicReference<>(
+                    new State(Math.max(0, totalSeats - seatsBooked - pendingDelta), pendingDelta, false));
+        }
+
+        /**
+         * @return the seats reserved, 0 if not enough are left, or REMOVED
+         */
+        int reserve(int seats) {
+            while (true) {
+                State current = state.get();
+                if (current.removed()) {
+                    return REMOVED;
+                }
+                if (current.available() < seats) {
+                    return 0;
+                }
+                if (state.compareAndSet(current, new State(current.available() - seats,
+                        current.pendingDelta() + seats, false))) {
+                    return seats;
+                }
+            }
+        }
+
+        // Only used to undo a rolled-back release, so it may not fail (other than on a removed counter)
+        boolean forceReserve(int seats) {
+            while (true) {
+                State current = state.get();
+                if (current.removed()) {
+                    return false;
+                }
+                if (state.compareAndSet(current, new State(current.available() - seats,
+                        current.pendingDelta() + seats, false))) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * @return the seats actually released (never more than were booked), or REMOVED
+         */
+        int release(int seats) {
+            while (true) {
+                State current = state.get();
+                if (current.removed()) {
+                    return REMOVED;
+                }
+                int next = Math.min(totalSeats, current.available() + seats);
+                int released = next - current.available();
+                if (state.compareAndSet(current, new State(next, current.pendingDelta() - released, false))) {
+                    return released;
+                }
+            }
+        }
+
+        // Takes the delta for a flush; a removed counter's delta belongs to whoever retired it
+        int takeDelta() {
+            while (true) {
+                State current = state.get();
+                if (current.removed() || current.pendingDelta() == 0) {
+                    return 0;
+                }
+                if (state.compareAndSet(current, new State(current.available(), 0, false))) {
+                    return current.pendingDelta();
+                }
+            }
+        }
+
+        // Puts back a delta whose write failed; false if the counter was removed meanwhile
+        boolean restoreDelta(int delta) {
+            while (true) {
+                State current = state.get();
+                if (current.removed()) {
+                    return false;
+                }
+                if (state.compareAndSet(current, new State(current.available(),
+                        current.pendingDelta() + delta, false))) {
+                    return true;
+                }
+            }
+        }
+
+        // Marks the counter removed and returns its unwritten delta; 0 if it already was
+        int retire() {
+            while (true) {
+                State current = state.get();
+                if (current.removed()) {
+                    return 0;
+                }
+                if (state.compareAndSet(current, new State(current.available(), 0, true))) {
+                    return current.pendingDelta();
+                }
+            }
+        }
+    }
+
+    // pendingDelta: seats booked since the last flush (negative when more were released than taken)
+    record State(int available, int pendingDelta, boolean removed) {
+    }
+}
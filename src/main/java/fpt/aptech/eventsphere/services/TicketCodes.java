@@ -0,0 +1,98 @@
+package fpt.aptech.eventsphere.services;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Door tickets encoded in the participant's QR code: "T1.&lt;registrationId&gt;.&lt;eventId&gt;.&lt;signature&gt;",
+ * where the signature is an HMAC-SHA256 (truncated to 128 bits, base64url) over registration and
+ * event ID. A scanned ticket is checked against app.tickets.secret alone, so the door needs no
+ * database read to tell a genuine ticket from a forged or altered one.
+ */
+@Component
+public class TicketCodes {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String VERSION = "T1";
+    private static final int SIGNATURE_BYTES = 16;
+    private static final Pattern FORMAT = Pattern.compile(VERSION + "\\.(\\d{1,10})\\.(\\d{1,10})\\.([A-Za-z0-9_-]{22})");
+
+    private final SecretKeySpec key;
+    // Mac instances aren't thread-safe; scanners validate concurrently
+    private final ThreadLocal<Mac> macs;
+
+    public TicketCodes(@Value("${app.tickets.secret}") String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("app.tickets.secret must be set");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public String ticketFor(int registrationId, int eventId) {
+        return VERSION + "." + registrationId + "." + eventId + "."
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(sign(registrationId, eventId));
+    }
+
+    /**
+     * The ticket's registration and event, or null if it is malformed or its signature doesn't match.
+     */
+    public Ticket parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        Matcher matcher = FORMAT.matcher(text.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        long registrationId = Long.parseLong(matcher.group(1));
+        long eventId = Long.parseLong(matcher.group(2));
+        if (registrationId > Integer.MAX_VALUE || eventId > Integer.MAX_VALUE) {
+            return null;
+        }
+        byte[] expected = sign((int) registrationId, (int) eventId);
+        byte[] actual = Base64.getUrlDecoder().decode(matcher.group(3));
+        return MessageDigest.isEqual(expected, actual) ? new Ticket((int) registrationId, (int) eventId) : null;
+    }
+
+    public byte[] qrPng(String ticket, int size) throws WriterException, IOException {
+        BitMatrix bitMatrix = new QRCodeWriter().encode(ticket, BarcodeFormat.QR_CODE, size, size);
+        ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", pngOutputStream);
+        return pngOutputStream.toByteArray();
+    }
+
+    private byte[] sign(int registrationId, int eventId) {
+        byte[] signature = macs.get().doFinal((registrationId + ":" + eventId).getBytes(StandardCharsets.UTF_8));
+        return Arrays.copyOf(signature, SIGNATURE_BYTES);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialise ticket signing", e);
+        }
+    }
+
+    public record Ticket(int registrationId, int eventId) {
+    }
+}
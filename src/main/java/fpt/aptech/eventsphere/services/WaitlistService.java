@@ -0,0 +1,252 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.models.Events;
+import fpt.aptech.eventsphere.models.Registrations;
+import fpt.aptech.eventsphere.models.WaitlistEntry;
+import fpt.aptech.eventsphere.repositories.EventRepository;
+import fpt.aptech.eventsphere.repositories.RegistrationRepository;
+import fpt.aptech.eventsphere.repositories.WaitlistEntryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * FIFO waitlist per event.
+ * <p>
+ * The waitlist_entries table is the durable copy; each event also has an in-memory deque
+ * loaded lazily from it, so promoting the next person when a seat frees up is a poll on the
+ * head of the deque rather than a scan of the event's registrations. Entries that leave the
+ * waitlist some other way are flagged and skipped when they reach the head.
+ * Promoted users are notified in batches, one email per event.
+ */
+@Service
+public class WaitlistService {
+    private static final Logger logger = LoggerFactory.getLogger(WaitlistService.class);
+
+    private final WaitlistEntryRepository waitlistEntryRepository;
+    private final RegistrationRepository registrationRepository;
+    private final EventRepository eventRepository;
+    private final SeatAllocationService seatAllocationService;
+    private final EmailService emailService;
+    private final EmailTemplateService emailTemplateService;
+    private final EventStatisticsService eventStatisticsService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<Integer, Deque<QueuedEntry>> queues = new ConcurrentHashMap<>();
+    private final Map<Integer, QueuedEntry> entriesByRegistration = new ConcurrentHashMap<>();
+    private final Queue<PromotionNotice> pendingNotices = new ConcurrentLinkedQueue<>();
+
+    public WaitlistService(WaitlistEntryRepository waitlistEntryRepository,
+                           RegistrationRepository registrationRepository,
+                           EventRepository eventRepository,
+                           SeatAllocationService seatAllocationService,
+                           EmailService emailService,
+                           EmailTemplateService emailTemplateService,
+                           EventStatisticsService eventStatisticsService,
+                           ApplicationEventPublisher eventPublisher) {
+        this.waitlistEntryRepository = waitlistEntryRepository;
+        this.registrationRepository = registrationRepository;
+        this.eventRepository = eventRepository;
+        this.seatAllocationService = seatAllocationService;
+        this.emailService = emailService;
+        this.emailTemplateService = emailTemplateService;
+        this.eventStatisticsService = eventStatisticsService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Puts a WAITLIST registration at the back of its event's queue.
+     */
+    public void enqueue(Registrations registration) {
+        Events event = registration.getEvent();
+        Deque<QueuedEntry> queue = queueFor(event.getEventId());
+        if (entriesByRegistration.containsKey(registration.getRegistrationId())) {
+            return;
+        }
+
+        WaitlistEntry entry = waitlistEntryRepository.save(new WaitlistEntry(event, registration));
+        QueuedEntry queued = new QueuedEntry(entry.getEntryId(), registration.getRegistrationId(),
+                registration.getStudent().getEmail());
+        queue.offerLast(queued);
+        entriesByRegistration.put(queued.registrationId, queued);
+        logger.info("Registration {} added to waitlist for event {}", queued.registrationId, event.getEventId());
+
+        afterRollback(() -> {
+            queued.removed = true;
+            entriesByRegistration.remove(queued.registrationId, queued);
+        });
+    }
+
+    /**
+     * Takes a registration off the waitlist, e.g. when it is cancelled or confirmed manually.
+     */
+    public void remove(Registrations registration) {
+        int registrationId = registration.getRegistrationId();
+        waitlistEntryRepository.deleteByRegistrationId(registrationId);
+        QueuedEntry queued = entriesByRegistration.remove(registrationId);
+        if (queued != null) {
+            queued.removed = true;
+            afterRollback(() -> {
+                queued.removed = false;
+                entriesByRegistration.put(registrationId, queued);
+            });
+        }
+    }
+
+    /**
+     * Confirms up to {@code freedSeats} registrations from the head of the event's waitlist.
+     * @return the number of registrations promoted
+     */
+    public int promote(int eventId, int freedSeats) {
+        Deque<QueuedEntry> queue = queueFor(eventId);
+        List<QueuedEntry> promoted = new ArrayList<>();
+        // Everything taken off the deque, skipped entries included: a rollback may revive them
+        List<QueuedEntry> polled = new ArrayList<>();
+
+        while (promoted.size() < freedSeats) {
+            QueuedEntry next = queue.pollFirst();
+            if (next == null) {
+                break;
+            }
+            polled.add(next);
+            if (next.removed) {
+                continue; // left the waitlist while queued
+            }
+            if (!seatAllocationService.tryReserve(eventId, 1)) {
+                polled.remove(polled.size() - 1);
+                queue.offerFirst(next);
+                break;
+            }
+
+            waitlistEntryRepository.deleteByEntryId(next.entryId);
+            entriesByRegistration.remove(next.registrationId, next);
+            int updated = registrationRepository.updateStatusIfCurrent(next.registrationId,
+                    Registrations.RegistrationStatus.WAITLIST, Registrations.RegistrationStatus.CONFIRMED);
+            if (updated == 0) {
+                // Status changed behind our back; give the seat to the next in line
+                seatAllocationService.release(eventId, 1);
+                continue;
+            }
+            // Bulk update: the entity listener doesn't see it. Delivered to check-in on commit.
+            eventPublisher.publishEvent(new RegistrationStatusChangedEvent(eventId, next.registrationId,
+                    Registrations.RegistrationStatus.CONFIRMED));
+            promoted.add(next);
+        }
+
+        afterRollback(() -> {
+            // Entries removed in this transaction are un-flagged by remove()'s own rollback hook,
+            // which re-indexes them; the rest only need to be re-indexed if still live
+            for (int i = polled.size() - 1; i >= 0; i--) {
+                QueuedEntry entry = polled.get(i);
+                queue.offerFirst(entry);
+                if (!entry.removed) {
+                    entriesByRegistration.putIfAbsent(entry.registrationId, entry);
+                }
+            }
+        });
+        if (promoted.isEmpty()) {
+            return 0;
+        }
+        logger.info("Promoted {} registration(s) from the waitlist of event {}", promoted.size(), eventId);
+
+        afterCommit(() -> {
+            // The promotion is a bulk update, which the statistics entity listener doesn't see
+            eventStatisticsService.evict(eventId);
+            promoted.forEach(entry -> pendingNotices.add(new PromotionNotice(eventId, entry.email)));
+        });
+        return promoted.size();
+    }
+
+    @Scheduled(fixedDelay = 5000)
+    public void sendPromotionNotifications() {
+        if (pendingNotices.isEmpty()) {
+            return;
+        }
+        Map<Integer, List<String>> emailsByEvent = new HashMap<>();
+        PromotionNotice notice;
+        while ((notice = pendingNotices.poll()) != null) {
+            emailsByEvent.computeIfAbsent(notice.eventId(), id -> new ArrayList<>()).add(notice.email());
+        }
+
+        emailsByEvent.forEach((eventId, emails) -> {
+            try {
+                Events event = eventRepository.findByEventId(eventId);
+                String subject = "You're in: " + event.getTitle();
+                String body = emailTemplateService.render("waitlist-promoted.txt", Map.of(
+                        "title", event.getTitle(),
+                        "startDate", event.getStartDate()
+                ));
+                emailService.sendEmailToUsers(emails, subject, body);
+            } catch (Exception e) {
+                logger.error("Failed to send waitlist promotion emails for event {}", eventId, e);
+            }
+        });
+    }
+
+    private Deque<QueuedEntry> queueFor(int eventId) {
+        return queues.computeIfAbsent(eventId, this::loadQueue);
+    }
+
+    private Deque<QueuedEntry> loadQueue(int eventId) {
+        Deque<QueuedEntry> queue = new ConcurrentLinkedDeque<>();
+        for (Object[] row : waitlistEntryRepository.findQueueByEventId(eventId)) {
+            QueuedEntry queued = new QueuedEntry((Integer) row[0], (Integer) row[1], (String) row[2]);
+            queue.offerLast(queued);
+            entriesByRegistration.put(queued.registrationId, queued);
+        }
+        logger.info("Loaded waitlist for event {} with {} entries", eventId, queue.size());
+        return queue;
+    }
+
+    private void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static final class QueuedEntry {
+        final int entryId;
+        final int registrationId;
+        final String email;
+        volatile boolean removed;
+
+        QueuedEntry(int entryId, int registrationId, String email) {
+            this.entryId = entryId;
+            this.registrationId = registrationId;
+            this.email = email;
+        }
+    }
+
+    private record PromotionNotice(int eventId, String email) {
+    }
+}
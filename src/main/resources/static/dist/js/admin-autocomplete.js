@@ -0,0 +1,27 @@
+// Typo-tolerant user/organizer suggestions for admin filter inputs.
+// Usage: <input data-user-autocomplete="ORGANIZER"> (empty value = any non-admin user)
+$(function () {
+    $('input[data-user-autocomplete]').each(function () {
+        const input = $(this);
+        const role = input.data('user-autocomplete') || '';
+
+        input.autocomplete({
+            minLength: 2,
+            delay: 150,
+            source: function (request, response) {
+                $.getJSON('/admin/users/autocomplete', { q: request.term, role: role, limit: 10 })
+                    .done(function (users) {
+                        response(users.map(function (user) {
+                            return {
+                                label: user.fullName ? user.fullName + ' <' + user.email + '>' : user.email,
+                                value: user.email
+                            };
+                        }));
+                    })
+                    .fail(function () {
+                        response([]);
+                    });
+            }
+        });
+    });
+});
@@ -2,8 +2,10 @@ package fpt.aptech.eventsphere;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
 @SpringBootTest
+@ActiveProfiles("dev")
 class FourstackWarriorsEventSphereApplicationTests {
 
     @Test
@@ -0,0 +1,89 @@
+package fpt.aptech.eventsphere.benchmarks;
+
+import fpt.aptech.eventsphere.models.Certificates;
+import fpt.aptech.eventsphere.models.Events;
+import fpt.aptech.eventsphere.models.Users;
+import fpt.aptech.eventsphere.models.Venues;
+import fpt.aptech.eventsphere.services.CertificateCodes;
+import fpt.aptech.eventsphere.services.PdfCertificateService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares laying out every certificate with stamping a cached per-event template.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.mainClass=fpt.aptech.eventsphere.benchmarks.CertificatePdfBenchmark
+ * -Dexec.classpathScope=test}, or from the IDE. The GC profiler reports allocation per certificate
+ * (gc.alloc.rate.norm) next to the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CertificatePdfBenchmark {
+
+    private PdfCertificateService service;
+    private Users recipient;
+    private Events event;
+    private Certificates certificate;
+    private int nextId;
+
+    @Setup
+    public void setUp() throws Exception {
+        service = new PdfCertificateService(new CertificateCodes("benchmark-secret"),
+                "http://localhost:9999/certificates/verify/", true);
+
+        Users organizer = new Users();
+        organizer.setUserId(2);
+        organizer.setEmail("organizer@example.com");
+        Venues venue = new Venues();
+        venue.setName("Main Auditorium");
+
+        event = new Events();
+        event.setEventId(1);
+        event.setTitle("Spring Tech Conference");
+        event.setStartDate(LocalDateTime.of(2025, 3, 14, 9, 0));
+        event.setEndDate(LocalDateTime.of(2025, 3, 14, 17, 0));
+        event.setVenue(venue);
+        event.setOrganizer(organizer);
+
+        recipient = new Users();
+        recipient.setUserId(1);
+        recipient.setEmail("student@example.com");
+
+        certificate = new Certificates();
+        certificate.setIssuedOn(LocalDateTime.of(2025, 3, 15, 10, 0));
+
+        // Lay the template out before measuring, as the first download of an event would
+        service.stampCertificatePdf(recipient, event, certificate);
+    }
+
+    @Benchmark
+    public byte[] fullLayout() throws Exception {
+        certificate.setCertificateId(++nextId);
+        return service.renderCertificatePdf(recipient, event, certificate);
+    }
+
+    @Benchmark
+    public byte[] templateStamp() throws Exception {
+        certificate.setCertificateId(++nextId);
+        return service.stampCertificatePdf(recipient, event, certificate);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CertificatePdfBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,45 @@
+package fpt.aptech.eventsphere.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CertificateCodesTest {
+    private final CertificateCodes certificateCodes = new CertificateCodes("test-secret");
+
+    @Test
+    void testCodeIsStableAndCanonical() {
+        String code = certificateCodes.codeFor(42, 7, 3);
+
+        assertTrue(code.matches("42-[0-9A-F]{20}"));
+        assertEquals(code, certificateCodes.codeFor(42, 7, 3));
+        assertEquals(code, certificateCodes.normalize("  " + code.toLowerCase() + " "));
+    }
+
+    @Test
+    void testCodeCoversEventAndStudent() {
+        String code = certificateCodes.codeFor(42, 7, 3);
+
+        assertNotEquals(code, certificateCodes.codeFor(42, 8, 3));
+        assertNotEquals(code, certificateCodes.codeFor(42, 7, 4));
+    }
+
+    @Test
+    void testCodeDependsOnSecret() {
+        assertNotEquals(certificateCodes.codeFor(42, 7, 3), new CertificateCodes("other-secret").codeFor(42, 7, 3));
+    }
+
+    @Test
+    void testNormalizeRejectsMalformedCodes() {
+        assertNull(certificateCodes.normalize(null));
+        assertNull(certificateCodes.normalize("42"));
+        assertNull(certificateCodes.normalize("42-XYZ"));
+        assertNull(certificateCodes.normalize("abc-0123456789ABCDEF0123"));
+    }
+
+    @Test
+    void testBlankSecretIsRejected() {
+        assertThrows(IllegalStateException.class, () -> new CertificateCodes(""));
+        assertThrows(IllegalStateException.class, () -> new CertificateCodes(null));
+    }
+}
@@ -0,0 +1,105 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.repositories.CertificateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class CertificateDownloadCounterTest {
+    private JdbcTemplate jdbcTemplate;
+    private AtomicLong flushed;
+    private CertificateDownloadCounter downloadCounter;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        flushed = new AtomicLong();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(this::write);
+        downloadCounter = new CertificateDownloadCounter(jdbcTemplate, mock(CertificateRepository.class));
+    }
+
+    @Test
+    void testFailedFlushKeepsCounts() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new RuntimeException("connection reset"))
+                .thenAnswer(this::write);
+        downloadCounter.record(1);
+        downloadCounter.record(1);
+
+        downloadCounter.flush();
+        assertEquals(0, flushed.get());
+        downloadCounter.flush();
+        assertEquals(2, flushed.get());
+    }
+
+    @Test
+    void testIdleAdderIsDroppedWithoutLosingLaterDownloads() {
+        downloadCounter.record(1);
+        downloadCounter.flush();
+        downloadCounter.flush(); // idle: the adder is dropped
+        downloadCounter.record(1);
+        downloadCounter.flush();
+
+        assertEquals(2, flushed.get());
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void testConcurrentRecordAndFlushLoseNothing() throws Exception {
+        int threads = 4;
+        int perThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        AtomicBoolean done = new AtomicBoolean();
+        try {
+            List<Future<?>> recorders = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                recorders.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        // Few certificates, downloaded in bursts, so adders keep going idle and being dropped
+                        downloadCounter.record(i % 3);
+                        if (i % 500 == 0) {
+                            Thread.yield();
+                        }
+                    }
+                }));
+            }
+            Future<?> flusher = executor.submit(() -> {
+                while (!done.get()) {
+                    downloadCounter.flush();
+                }
+            });
+
+            for (Future<?> recorder : recorders) {
+                recorder.get(30, TimeUnit.SECONDS);
+            }
+            done.set(true);
+            flusher.get(30, TimeUnit.SECONDS);
+            downloadCounter.flush();
+
+            assertEquals((long) threads * perThread, flushed.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int[] write(InvocationOnMock invocation) {
+        List<Object[]> rows = invocation.getArgument(1);
+        rows.forEach(row -> flushed.addAndGet((Long) row[0]));
+        return new int[rows.size()];
+    }
+}
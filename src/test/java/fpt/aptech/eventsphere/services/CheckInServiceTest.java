@@ -0,0 +1,146 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.models.Registrations;
+import fpt.aptech.eventsphere.repositories.EventRepository;
+import fpt.aptech.eventsphere.repositories.RegistrationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class CheckInServiceTest {
+    private static final int EVENT_ID = 4;
+
+    private final TicketCodes ticketCodes = new TicketCodes("test-secret");
+    private RegistrationRepository registrationRepository;
+    private JdbcTemplate jdbcTemplate;
+    private EventStatisticsService eventStatisticsService;
+    private CheckInService checkInService;
+
+    @BeforeEach
+    void setUp() {
+        EventRepository eventRepository = mock(EventRepository.class);
+        when(eventRepository.findOrganizerEmail(EVENT_ID)).thenReturn("organizer@example.com");
+        registrationRepository = mock(RegistrationRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        eventStatisticsService = mock(EventStatisticsService.class);
+
+        checkInService = new CheckInService(ticketCodes, eventRepository, registrationRepository,
+                eventStatisticsService, mock(ApplicationEventPublisher.class), jdbcTemplate,
+                mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void testSecondScanIsAlreadyCheckedIn() {
+        CheckInService.ScanResult first = checkInService.scan(EVENT_ID, ticketCodes.ticketFor(10, EVENT_ID));
+        CheckInService.ScanResult second = checkInService.scan(EVENT_ID, ticketCodes.ticketFor(10, EVENT_ID));
+
+        assertEquals(CheckInService.Result.ADMITTED, first.result());
+        assertEquals(CheckInService.Result.ALREADY_CHECKED_IN, second.result());
+        assertEquals(first.checkedInAt(), second.checkedInAt());
+    }
+
+    @Test
+    void testConcurrentScansAdmitOnce() throws Exception {
+        String ticket = ticketCodes.ticketFor(10, EVENT_ID);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<CheckInService.ScanResult>> scans = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                scans.add(() -> checkInService.scan(EVENT_ID, ticket));
+            }
+            int admitted = 0;
+            for (Future<CheckInService.ScanResult> scan : executor.invokeAll(scans, 30, TimeUnit.SECONDS)) {
+                if (scan.get().result() == CheckInService.Result.ADMITTED) {
+                    admitted++;
+                }
+            }
+            assertEquals(1, admitted);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCheckedInBeforeLoadIsAlreadyCheckedIn() {
+        when(registrationRepository.findAttendedIds(EVENT_ID)).thenReturn(List.of(10));
+
+        CheckInService.ScanResult scan = checkInService.scan(EVENT_ID, ticketCodes.ticketFor(10, EVENT_ID));
+
+        assertEquals(CheckInService.Result.ALREADY_CHECKED_IN, scan.result());
+        assertNull(scan.checkedInAt());
+    }
+
+    @Test
+    void testForgedAndForeignTicketsAreRejected() {
+        assertEquals(CheckInService.Result.INVALID_TICKET,
+                checkInService.scan(EVENT_ID, new TicketCodes("guessed-secret").ticketFor(10, EVENT_ID)).result());
+        assertEquals(CheckInService.Result.INVALID_TICKET,
+                checkInService.scan(EVENT_ID, "not a ticket").result());
+        assertEquals(CheckInService.Result.WRONG_EVENT,
+                checkInService.scan(EVENT_ID, ticketCodes.ticketFor(10, EVENT_ID + 1)).result());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testRevokedRegistrationIsTurnedAway() {
+        when(registrationRepository.findIdsWithoutSeat(EVENT_ID)).thenReturn(List.of(11));
+
+        assertEquals(CheckInService.Result.REVOKED,
+                checkInService.scan(EVENT_ID, ticketCodes.ticketFor(11, EVENT_ID)).result());
+
+        // Cancelled after the door was loaded
+        checkInService.onRegistrationChanged(
+                new RegistrationStatusChangedEvent(EVENT_ID, 12, Registrations.RegistrationStatus.CANCELLED));
+        assertEquals(CheckInService.Result.REVOKED,
+                checkInService.scan(EVENT_ID, ticketCodes.ticketFor(12, EVENT_ID)).result());
+
+        // Promoted from the waitlist
+        checkInService.onRegistrationChanged(
+                new RegistrationStatusChangedEvent(EVENT_ID, 11, Registrations.RegistrationStatus.CONFIRMED));
+        assertEquals(CheckInService.Result.ADMITTED,
+                checkInService.scan(EVENT_ID, ticketCodes.ticketFor(11, EVENT_ID)).result());
+    }
+
+    @Test
+    void testAdmissionsAreWrittenOnFlush() {
+        checkInService.scan(EVENT_ID, ticketCodes.ticketFor(10, EVENT_ID));
+        checkInService.scan(EVENT_ID, ticketCodes.ticketFor(11, EVENT_ID));
+        checkInService.scan(EVENT_ID, ticketCodes.ticketFor(10, EVENT_ID));
+
+        checkInService.flush();
+        checkInService.flush();
+
+        // One batch for attendance, one for the statuses, each with both attendees
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), argThat((List<Object[]> rows) -> rows.size() == 2));
+        verify(eventStatisticsService).evict(EVENT_ID);
+    }
+
+    @Test
+    void testFailedFlushIsRetried() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new RuntimeException("connection reset"))
+                .thenReturn(new int[1]);
+        checkInService.scan(EVENT_ID, ticketCodes.ticketFor(10, EVENT_ID));
+
+        checkInService.flush();
+        verify(eventStatisticsService, never()).evict(EVENT_ID);
+        checkInService.flush();
+
+        verify(eventStatisticsService).evict(EVENT_ID);
+    }
+}
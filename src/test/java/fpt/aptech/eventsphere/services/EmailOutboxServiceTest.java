@@ -0,0 +1,103 @@
+package fpt.aptech.eventsphere.services;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import fpt.aptech.eventsphere.models.EmailOutbox;
+import fpt.aptech.eventsphere.repositories.EmailOutboxRepository;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EmailOutboxServiceTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private EmailOutboxRepository emailOutboxRepository;
+    private EmailOutboxService emailOutboxService;
+
+    @BeforeEach
+    void setUp() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(greenMail.getSmtp().getPort());
+
+        emailOutboxRepository = mock(EmailOutboxRepository.class);
+        emailOutboxService = new EmailOutboxService(
+                emailOutboxRepository,
+                new BulkMailSender(mailSender, 2, 50, 100, 30000),
+                mock(PlatformTransactionManager.class),
+                2, 50, 5, "noreply@eventsphere.com");
+    }
+
+    @Test
+    void testDeliverSendsWholeChunk() throws Exception {
+        List<EmailOutbox> chunk = List.of(
+                message(1L, "alice@example.com"),
+                message(2L, "bob@example.com"),
+                message(3L, "carol@example.com"));
+
+        Map<Long, Exception> failures = emailOutboxService.deliver(chunk);
+
+        assertTrue(failures.isEmpty());
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(3, received.length);
+        assertEquals("Reminder: Test Event", received[0].getSubject());
+    }
+
+    @Test
+    void testDeliverReportsInvalidRecipient() {
+        List<EmailOutbox> chunk = List.of(
+                message(1L, "alice@example.com"),
+                message(2L, "bad@"));
+
+        Map<Long, Exception> failures = emailOutboxService.deliver(chunk);
+
+        assertEquals(1, failures.size());
+        assertTrue(failures.containsKey(2L));
+        assertEquals(1, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    void testClaimCountsAttemptAndFailsExhaustedLease() {
+        EmailOutbox fresh = message(1L, "alice@example.com");
+        EmailOutbox expired = message(2L, "bob@example.com");
+        expired.setStatus(EmailOutbox.OutboxStatus.SENDING);
+        expired.setAttempts(2);
+        EmailOutbox exhausted = message(3L, "carol@example.com");
+        exhausted.setStatus(EmailOutbox.OutboxStatus.SENDING);
+        exhausted.setAttempts(5);
+        when(emailOutboxRepository.lockDueMessages(any(LocalDateTime.class), anyInt()))
+                .thenReturn(List.of(fresh, expired, exhausted));
+
+        List<EmailOutbox> claimed = emailOutboxService.claim(100);
+
+        assertEquals(List.of(fresh, expired), claimed);
+        assertEquals(1, fresh.getAttempts());
+        assertEquals(3, expired.getAttempts());
+        assertEquals(EmailOutbox.OutboxStatus.SENDING, expired.getStatus());
+        // A send that hangs or kills its worker on every try must not be retried forever
+        assertEquals(EmailOutbox.OutboxStatus.FAILED, exhausted.getStatus());
+        assertEquals(5, exhausted.getAttempts());
+        assertNotNull(exhausted.getLastError());
+    }
+
+    private EmailOutbox message(Long id, String recipient) {
+        EmailOutbox message = new EmailOutbox(recipient, "Reminder: Test Event", "See you there!", false);
+        message.setId(id);
+        return message;
+    }
+}
@@ -0,0 +1,102 @@
+package fpt.aptech.eventsphere.services;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.services.gmail.Gmail;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs EmailServiceImpl's Gmail path against a local stub of the Gmail endpoint.
+ */
+public class EmailServiceImplTest {
+    private static final String PRINCIPAL = "organizer@example.com";
+
+    private HttpServer gmailStub;
+    private final List<String> authHeaders = new CopyOnWriteArrayList<>();
+
+    private OAuth2AuthorizedClient authorizedClient;
+    private GmailClientCache gmailClientCache;
+    private EmailServiceImpl emailService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        gmailStub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        gmailStub.createContext("/gmail/v1/users/me/messages/send", exchange -> {
+            record(exchange);
+            respond(exchange, "application/json; charset=UTF-8", "{\"id\":\"m1\"}");
+        });
+        gmailStub.start();
+
+        OAuth2AuthorizedClientService authorizedClientService = mock(OAuth2AuthorizedClientService.class);
+        authorizedClient = mock(OAuth2AuthorizedClient.class);
+        when(authorizedClientService.loadAuthorizedClient("google", PRINCIPAL)).thenReturn(authorizedClient);
+        useToken("token-1");
+
+        gmailClientCache = new GmailClientCache(new NetHttpTransport(),
+                "http://localhost:" + gmailStub.getAddress().getPort() + "/");
+        emailService = new EmailServiceImpl(authorizedClientService, mock(EmailOutboxService.class),
+                gmailClientCache);
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(PRINCIPAL, null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        gmailStub.stop(0);
+    }
+
+    @Test
+    void testSendEmailReusesClientUntilTokenChanges() throws Exception {
+        emailService.sendEmail("alice@example.com", "Hello", "<p>Hi</p>");
+        Gmail first = gmailClientCache.getClient(PRINCIPAL, authorizedClient.getAccessToken());
+        emailService.sendEmail("bob@example.com", "Hello", "<p>Hi</p>");
+        assertSame(first, gmailClientCache.getClient(PRINCIPAL, authorizedClient.getAccessToken()));
+
+        useToken("token-2");
+        emailService.sendEmail("carol@example.com", "Hello", "<p>Hi</p>");
+        assertNotSame(first, gmailClientCache.getClient(PRINCIPAL, authorizedClient.getAccessToken()));
+
+        assertEquals(List.of("Bearer token-1", "Bearer token-1", "Bearer token-2"), authHeaders);
+        assertEquals(1, gmailClientCache.size());
+    }
+
+    private void useToken(String value) {
+        OAuth2AccessToken token = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, value,
+                Instant.now(), Instant.now().plusSeconds(3600));
+        when(authorizedClient.getAccessToken()).thenReturn(token);
+    }
+
+    private void record(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        authHeaders.add(exchange.getRequestHeaders().getFirst("Authorization"));
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
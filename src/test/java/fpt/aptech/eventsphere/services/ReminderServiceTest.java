@@ -0,0 +1,147 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.models.ReminderJob;
+import fpt.aptech.eventsphere.repositories.EventRepository;
+import fpt.aptech.eventsphere.repositories.RegistrationRepository;
+import fpt.aptech.eventsphere.repositories.ReminderJobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ReminderServiceTest {
+    private static final String NODE_ID = "node-a";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private EventRepository eventRepository;
+    private RegistrationRepository registrationRepository;
+    private ReminderJobRepository reminderJobRepository;
+    private EmailService emailService;
+    private ReminderService reminderService;
+
+    @BeforeEach
+    void setUp() {
+        eventRepository = mock(EventRepository.class);
+        registrationRepository = mock(RegistrationRepository.class);
+        reminderJobRepository = mock(ReminderJobRepository.class);
+        emailService = mock(EmailService.class);
+
+        reminderService = new ReminderService(eventRepository, registrationRepository, reminderJobRepository,
+                emailService, mock(EmailTemplateService.class), mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), List.of(Duration.ofHours(24), Duration.ofHours(1)),
+                600000, Duration.ofMinutes(2), 1, MAX_ATTEMPTS, Duration.ofMinutes(1), NODE_ID);
+    }
+
+    @Test
+    void testSendsDueJobUnderOwnLease() {
+        ReminderJob job = dueJob(0);
+        givenDue(job);
+        when(reminderJobRepository.markSent(eq(List.of(job.getId())), eq(NODE_ID), any())).thenReturn(1);
+
+        reminderService.sweep();
+
+        verify(emailService).sendEmailToUsers(eq(List.of("alice@example.com")), anyString(), any());
+        verify(eventRepository).markRemindersSent(any(), eq(60), eq(true));
+        assertEquals(NODE_ID, job.getLeaseOwner());
+    }
+
+    @Test
+    void testReclaimsJobWithExpiredLease() {
+        ReminderJob job = dueJob(0);
+        job.setStatus(ReminderJob.JobStatus.CLAIMED);
+        job.setLeaseOwner("dead-node");
+        job.setLeaseExpiresAt(LocalDateTime.now().minusMinutes(1));
+        givenDue(job);
+        when(reminderJobRepository.markSent(any(), eq(NODE_ID), any())).thenReturn(1);
+
+        reminderService.sweep();
+
+        assertEquals(NODE_ID, job.getLeaseOwner());
+        verify(reminderJobRepository).markSent(eq(List.of(job.getId())), eq(NODE_ID), any());
+    }
+
+    @Test
+    void testFailedSendBacksOffAndStopsSweep() {
+        ReminderJob job = dueJob(0);
+        givenDue(job);
+        when(reminderJobRepository.findById(job.getId())).thenReturn(Optional.of(job));
+        doThrow(new RuntimeException("SMTP down")).when(emailService).sendEmailToUsers(any(), any(), any());
+
+        LocalDateTime before = LocalDateTime.now();
+        reminderService.sweep();
+
+        // A full batch failed: the sweep must not spin on it
+        verify(reminderJobRepository, times(1)).lockDueJobs(any(), anyInt());
+        assertEquals(ReminderJob.JobStatus.PENDING, job.getStatus());
+        assertEquals(1, job.getAttempts());
+        assertNull(job.getLeaseOwner());
+        assertFalse(job.getNextAttemptAt().isBefore(before.plusMinutes(1)));
+        assertEquals("SMTP down", job.getLastError());
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        ReminderJob job = dueJob(MAX_ATTEMPTS - 1);
+        givenDue(job);
+        when(reminderJobRepository.findById(job.getId())).thenReturn(Optional.of(job));
+        doThrow(new RuntimeException("SMTP down")).when(emailService).sendEmailToUsers(any(), any(), any());
+
+        reminderService.sweep();
+
+        assertEquals(ReminderJob.JobStatus.FAILED, job.getStatus());
+        assertEquals(MAX_ATTEMPTS, job.getAttempts());
+    }
+
+    @Test
+    void testLostLeaseIsNotCountedAsOurFailure() {
+        ReminderJob job = dueJob(0);
+        givenDue(job);
+        when(reminderJobRepository.markSent(any(), eq(NODE_ID), any())).thenReturn(0);
+        ReminderJob takenOver = dueJob(0);
+        takenOver.setStatus(ReminderJob.JobStatus.CLAIMED);
+        takenOver.setLeaseOwner("node-b");
+        when(reminderJobRepository.findById(job.getId())).thenReturn(Optional.of(takenOver));
+
+        reminderService.sweep();
+
+        assertEquals(0, takenOver.getAttempts());
+        assertEquals("node-b", takenOver.getLeaseOwner());
+        assertNull(takenOver.getNextAttemptAt());
+    }
+
+    @Test
+    void testBackoffDoublesUpToCap() {
+        assertEquals(Duration.ofMinutes(1), reminderService.backoff(1));
+        assertEquals(Duration.ofMinutes(2), reminderService.backoff(2));
+        assertEquals(Duration.ofMinutes(8), reminderService.backoff(4));
+        assertEquals(Duration.ofHours(1), reminderService.backoff(30));
+    }
+
+    private void givenDue(ReminderJob job) {
+        when(reminderJobRepository.lockDueJobs(any(), anyInt())).thenReturn(List.of(job)).thenReturn(List.of());
+        LocalDateTime startDate = job.getFireAt().plusMinutes(job.getOffsetMinutes());
+        List<Object[]> details = List.<Object[]>of(new Object[]{job.getEventId(), "Tech Talk", startDate, "Hall A", null});
+        when(eventRepository.findReminderDetails(any())).thenReturn(details);
+        List<Object[]> emails = List.<Object[]>of(new Object[]{job.getEventId(), "alice@example.com"});
+        when(registrationRepository.findEmailsByEventIds(any(), any())).thenReturn(emails);
+    }
+
+    private ReminderJob dueJob(int attempts) {
+        ReminderJob job = new ReminderJob();
+        job.setId(7L);
+        job.setEventId(1);
+        job.setOffsetMinutes(60);
+        job.setFireAt(LocalDateTime.now().minusSeconds(5).withNano(0));
+        job.setAttempts(attempts);
+        return job;
+    }
+}
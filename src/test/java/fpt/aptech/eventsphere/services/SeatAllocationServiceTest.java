@@ -0,0 +1,175 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.models.EventSeating;
+import fpt.aptech.eventsphere.repositories.EventSeatingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class SeatAllocationServiceTest {
+    private static final int EVENT_ID = 1;
+
+    private EventSeatingRepository eventSeatingRepository;
+    private SeatAllocationService seatAllocationService;
+
+    @BeforeEach
+    void setUp() {
+        eventSeatingRepository = mock(EventSeatingRepository.class);
+        seatAllocationService = new SeatAllocationService(eventSeatingRepository, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void testReserveStopsAtCapacity() {
+        when(eventSeatingRepository.findByEventId(EVENT_ID)).thenReturn(seating(3, 1));
+
+        assertTrue(seatAllocationService.tryReserve(EVENT_ID, 2));
+        assertFalse(seatAllocationService.tryReserve(EVENT_ID, 1));
+        assertEquals(0, seatAllocationService.getAvailableSeats(EVENT_ID));
+
+        // Capped at capacity: the seat booked before this node loaded the counter stays booked too
+        seatAllocationService.release(EVENT_ID, 5);
+        assertEquals(3, seatAllocationService.getAvailableSeats(EVENT_ID));
+    }
+
+    @Test
+    void testReconcileReloadsCountersFromCorrectedTable() {
+        when(eventSeatingRepository.findByEventId(EVENT_ID)).thenReturn(seating(10, 0), seating(10, 4));
+        when(eventSeatingRepository.incrementSeatsBooked(EVENT_ID, 2)).thenReturn(1);
+        when(eventSeatingRepository.reconcileSeatsBooked()).thenReturn(1);
+
+        assertTrue(seatAllocationService.tryReserve(EVENT_ID, 2));
+        seatAllocationService.reconcile();
+
+        verify(eventSeatingRepository).reconcileSeatsBooked();
+        assertFalse(seatAllocationService.isLoaded(EVENT_ID));
+        assertEquals(6, seatAllocationService.getAvailableSeats(EVENT_ID));
+        seatAllocationService.flush();
+        verify(eventSeatingRepository, times(1)).incrementSeatsBooked(anyInt(), anyInt());
+    }
+
+    @Test
+    void testRejectedFlushKeepsDelta() {
+        when(eventSeatingRepository.findByEventId(EVENT_ID)).thenReturn(seating(10, 0));
+        when(eventSeatingRepository.incrementSeatsBooked(EVENT_ID, 3)).thenReturn(0, 1);
+
+        assertTrue(seatAllocationService.tryReserve(EVENT_ID, 3));
+        seatAllocationService.flush();
+        // Rejected: the counter is dropped, but its seats are still pending
+        assertFalse(seatAllocationService.isLoaded(EVENT_ID));
+        seatAllocationService.flush();
+
+        verify(eventSeatingRepository, times(2)).incrementSeatsBooked(EVENT_ID, 3);
+    }
+
+    @Test
+    void testReloadAfterRejectedFlushCountsPendingSeats() {
+        when(eventSeatingRepository.findByEventId(EVENT_ID)).thenReturn(seating(10, 0));
+        when(eventSeatingRepository.incrementSeatsBooked(EVENT_ID, 3)).thenReturn(0);
+
+        assertTrue(seatAllocationService.tryReserve(EVENT_ID, 3));
+        seatAllocationService.flush();
+
+        assertEquals(7, seatAllocationService.getAvailableSeats(EVENT_ID));
+    }
+
+    @Test
+    void testFailedFlushKeepsDelta() {
+        when(eventSeatingRepository.findByEventId(EVENT_ID)).thenReturn(seating(10, 0));
+        when(eventSeatingRepository.incrementSeatsBooked(EVENT_ID, 3))
+                .thenThrow(new RuntimeException("connection reset"))
+                .thenReturn(1);
+
+        assertTrue(seatAllocationService.tryReserve(EVENT_ID, 3));
+        seatAllocationService.flush();
+        assertTrue(seatAllocationService.isLoaded(EVENT_ID));
+        assertEquals(7, seatAllocationService.getAvailableSeats(EVENT_ID));
+        seatAllocationService.flush();
+
+        verify(eventSeatingRepository, times(2)).incrementSeatsBooked(EVENT_ID, 3);
+    }
+
+    @Test
+    void testFailedEventDoesNotLoseOtherEventsDelta() {
+        when(eventSeatingRepository.findByEventId(anyInt())).thenAnswer(invocation -> seating(10, 0));
+        when(eventSeatingRepository.incrementSeatsBooked(1, 2)).thenThrow(new RuntimeException("deadlock"));
+        when(eventSeatingRepository.incrementSeatsBooked(2, 4)).thenReturn(1);
+
+        assertTrue(seatAllocationService.tryReserve(1, 2));
+        assertTrue(seatAllocationService.tryReserve(2, 4));
+        seatAllocationService.flush();
+        seatAllocationService.flush();
+
+        verify(eventSeatingRepository, times(1)).incrementSeatsBooked(2, 4);
+        verify(eventSeatingRepository, times(2)).incrementSeatsBooked(1, 2);
+    }
+
+    @Test
+    void testConcurrentReserveDuringInvalidate() throws Exception {
+        AtomicInteger seatsBooked = new AtomicInteger();
+        when(eventSeatingRepository.findByEventId(EVENT_ID))
+                .thenAnswer(invocation -> seating(100_000, seatsBooked.get()));
+        when(eventSeatingRepository.incrementSeatsBooked(eq(EVENT_ID), anyInt())).thenAnswer(invocation -> {
+            seatsBooked.addAndGet(invocation.getArgument(1));
+            return 1;
+        });
+
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        AtomicBoolean done = new AtomicBoolean();
+        try {
+            List<Future<Integer>> reservers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                reservers.add(executor.submit(() -> {
+                    int reserved = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        if (seatAllocationService.tryReserve(EVENT_ID, 1)) {
+                            reserved++;
+                        }
+                    }
+                    return reserved;
+                }));
+            }
+            Future<?> invalidator = executor.submit(() -> {
+                while (!done.get()) {
+                    seatAllocationService.invalidate(EVENT_ID);
+                }
+            });
+
+            int reserved = 0;
+            for (Future<Integer> reserver : reservers) {
+                reserved += reserver.get(30, TimeUnit.SECONDS);
+            }
+            done.set(true);
+            invalidator.get(30, TimeUnit.SECONDS);
+            seatAllocationService.flush();
+
+            assertEquals(threads * perThread, reserved);
+            assertEquals(reserved, seatsBooked.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private EventSeating seating(int totalSeats, int seatsBooked) {
+        EventSeating seating = new EventSeating();
+        seating.setEventId(EVENT_ID);
+        seating.setTotalSeats(totalSeats);
+        seating.setSeatsBooked(seatsBooked);
+        return seating;
+    }
+}
@@ -0,0 +1,49 @@
+package fpt.aptech.eventsphere.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketCodesTest {
+    private final TicketCodes ticketCodes = new TicketCodes("test-secret");
+
+    @Test
+    void testIssuedTicketParses() {
+        String ticket = ticketCodes.ticketFor(15, 4);
+
+        assertEquals(new TicketCodes.Ticket(15, 4), ticketCodes.parse(ticket));
+        assertEquals(new TicketCodes.Ticket(15, 4), ticketCodes.parse(" " + ticket + "\n"));
+    }
+
+    @Test
+    void testForgedTicketIsRejected() {
+        String forged = new TicketCodes("guessed-secret").ticketFor(15, 4);
+
+        assertNull(ticketCodes.parse(forged));
+    }
+
+    @Test
+    void testAlteredTicketIsRejected() {
+        String signature = ticketCodes.ticketFor(15, 4).substring("T1.15.4.".length());
+
+        // Another registration, or the same one moved to another event, under the original signature
+        assertNull(ticketCodes.parse("T1.16.4." + signature));
+        assertNull(ticketCodes.parse("T1.15.5." + signature));
+        // A ticket of another event stays valid, but for that event only
+        assertEquals(5, ticketCodes.parse(ticketCodes.ticketFor(15, 5)).eventId());
+    }
+
+    @Test
+    void testMalformedTicketIsRejected() {
+        assertNull(ticketCodes.parse(null));
+        assertNull(ticketCodes.parse(""));
+        assertNull(ticketCodes.parse("T1.15.4"));
+        assertNull(ticketCodes.parse("T1.99999999999.4.AAAAAAAAAAAAAAAAAAAAAA"));
+        assertNull(ticketCodes.parse(ticketCodes.ticketFor(15, 4).replace("T1.", "T2.")));
+    }
+
+    @Test
+    void testBlankSecretIsRejected() {
+        assertThrows(IllegalStateException.class, () -> new TicketCodes(" "));
+    }
+}
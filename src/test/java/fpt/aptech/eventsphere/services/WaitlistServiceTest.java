@@ -0,0 +1,107 @@
+package fpt.aptech.eventsphere.services;
+
+import fpt.aptech.eventsphere.models.Registrations;
+import fpt.aptech.eventsphere.repositories.EventRepository;
+import fpt.aptech.eventsphere.repositories.RegistrationRepository;
+import fpt.aptech.eventsphere.repositories.WaitlistEntryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class WaitlistServiceTest {
+    private static final int EVENT_ID = 1;
+    private static final Registrations.RegistrationStatus WAITLIST = Registrations.RegistrationStatus.WAITLIST;
+    private static final Registrations.RegistrationStatus CONFIRMED = Registrations.RegistrationStatus.CONFIRMED;
+
+    private RegistrationRepository registrationRepository;
+    private WaitlistService waitlistService;
+
+    @BeforeEach
+    void setUp() {
+        WaitlistEntryRepository waitlistEntryRepository = mock(WaitlistEntryRepository.class);
+        when(waitlistEntryRepository.findQueueByEventId(EVENT_ID)).thenReturn(List.of(
+                new Object[]{1, 10, "alice@example.com"},
+                new Object[]{2, 11, "bob@example.com"},
+                new Object[]{3, 12, "carol@example.com"}));
+        registrationRepository = mock(RegistrationRepository.class);
+        when(registrationRepository.updateStatusIfCurrent(anyInt(), eq(WAITLIST), eq(CONFIRMED))).thenReturn(1);
+        SeatAllocationService seatAllocationService = mock(SeatAllocationService.class);
+        when(seatAllocationService.tryReserve(eq(EVENT_ID), anyInt())).thenReturn(true);
+
+        waitlistService = new WaitlistService(waitlistEntryRepository, registrationRepository,
+                mock(EventRepository.class), seatAllocationService, mock(EmailService.class),
+                mock(EmailTemplateService.class), mock(EventStatisticsService.class),
+                mock(ApplicationEventPublisher.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testPromoteSkipsRemovedEntry() {
+        loadQueue();
+        waitlistService.remove(registration(10));
+
+        assertEquals(2, waitlistService.promote(EVENT_ID, 5));
+        verify(registrationRepository, never()).updateStatusIfCurrent(10, WAITLIST, CONFIRMED);
+    }
+
+    @Test
+    void testRolledBackRemoveAndPromoteRestoreQueue() {
+        loadQueue();
+        TransactionSynchronizationManager.initSynchronization();
+        waitlistService.remove(registration(11));
+        assertEquals(2, waitlistService.promote(EVENT_ID, 2));
+        rollBack();
+        clearInvocations(registrationRepository);
+
+        // All three are back, in their original order, including the one whose removal rolled back
+        assertEquals(3, waitlistService.promote(EVENT_ID, 5));
+        InOrder inOrder = inOrder(registrationRepository);
+        for (int registrationId : new int[]{10, 11, 12}) {
+            inOrder.verify(registrationRepository).updateStatusIfCurrent(registrationId, WAITLIST, CONFIRMED);
+        }
+    }
+
+    @Test
+    void testRolledBackPromoteRestoresEntryWhoseStatusChanged() {
+        when(registrationRepository.updateStatusIfCurrent(10, WAITLIST, CONFIRMED)).thenReturn(0, 1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals(1, waitlistService.promote(EVENT_ID, 1));
+        rollBack();
+
+        assertEquals(3, waitlistService.promote(EVENT_ID, 5));
+    }
+
+    private void loadQueue() {
+        waitlistService.promote(EVENT_ID, 0);
+    }
+
+    private void rollBack() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+    }
+
+    private Registrations registration(int registrationId) {
+        Registrations registration = new Registrations();
+        registration.setRegistrationId(registrationId);
+        return registration;
+    }
+}